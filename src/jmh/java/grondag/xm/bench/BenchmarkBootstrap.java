@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.bench;
+
+import net.minecraft.Bootstrap;
+
+/**
+ * Initializes vanilla registries so that benchmarks can use blocks, identifiers
+ * and XM registries outside of a running game.
+ */
+public final class BenchmarkBootstrap {
+	private BenchmarkBootstrap() { }
+
+	private static boolean initialized = false;
+
+	public static synchronized void init() {
+		if (!initialized) {
+			Bootstrap.initialize();
+			initialized = true;
+		}
+	}
+}
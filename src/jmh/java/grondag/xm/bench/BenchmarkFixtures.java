@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.bench;
+
+import grondag.xm.api.mesh.ReadOnlyMesh;
+import grondag.xm.api.mesh.WritableMesh;
+import grondag.xm.api.mesh.XmMeshes;
+import grondag.xm.api.mesh.polygon.MutablePolygon;
+import grondag.xm.api.modelstate.ModelState;
+import grondag.xm.api.modelstate.primitive.MutablePrimitiveState;
+import grondag.xm.api.primitive.simple.CappedRoundColumn;
+import grondag.xm.api.primitive.simple.CappedSquareInsetColumn;
+import grondag.xm.api.primitive.simple.CutRoundColumn;
+import grondag.xm.api.primitive.simple.IcosahedralSphere;
+import grondag.xm.api.primitive.simple.InsetPanel;
+import grondag.xm.api.primitive.simple.RoundedColumn;
+import grondag.xm.api.primitive.simple.StackedPlates;
+
+/**
+ * Model states and meshes shared by benchmarks. Names are used as JMH parameter values.
+ */
+public final class BenchmarkFixtures {
+	private BenchmarkFixtures() { }
+
+	public static final String CUT_ROUND_COLUMN = "cut_round_column";
+	public static final String ICOSAHEDRAL_SPHERE = "icosahedral_sphere";
+	public static final String STACKED_PLATES = "stacked_plates";
+	public static final String CAPPED_ROUND_COLUMN = "capped_round_column";
+	public static final String CAPPED_SQUARE_INSET_COLUMN = "capped_square_inset_column";
+	public static final String ROUNDED_COLUMN = "rounded_column";
+	public static final String INSET_PANEL = "inset_panel";
+
+	/**
+	 * Default state of a stock primitive. Caller should release.
+	 */
+	public static MutablePrimitiveState primitiveState(String name) {
+		BenchmarkBootstrap.init();
+
+		switch (name) {
+			case CUT_ROUND_COLUMN:
+				return CutRoundColumn.INSTANCE.newState();
+			case ICOSAHEDRAL_SPHERE:
+				return IcosahedralSphere.INSTANCE.newState();
+			case STACKED_PLATES:
+				return StackedPlates.INSTANCE.newState();
+			case CAPPED_ROUND_COLUMN:
+				return CappedRoundColumn.INSTANCE.newState();
+			case CAPPED_SQUARE_INSET_COLUMN:
+				return CappedSquareInsetColumn.INSTANCE.newState();
+			case ROUNDED_COLUMN:
+				return RoundedColumn.INSTANCE.newState();
+			case INSET_PANEL:
+				return InsetPanel.INSTANCE.newState();
+			default:
+				throw new IllegalArgumentException("Unknown primitive: " + name);
+		}
+	}
+
+	/**
+	 * Copies the polygons emitted by the model state into a new mesh. Caller should release.
+	 */
+	public static ReadOnlyMesh meshOf(ModelState modelState) {
+		final WritableMesh mesh = XmMeshes.claimWritable();
+		final MutablePolygon writer = mesh.writer();
+
+		modelState.emitPolygons(p -> {
+			writer.vertexCount(p.vertexCount());
+			writer.spriteDepth(p.spriteDepth());
+			writer.copyFrom(p, true);
+			writer.append();
+		});
+
+		return mesh.releaseToReader();
+	}
+
+	/**
+	 * Mesh for the default state of a stock primitive. Caller should release.
+	 */
+	public static ReadOnlyMesh primitiveMesh(String name) {
+		final MutablePrimitiveState modelState = primitiveState(name);
+		final ReadOnlyMesh result = meshOf(modelState);
+		modelState.release();
+		return result;
+	}
+}
@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.collision;
+
+import java.util.Random;
+
+import net.minecraft.util.function.BooleanBiFunction;
+import net.minecraft.util.shape.VoxelShape;
+import net.minecraft.util.shape.VoxelShapes;
+
+import grondag.xm.api.mesh.ReadOnlyMesh;
+import grondag.xm.api.mesh.polygon.Polygon;
+import grondag.xm.bench.BenchmarkBootstrap;
+import grondag.xm.bench.BenchmarkFixtures;
+
+/**
+ * Compares {@link VoxelBoxBuilder} with the legacy octree builder in
+ * {@link VoxelVolumeKey#buildLegacy(int[])}. Volumes come from voxelized stock
+ * primitives and from a seeded generator that mixes random boxes with random
+ * voxel noise. Shapes must match exactly; box counts are the raw greedy sweep
+ * output against the number of cuboids the legacy builder unions, and are reported
+ * rather than enforced because neither decomposition is optimal.
+ * <p>
+ *
+ * Run with {@code gradlew voxelBoxCheck}, optionally with {@code -PvoxelBoxSeed=<long>}.
+ * The default seed is fixed so that reported numbers are comparable across runs.
+ */
+public final class VoxelBoxCheck {
+	private VoxelBoxCheck() { }
+
+	private static final String[] PRIMITIVES = {
+		BenchmarkFixtures.CUT_ROUND_COLUMN,
+		BenchmarkFixtures.ICOSAHEDRAL_SPHERE,
+		BenchmarkFixtures.STACKED_PLATES,
+		BenchmarkFixtures.CAPPED_ROUND_COLUMN,
+		BenchmarkFixtures.CAPPED_SQUARE_INSET_COLUMN,
+		BenchmarkFixtures.ROUNDED_COLUMN,
+		BenchmarkFixtures.INSET_PANEL
+	};
+
+	private static final int RANDOM_VOLUMES = 4096;
+
+	public static void main(String[] args) {
+		BenchmarkBootstrap.init();
+		final long seed = args.length > 0 ? Long.parseLong(args[0]) : 42;
+		final Tally primitives = new Tally();
+		final Tally random = new Tally();
+		final int[] boxes = new int[VoxelBoxBuilder.MAX_BOXES];
+
+		for (final String name : PRIMITIVES) {
+			final VoxelVolumeKey key = voxelize(name);
+			final int count = check(key, boxes, name);
+			primitives.add(count, key.legacyBoxCount());
+			System.out.println(String.format("%-28s greedy %3d boxes, legacy %3d", name, count, key.legacyBoxCount()));
+		}
+
+		final Random rand = new Random(seed);
+		final long[] bits = new long[8];
+
+		for (int i = 0; i < RANDOM_VOLUMES; ++i) {
+			randomize(bits, rand);
+			final VoxelVolumeKey key = VoxelVolumeKey.fromBits(bits);
+
+			if (key.isEmpty() || key.isFull()) {
+				continue;
+			}
+
+			random.add(check(key, boxes, "random volume " + i + " seed " + seed), key.legacyBoxCount());
+		}
+
+		primitives.print("Stock primitives");
+		random.print("Random volumes (seed " + seed + ")");
+	}
+
+	/**
+	 * Throws {@link IllegalStateException} if the greedy shape differs from the legacy shape.
+	 * Returns the raw sweep box count.
+	 */
+	private static int check(VoxelVolumeKey key, int[] boxes, String label) {
+		final long[] bits = key.copyBits();
+		final int count = VoxelBoxBuilder.sweep(bits, boxes);
+		final VoxelShape shape = VoxelBoxBuilder.toShape(boxes, count);
+		final VoxelShape legacy = key.buildLegacy(new int[1]);
+
+		if (VoxelShapes.matchesAnywhere(shape, legacy, BooleanBiFunction.NOT_SAME)) {
+			throw new IllegalStateException("Greedy shape does not match legacy shape for " + label + ": " + key);
+		}
+
+		return count;
+	}
+
+	private static VoxelVolumeKey voxelize(String name) {
+		final ReadOnlyMesh mesh = BenchmarkFixtures.primitiveMesh(name);
+		final MeshVoxelizer voxelizer = new MeshVoxelizer();
+		final Polygon reader = mesh.threadSafeReader();
+
+		if (reader.origin()) {
+			do {
+				voxelizer.accept(reader);
+			} while (reader.next());
+		}
+
+		reader.release();
+		final VoxelVolumeKey result = VoxelVolumeKey.fromBits(voxelizer.build().copyBits());
+		mesh.release();
+		return result;
+	}
+
+	/** A few solid boxes, as for typical block shapes, plus noise at a random density. */
+	private static void randomize(long[] bits, Random rand) {
+		for (int z = 0; z < 8; ++z) {
+			bits[z] = 0;
+		}
+
+		final int boxCount = rand.nextInt(5);
+
+		for (int b = 0; b < boxCount; ++b) {
+			final int x0 = rand.nextInt(8), x1 = x0 + 1 + rand.nextInt(8 - x0);
+			final int y0 = rand.nextInt(8), y1 = y0 + 1 + rand.nextInt(8 - y0);
+			final int z0 = rand.nextInt(8), z1 = z0 + 1 + rand.nextInt(8 - z0);
+			final long row = ((1L << (x1 - x0)) - 1) << x0;
+
+			for (int z = z0; z < z1; ++z) {
+				for (int y = y0; y < y1; ++y) {
+					bits[z] |= row << (y << 3);
+				}
+			}
+		}
+
+		final int density = rand.nextInt(4) == 0 ? rand.nextInt(64) : 0;
+
+		if (density > 0) {
+			for (int z = 0; z < 8; ++z) {
+				for (int i = 0; i < 64; ++i) {
+					if (rand.nextInt(64) < density) {
+						bits[z] |= 1L << i;
+					}
+				}
+			}
+		}
+	}
+
+	private static final class Tally {
+		int volumes;
+		long greedy;
+		long legacy;
+		int worse;
+
+		void add(int greedyCount, int legacyCount) {
+			++volumes;
+			greedy += greedyCount;
+			legacy += legacyCount;
+
+			if (greedyCount > legacyCount) {
+				++worse;
+			}
+		}
+
+		void print(String label) {
+			System.out.println(String.format("%s: %d volumes match, %.2f greedy vs %.2f legacy boxes per volume, greedy worse for %d",
+					label, volumes, (double) greedy / Math.max(1, volumes), (double) legacy / Math.max(1, volumes), worse));
+		}
+	}
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.collision;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.minecraft.util.shape.VoxelShape;
+
+import grondag.xm.api.mesh.ReadOnlyMesh;
+import grondag.xm.api.mesh.polygon.Polygon;
+import grondag.xm.bench.BenchmarkFixtures;
+
+/**
+ * Collision shape generation without the dispatcher cache: voxelization of
+ * primitive meshes, and conversion of the resulting voxel volume to a shape.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VoxelizerBenchmark {
+	@Param({BenchmarkFixtures.CUT_ROUND_COLUMN, BenchmarkFixtures.ICOSAHEDRAL_SPHERE, BenchmarkFixtures.STACKED_PLATES})
+	public String primitive;
+
+	private final MeshVoxelizer voxelizer = new MeshVoxelizer();
+	private ReadOnlyMesh mesh;
+	private VoxelVolumeKey key;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		mesh = BenchmarkFixtures.primitiveMesh(primitive);
+		key = VoxelVolumeKey.fromBits(voxelize().copyBits());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		mesh.release();
+	}
+
+	private VoxelVolumeKey voxelize() {
+		final Polygon reader = mesh.threadSafeReader();
+
+		if (reader.origin()) {
+			do {
+				voxelizer.accept(reader);
+			} while (reader.next());
+		}
+
+		reader.release();
+		return voxelizer.build();
+	}
+
+	@Benchmark
+	public VoxelVolumeKey voxelizeOnly() {
+		return voxelize();
+	}
+
+	@Benchmark
+	public VoxelShape buildShape() {
+		return key.build();
+	}
+
+	@Benchmark
+	public VoxelShape voxelizeAndBuild() {
+		return voxelize().build();
+	}
+}
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.connect;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.fluid.FluidState;
+import net.minecraft.fluid.Fluids;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.BlockView;
+
+import grondag.xm.api.connect.state.CornerJoinState;
+import grondag.xm.api.connect.world.BlockNeighbors;
+import grondag.xm.api.connect.world.BlockTest;
+import grondag.xm.bench.BenchmarkBootstrap;
+import grondag.xm.dispatch.SnapshotViews;
+
+/**
+ * Corner join resolution for every position in one chunk section
+ * of a stub world, as done when a section with connected blocks is rebuilt.
+ * When {@code snapshot} is true the stub world is treated like a render region,
+ * so block states and test results are shared across the section. A new view
+ * is used for each invocation so that nothing is retained between them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CornerJoinBenchmark {
+	/** Percent of positions occupied by the joining block. */
+	@Param({"25", "75", "100"})
+	public int fillPercent;
+
+	@Param({"false", "true"})
+	public boolean snapshot;
+
+	private StubBlockView template;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		BenchmarkBootstrap.init();
+		template = new StubBlockView(fillPercent, 1234);
+		SnapshotViews.predicate(snapshot ? v -> v instanceof StubBlockView : v -> false);
+	}
+
+	@Benchmark
+	public int section() {
+		final StubBlockView world = template.copy();
+		final BlockPos.Mutable pos = new BlockPos.Mutable();
+		int result = 0;
+
+		for (int y = 0; y < 16; ++y) {
+			for (int z = 0; z < 16; ++z) {
+				for (int x = 0; x < 16; ++x) {
+					pos.set(x, y, z);
+
+					if (world.getBlockState(pos) == StubBlockView.JOINED) {
+						final BlockNeighbors neighbors = BlockNeighbors.threadLocal(world, pos, BlockTest.sameBlock());
+						result += CornerJoinState.fromWorld(neighbors).ordinal();
+						neighbors.release();
+					}
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Fixed random pattern of stone and air in an 18 x 18 x 18 region covering one
+	 * section and its neighbors. Everything outside the region is air.
+	 */
+	static class StubBlockView implements BlockView {
+		static final BlockState JOINED = Blocks.STONE.getDefaultState();
+		static final BlockState EMPTY = Blocks.AIR.getDefaultState();
+
+		private final BlockState[] states;
+
+		StubBlockView(int fillPercent, long seed) {
+			final Random rand = new Random(seed);
+			states = new BlockState[18 * 18 * 18];
+
+			for (int i = 0; i < states.length; ++i) {
+				states[i] = rand.nextInt(100) < fillPercent ? JOINED : EMPTY;
+			}
+		}
+
+		private StubBlockView(BlockState[] states) {
+			this.states = states;
+		}
+
+		/** New view instance with the same content. */
+		StubBlockView copy() {
+			return new StubBlockView(states);
+		}
+
+		@Override
+		public BlockEntity getBlockEntity(BlockPos pos) {
+			return null;
+		}
+
+		@Override
+		public BlockState getBlockState(BlockPos pos) {
+			final int x = pos.getX() + 1;
+			final int y = pos.getY() + 1;
+			final int z = pos.getZ() + 1;
+
+			if (x < 0 || y < 0 || z < 0 || x >= 18 || y >= 18 || z >= 18) {
+				return EMPTY;
+			}
+
+			return states[x + (y * 18 + z) * 18];
+		}
+
+		@Override
+		public FluidState getFluidState(BlockPos pos) {
+			return Fluids.EMPTY.getDefaultState();
+		}
+	}
+}
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.mesh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import grondag.xm.api.mesh.CsgMeshBuilder;
+import grondag.xm.api.mesh.ReadOnlyMesh;
+import grondag.xm.api.mesh.XmMesh;
+import grondag.xm.bench.BenchmarkFixtures;
+
+/**
+ * Batched CSG operands compared to the same operations applied pairwise.
+ * <p>
+ *
+ * Operands are stock panel and column meshes separated by {@code +} for union
+ * and {@code -} for difference. All unions come before differences, so both
+ * paths compute the same solid.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CsgBatchBenchmark {
+	@Param({
+		BenchmarkFixtures.INSET_PANEL + "+" + BenchmarkFixtures.CAPPED_SQUARE_INSET_COLUMN + "+" + BenchmarkFixtures.ROUNDED_COLUMN,
+		BenchmarkFixtures.CUT_ROUND_COLUMN + "+" + BenchmarkFixtures.CAPPED_ROUND_COLUMN + "+" + BenchmarkFixtures.ROUNDED_COLUMN + "-" + BenchmarkFixtures.ICOSAHEDRAL_SPHERE,
+		BenchmarkFixtures.INSET_PANEL + "-" + BenchmarkFixtures.CUT_ROUND_COLUMN + "-" + BenchmarkFixtures.CAPPED_ROUND_COLUMN + "-" + BenchmarkFixtures.STACKED_PLATES
+	})
+	public String operands;
+
+	private ReadOnlyMesh[] unions;
+	private ReadOnlyMesh[] differences;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		final String[] sides = operands.split("-");
+		final String[] unionNames = sides[0].split("\\+");
+
+		unions = new ReadOnlyMesh[unionNames.length];
+
+		for (int i = 0; i < unionNames.length; ++i) {
+			unions[i] = BenchmarkFixtures.primitiveMesh(unionNames[i]);
+		}
+
+		differences = new ReadOnlyMesh[sides.length - 1];
+
+		for (int i = 1; i < sides.length; ++i) {
+			differences[i - 1] = BenchmarkFixtures.primitiveMesh(sides[i]);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		for (final ReadOnlyMesh mesh : unions) {
+			mesh.release();
+		}
+
+		for (final ReadOnlyMesh mesh : differences) {
+			mesh.release();
+		}
+	}
+
+	private static int finish(XmMesh result) {
+		int count = 0;
+
+		if (result.reader().origin()) {
+			do {
+				++count;
+			} while (result.reader().next());
+		}
+
+		result.release();
+		return count;
+	}
+
+	@Benchmark
+	public int sequential() {
+		final CsgMeshBuilder csg = CsgMeshBuilder.threadLocal();
+
+		for (final ReadOnlyMesh mesh : unions) {
+			csg.input().appendAll(mesh);
+			csg.union();
+		}
+
+		for (final ReadOnlyMesh mesh : differences) {
+			csg.input().appendAll(mesh);
+			csg.difference();
+		}
+
+		return finish(csg.build());
+	}
+
+	@Benchmark
+	public int batched() {
+		final CsgMeshBuilder csg = CsgMeshBuilder.threadLocal();
+
+		for (final ReadOnlyMesh mesh : unions) {
+			csg.unionOperand().appendAll(mesh);
+		}
+
+		for (final ReadOnlyMesh mesh : differences) {
+			csg.differenceOperand().appendAll(mesh);
+		}
+
+		return finish(csg.build());
+	}
+}
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.mesh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import grondag.xm.api.mesh.Csg;
+import grondag.xm.api.mesh.ReadOnlyMesh;
+import grondag.xm.api.mesh.WritableMesh;
+import grondag.xm.api.mesh.XmMesh;
+import grondag.xm.api.mesh.XmMeshes;
+import grondag.xm.bench.BenchmarkFixtures;
+
+/**
+ * CSG operations between meshes of stock primitives. Operands are
+ * captured once and copied into CSG meshes on each invocation, same
+ * as the {@link XmMesh} overloads of {@link Csg} do in normal use.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CsgBenchmark {
+	@Param({
+		BenchmarkFixtures.CUT_ROUND_COLUMN + "/" + BenchmarkFixtures.ICOSAHEDRAL_SPHERE,
+		BenchmarkFixtures.ICOSAHEDRAL_SPHERE + "/" + BenchmarkFixtures.STACKED_PLATES,
+		BenchmarkFixtures.STACKED_PLATES + "/" + BenchmarkFixtures.CUT_ROUND_COLUMN
+	})
+	public String operands;
+
+	private ReadOnlyMesh a;
+	private ReadOnlyMesh b;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		final String[] names = operands.split("/");
+		a = BenchmarkFixtures.primitiveMesh(names[0]);
+		b = BenchmarkFixtures.primitiveMesh(names[1]);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		a.release();
+		b.release();
+	}
+
+	private static int finish(WritableMesh output) {
+		final XmMesh result = output.releaseToReader();
+		int count = 0;
+
+		if (result.reader().origin()) {
+			do {
+				++count;
+			} while (result.reader().next());
+		}
+
+		result.release();
+		return count;
+	}
+
+	@Benchmark
+	public int union() {
+		final WritableMesh output = XmMeshes.claimWritable();
+		Csg.union(a, b, output);
+		return finish(output);
+	}
+
+	@Benchmark
+	public int difference() {
+		final WritableMesh output = XmMeshes.claimWritable();
+		Csg.difference(a, b, output);
+		return finish(output);
+	}
+
+	@Benchmark
+	public int intersect() {
+		final WritableMesh output = XmMeshes.claimWritable();
+		Csg.intersect(a, b, output);
+		return finish(output);
+	}
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.mesh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Vertex clustering used by CSG face recombination. Each distinct point
+ * is repeated with a small offset (within match distance) to approximate
+ * the shared vertices of adjacent polys in a split mesh.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CsgVertexMapBenchmark {
+	private static final int SHARE_COUNT = 4;
+
+	@Param({"100", "1000", "10000"})
+	public int vertexCount;
+
+	private final CsgVertexMap map = new CsgVertexMap();
+	private float[] coordinates;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		final Random r = new Random(42);
+		coordinates = new float[vertexCount * 3];
+
+		for (int i = 0; i < vertexCount; i += SHARE_COUNT) {
+			final float x = r.nextFloat();
+			final float y = r.nextFloat();
+			final float z = r.nextFloat();
+
+			for (int j = i; j < Math.min(vertexCount, i + SHARE_COUNT); j++) {
+				coordinates[j * 3] = x + (r.nextFloat() - 0.5f) * 0.0001f;
+				coordinates[j * 3 + 1] = y + (r.nextFloat() - 0.5f) * 0.0001f;
+				coordinates[j * 3 + 2] = z + (r.nextFloat() - 0.5f) * 0.0001f;
+			}
+		}
+	}
+
+	@Benchmark
+	public int cluster() {
+		final CsgVertexMap map = this.map;
+		final float[] coordinates = this.coordinates;
+		map.clear();
+		int result = 0;
+
+		for (int i = 0; i < coordinates.length; i += 3) {
+			result += map.findOrCreateCluster(coordinates[i], coordinates[i + 1], coordinates[i + 2]);
+		}
+
+		return result;
+	}
+}
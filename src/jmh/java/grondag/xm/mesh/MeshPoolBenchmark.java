@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.mesh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import grondag.xm.api.mesh.MutableMesh;
+import grondag.xm.api.mesh.ReadOnlyMesh;
+import grondag.xm.api.mesh.WritableMesh;
+import grondag.xm.api.mesh.XmMeshes;
+import grondag.xm.api.mesh.polygon.Polygon;
+import grondag.xm.bench.BenchmarkFixtures;
+
+/**
+ * Claim/release throughput of pooled meshes and thread-safe readers with several
+ * threads contending, similar to chunk builder threads emitting models.
+ * Readers are claimed from a single shared mesh, as for a baked primitive.
+ * <p>
+ *
+ * Each thread releases what it claims, so these are served by the thread-local stacks
+ * of {@link MeshPool}. See {@link MeshPoolHandoffBenchmark} for the shared ring under
+ * cross-thread contention and the queue-backed baseline.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class MeshPoolBenchmark {
+	private ReadOnlyMesh mesh;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		mesh = BenchmarkFixtures.primitiveMesh(BenchmarkFixtures.CUT_ROUND_COLUMN);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		mesh.release();
+	}
+
+	@Benchmark
+	public boolean writable() {
+		final WritableMesh result = XmMeshes.claimWritable();
+		final boolean empty = result.isEmpty();
+		result.release();
+		return empty;
+	}
+
+	@Benchmark
+	public boolean mutable() {
+		final MutableMesh result = XmMeshes.claimMutable();
+		final boolean empty = result.isEmpty();
+		result.release();
+		return empty;
+	}
+
+	@Benchmark
+	public int threadSafeReader() {
+		final Polygon reader = mesh.threadSafeReader();
+		final int count = reader.vertexCount();
+		reader.release();
+		return count;
+	}
+}
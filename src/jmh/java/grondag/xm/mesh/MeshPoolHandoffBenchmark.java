@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.mesh;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link MeshPool} against the {@link ArrayBlockingQueue} pools it replaced, with the
+ * pool alone and no mesh work.
+ * <p>
+ *
+ * The {@code handoff} group claims on two threads and releases on two others, as when
+ * meshes are built on one thread and released on another. Releasing threads overflow their
+ * local stack and claiming threads never have one, so nearly every operation goes to the
+ * shared ring and threads contend on it. {@code sameThread} claims and releases on each of
+ * four threads, which the ring serves from its thread-local stacks.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MeshPoolHandoffBenchmark {
+	private static final int CAPACITY = 256;
+
+	private interface Pool {
+		Object poll();
+
+		boolean offer(Object item);
+	}
+
+	private static Pool create(String kind) {
+		switch (kind) {
+			case "ring": {
+				final MeshPool<Object> pool = new MeshPool<>(CAPACITY);
+
+				return new Pool() {
+					@Override
+					public Object poll() {
+						return pool.poll();
+					}
+
+					@Override
+					public boolean offer(Object item) {
+						pool.offer(item);
+						return true;
+					}
+				};
+			}
+
+			case "queue": {
+				final ArrayBlockingQueue<Object> queue = new ArrayBlockingQueue<>(CAPACITY);
+
+				return new Pool() {
+					@Override
+					public Object poll() {
+						return queue.poll();
+					}
+
+					@Override
+					public boolean offer(Object item) {
+						return queue.offer(item);
+					}
+				};
+			}
+
+			default:
+				throw new IllegalArgumentException("Unknown pool: " + kind);
+		}
+	}
+
+	@State(Scope.Group)
+	public static class GroupPool {
+		@Param({"ring", "queue"})
+		public String pool;
+
+		Pool instance;
+
+		/** New pool each iteration so fill level does not carry over */
+		@Setup(Level.Iteration)
+		public void setup() {
+			instance = create(pool);
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class SharedPool {
+		@Param({"ring", "queue"})
+		public String pool;
+
+		Pool instance;
+
+		@Setup(Level.Iteration)
+		public void setup() {
+			instance = create(pool);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Token {
+		final Object item = new Object();
+	}
+
+	@Benchmark
+	@Group("handoff")
+	@GroupThreads(2)
+	public Object claim(GroupPool pool) {
+		return pool.instance.poll();
+	}
+
+	@Benchmark
+	@Group("handoff")
+	@GroupThreads(2)
+	public boolean release(GroupPool pool, Token token) {
+		return pool.instance.offer(token.item);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public boolean sameThread(SharedPool pool, Token token) {
+		final Pool p = pool.instance;
+		final Object item = p.poll();
+		return p.offer(item == null ? token.item : item);
+	}
+}
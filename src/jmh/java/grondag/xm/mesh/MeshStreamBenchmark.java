@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.mesh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import grondag.xm.XmConfig;
+import grondag.xm.api.mesh.Csg;
+import grondag.xm.api.mesh.MeshHelper;
+import grondag.xm.api.mesh.ReadOnlyMesh;
+import grondag.xm.api.mesh.WritableMesh;
+import grondag.xm.api.mesh.XmMesh;
+import grondag.xm.api.mesh.XmMeshes;
+import grondag.xm.api.mesh.polygon.Polygon;
+import grondag.xm.bench.BenchmarkBootstrap;
+
+/**
+ * Compares mesh stream backings for append, sequential read and CSG workloads.
+ * Each backing runs in its own fork so pooled streams of another type are never reused.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MeshStreamBenchmark {
+	private static final int BOX_COUNT = 64;
+
+	@Param({"PAGED", "CONTIGUOUS", "OFF_HEAP"})
+	public MeshStreamBacking backing;
+
+	private ReadOnlyMesh readMesh;
+	private ReadOnlyMesh csgA;
+	private ReadOnlyMesh csgB;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		BenchmarkBootstrap.init();
+		XmConfig.writableMeshBacking = backing;
+		XmConfig.mutableMeshBacking = backing;
+		XmConfig.csgMeshBacking = backing;
+		XmConfig.readOnlyMeshBacking = backing;
+
+		readMesh = boxes(BOX_COUNT);
+
+		WritableMesh mesh = XmMeshes.claimWritable();
+		MeshHelper.box(0, 0, 0, 1, 1, 1, mesh);
+		csgA = mesh.releaseToReader();
+
+		mesh = XmMeshes.claimWritable();
+		MeshHelper.box(0.25f, 0.25f, -0.5f, 0.75f, 0.75f, 1.5f, mesh);
+		csgB = mesh.releaseToReader();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		readMesh.release();
+		csgA.release();
+		csgB.release();
+	}
+
+	private static ReadOnlyMesh boxes(int count) {
+		final WritableMesh mesh = XmMeshes.claimWritable();
+
+		for (int i = 0; i < count; ++i) {
+			final float min = i / (float) (count * 2);
+			MeshHelper.box(min, min, min, 1 - min, 1 - min, 1 - min, mesh);
+		}
+
+		return mesh.releaseToReader();
+	}
+
+	@Benchmark
+	public int append() {
+		final XmMesh mesh = boxes(BOX_COUNT);
+		final int result = mesh.isEmpty() ? 0 : 1;
+		mesh.release();
+		return result;
+	}
+
+	@Benchmark
+	public float read() {
+		final Polygon reader = readMesh.threadSafeReader();
+		float result = 0;
+
+		if (reader.origin()) {
+			do {
+				for (int v = reader.vertexCount() - 1; v >= 0; --v) {
+					result += reader.x(v) + reader.u(v, 0) + reader.v(v, 0);
+				}
+			} while (reader.next());
+		}
+
+		reader.release();
+		return result;
+	}
+
+	@Benchmark
+	public boolean csgDifference() {
+		final WritableMesh output = XmMeshes.claimWritable();
+		Csg.difference(csgA, csgB, output);
+		final XmMesh result = output.releaseToReader();
+		final boolean empty = result.isEmpty();
+		result.release();
+		return empty;
+	}
+
+	@Benchmark
+	public boolean csgUnion() {
+		final WritableMesh output = XmMeshes.claimWritable();
+		Csg.union(csgA, csgB, output);
+		final XmMesh result = output.releaseToReader();
+		final boolean empty = result.isEmpty();
+		result.release();
+		return empty;
+	}
+}
@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.modelstate;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.minecraft.network.PacketByteBuf;
+
+import grondag.xm.api.modelstate.ModelState;
+import grondag.xm.api.modelstate.MutableModelState;
+import grondag.xm.api.modelstate.base.MutableBaseModelState;
+import grondag.xm.api.paint.XmPaint;
+import grondag.xm.api.primitive.ModelPrimitive;
+import grondag.xm.api.primitive.ModelPrimitiveRegistry;
+import grondag.xm.bench.BenchmarkBootstrap;
+import grondag.xm.paint.XmPaintImpl;
+
+/**
+ * Network encoding of the default state of every registered primitive, with surfaces
+ * painted from two alternating non-indexed paints so that shared and distinct paints
+ * both occur. Encoded size is reported in the {@code bytes} and {@code states}
+ * secondary results - their ratio is average bytes per state.
+ * <p>
+ *
+ * Setup first runs {@link ModelStateWireFuzz} so that a broken encoding fails
+ * the benchmark instead of being measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ModelStateWireBenchmark {
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class Size {
+		public long bytes;
+		public long states;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			bytes = 0;
+			states = 0;
+		}
+	}
+
+	private final ArrayList<MutableModelState> states = new ArrayList<>();
+	private PacketByteBuf buf;
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Setup(Level.Trial)
+	public void setup() {
+		BenchmarkBootstrap.init();
+		ModelStateWireFuzz.verify(new Random(42), 64);
+
+		final XmPaint paintA = XmPaintImpl.finder().textureColor(0, 0xFF80C0A0).find();
+		final XmPaint paintB = XmPaintImpl.finder().textureColor(0, 0xFF4060A0).find();
+
+		ModelPrimitiveRegistry.INSTANCE.forEach((ModelPrimitive p) -> {
+			final MutableBaseModelState state = (MutableBaseModelState) p.newState();
+			final int surfaceCount = p.surfaces(state).size();
+
+			// pairs of surfaces share a paint, so the mask has both set and clear bits
+			for (int i = 0; i < surfaceCount; ++i) {
+				state.paint(i, (i & 2) == 0 ? paintA : paintB);
+			}
+
+			states.add(state);
+		});
+
+		buf = new PacketByteBuf(Unpooled.buffer(0x10000));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		states.forEach(MutableModelState::release);
+		states.clear();
+		buf.release();
+	}
+
+	@Benchmark
+	public int encode(Size size) {
+		buf.clear();
+
+		for (final ModelState state : states) {
+			state.toBytes(buf);
+		}
+
+		size.bytes += buf.writerIndex();
+		size.states += states.size();
+		return buf.writerIndex();
+	}
+
+	@Benchmark
+	public int roundTrip() {
+		buf.clear();
+		int result = 0;
+
+		for (final ModelState state : states) {
+			state.toBytes(buf);
+		}
+
+		for (int i = states.size(); i > 0; --i) {
+			final MutableModelState copy = ModelState.fromBytes(buf, null);
+			result += copy.hashCode();
+			copy.release();
+		}
+
+		return result;
+	}
+}
@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.modelstate;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import io.netty.buffer.Unpooled;
+
+import net.minecraft.network.PacketByteBuf;
+
+import grondag.xm.api.modelstate.ModelState;
+import grondag.xm.api.modelstate.MutableModelState;
+import grondag.xm.api.paint.PaintBlendMode;
+import grondag.xm.api.paint.XmPaint;
+import grondag.xm.api.primitive.ModelPrimitive;
+import grondag.xm.api.primitive.ModelPrimitiveRegistry;
+import grondag.xm.bench.BenchmarkBootstrap;
+import grondag.xm.paint.XmPaintImpl;
+
+/**
+ * Randomized round trip of the model state wire format. Every registered primitive is
+ * encoded and decoded with arbitrary shape and world bits - including all-zero, all-one
+ * and sign-bit values that need five-byte varints - and with surfaces painted from a
+ * palette so that shared and distinct paints are mixed. Decoded states must equal the
+ * original and consume exactly the bytes written.
+ * <p>
+ *
+ * Run with {@code gradlew wireFuzz}, optionally with {@code -PwireFuzzSeed=<long>}
+ * to repeat a failure. Also run by {@link ModelStateWireBenchmark} before measuring.
+ */
+public final class ModelStateWireFuzz {
+	private ModelStateWireFuzz() { }
+
+	public static void main(String[] args) {
+		BenchmarkBootstrap.init();
+		final long seed = args.length > 0 ? Long.parseLong(args[0]) : System.nanoTime();
+		final Result result = verify(new Random(seed), 512);
+		System.out.println(String.format("Model state wire round trip passed for %d states, seed %d, %.2f bytes per state",
+				result.states, seed, (double) result.bytes / result.states));
+	}
+
+	public static final class Result {
+		public final int states;
+		public final long bytes;
+
+		private Result(int states, long bytes) {
+			this.states = states;
+			this.bytes = bytes;
+		}
+	}
+
+	/**
+	 * Round-trips {@code statesPerPrimitive} randomized states of every registered primitive.
+	 * Throws {@link IllegalStateException} describing the first state that does not survive.
+	 */
+	@SuppressWarnings("rawtypes")
+	public static Result verify(Random random, int statesPerPrimitive) {
+		final XmPaint[] palette = palette();
+		final ArrayList<ModelPrimitive> primitives = new ArrayList<>();
+		ModelPrimitiveRegistry.INSTANCE.forEach(primitives::add);
+
+		final PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer(256));
+		int states = 0;
+		long bytes = 0;
+
+		try {
+			for (final ModelPrimitive primitive : primitives) {
+				for (int i = 0; i < statesPerPrimitive; ++i) {
+					final MutableModelState state = primitive.newState();
+					randomize((AbstractPrimitiveModelState<?, ?, ?>) state, random, palette, i);
+
+					buf.clear();
+					state.toBytes(buf);
+					final int written = buf.writerIndex();
+					final MutableModelState copy = ModelState.fromBytes(buf, null);
+
+					if (copy == null) {
+						state.release();
+						throw new IllegalStateException(String.format("%s case %d: primitive not found when decoding", primitive.id(), i));
+					}
+
+					try {
+						if (buf.readerIndex() != written) {
+							throw new IllegalStateException(String.format("%s case %d: wrote %d bytes but read %d", primitive.id(), i, written, buf.readerIndex()));
+						}
+
+						if (!state.equals(copy)) {
+							throw new IllegalStateException(String.format("%s case %d: %s decoded as %s", primitive.id(), i, state, copy));
+						}
+					} finally {
+						copy.release();
+						state.release();
+					}
+
+					++states;
+					bytes += written;
+				}
+			}
+		} finally {
+			buf.release();
+		}
+
+		return new Result(states, bytes);
+	}
+
+	/**
+	 * First cases are fixed edge values, the rest are random. Paints are all shared,
+	 * all distinct, or drawn at random with frequent repeats of the prior surface.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static void randomize(AbstractPrimitiveModelState<?, ?, ?> state, Random random, XmPaint[] palette, int caseIndex) {
+		switch (caseIndex) {
+		case 0:
+			state.shapeBits = 0;
+			state.worldBits = 0;
+			break;
+
+		case 1:
+			state.shapeBits = -1;
+			state.worldBits = -1;
+			break;
+
+		case 2:
+			state.shapeBits = Integer.MIN_VALUE;
+			state.worldBits = Integer.MAX_VALUE;
+			break;
+
+		default:
+			state.shapeBits = random.nextInt();
+			state.worldBits = random.nextInt();
+		}
+
+		state.invalidateHashCode();
+
+		final int surfaceCount = ((ModelPrimitive) state.primitive()).surfaces(state).size();
+
+		for (int i = 0; i < surfaceCount; ++i) {
+			final XmPaint paint;
+
+			if (caseIndex == 0) {
+				paint = palette[0];
+			} else if (caseIndex == 1) {
+				paint = palette[i % palette.length];
+			} else if (i > 0 && random.nextInt(3) == 0) {
+				paint = state.paint(i - 1);
+			} else {
+				paint = palette[random.nextInt(palette.length)];
+			}
+
+			state.paint(i, paint);
+		}
+	}
+
+	private static XmPaint[] palette() {
+		return new XmPaint[] {
+			XmPaintImpl.finder().textureColor(0, 0xFF80C0A0).find(),
+			XmPaintImpl.finder().textureColor(0, 0xFFFFFFFF).emissive(0, true).find(),
+			XmPaintImpl.finder().textureDepth(2).textureColor(0, 0xFF102030).textureColor(1, 0x80FFFFFF).blendMode(1, PaintBlendMode.TRANSLUCENT).find(),
+			XmPaintImpl.finder().textureColor(0, 0xFF000000).disableAo(0, true).disableDiffuse(0, true).find(),
+			XmPaintImpl.finder().textureDepth(3).textureColor(2, 0xFFC08040).blendMode(PaintBlendMode.CUTOUT).find()
+		};
+	}
+}
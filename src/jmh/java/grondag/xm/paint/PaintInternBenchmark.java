@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.paint;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import grondag.xm.api.paint.XmPaint;
+import grondag.xm.bench.BenchmarkBootstrap;
+
+/**
+ * Throughput of paint interning under contention, as seen when many chunk builder
+ * threads resolve paints at once. Lookups all hit an existing paint so the table
+ * stays a fixed size; {@link #insert} reports the cost of creating new paints
+ * separately, from a fresh table each iteration so that growth does not accumulate.
+ * <p>
+ *
+ * Uses its own {@link PaintInterner} rather than the global one, which never evicts.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaintInternBenchmark {
+	private static final int DISTINCT_PAINTS = 4096;
+	private static final int NEW_PAINTS = 4096;
+
+	private static PaintInterner populated() {
+		BenchmarkBootstrap.init();
+		final PaintInterner result = new PaintInterner();
+		final XmPaintImpl.Finder finder = XmPaintImpl.finder();
+
+		for (int i = 0; i < DISTINCT_PAINTS; ++i) {
+			finder.clear();
+			finder.textureColor(0, i);
+			result.intern(finder);
+		}
+
+		return result;
+	}
+
+	@State(Scope.Benchmark)
+	public static class Shared {
+		PaintInterner interner;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			interner = populated();
+		}
+	}
+
+	/** Table with {@link #DISTINCT_PAINTS} entries, rebuilt before each batch of inserts */
+	@State(Scope.Thread)
+	public static class Inserts {
+		PaintInterner interner;
+		int nextColor;
+
+		@Setup(Level.Iteration)
+		public void setup() {
+			interner = populated();
+			nextColor = DISTINCT_PAINTS;
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Local {
+		final XmPaintImpl.Finder finder = XmPaintImpl.finder();
+	}
+
+	private static XmPaint find(Shared shared, Local local) {
+		final XmPaintImpl.Finder finder = local.finder;
+		finder.clear();
+		finder.textureColor(0, ThreadLocalRandom.current().nextInt(DISTINCT_PAINTS));
+		return shared.interner.intern(finder);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public XmPaint find1(Shared shared, Local local) {
+		return find(shared, local);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public XmPaint find4(Shared shared, Local local) {
+		return find(shared, local);
+	}
+
+	@Benchmark
+	@Threads(8)
+	public XmPaint find8(Shared shared, Local local) {
+		return find(shared, local);
+	}
+
+	@Benchmark
+	@Threads(16)
+	public XmPaint find16(Shared shared, Local local) {
+		return find(shared, local);
+	}
+
+	/**
+	 * Time to intern {@link #NEW_PAINTS} paints that are not in the table, including resizes.
+	 */
+	@Benchmark
+	@Threads(1)
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 5, batchSize = NEW_PAINTS)
+	@Measurement(iterations = 20, batchSize = NEW_PAINTS)
+	public XmPaint insert(Inserts inserts, Local local) {
+		final XmPaintImpl.Finder finder = local.finder;
+		finder.clear();
+		finder.textureColor(0, inserts.nextColor++);
+		return inserts.interner.intern(finder);
+	}
+}
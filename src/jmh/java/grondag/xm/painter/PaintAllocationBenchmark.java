@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.painter;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import grondag.xm.api.mesh.MutableMesh;
+import grondag.xm.api.mesh.ReadOnlyMesh;
+import grondag.xm.api.mesh.XmMeshes;
+import grondag.xm.api.mesh.polygon.MutablePolygon;
+import grondag.xm.api.mesh.polygon.Polygon;
+import grondag.xm.api.modelstate.primitive.MutablePrimitiveState;
+import grondag.xm.api.paint.XmPaint;
+import grondag.xm.api.texture.core.CoreTextures;
+import grondag.xm.bench.BenchmarkFixtures;
+import grondag.xm.paint.XmPaintImpl;
+
+/**
+ * Allocation in the painting pass of {@link PaintManager#accept(Polygon)},
+ * without sprite baking or quad emission. Primitives are painted with three
+ * tiled layers so that every layer splits polygons.
+ * <p>
+ *
+ * Meant to be run with the GC profiler - {@code gradlew jmh -PjmhInclude=PaintAllocation -PjmhProfilers=gc}.
+ * The {@code gc.alloc.rate.norm} result is bytes allocated per painted mesh and
+ * should stay near zero.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PaintAllocationBenchmark {
+	@Param({BenchmarkFixtures.CUT_ROUND_COLUMN, BenchmarkFixtures.ICOSAHEDRAL_SPHERE, BenchmarkFixtures.CAPPED_ROUND_COLUMN})
+	public String primitive;
+
+	private MutablePrimitiveState modelState;
+	private ReadOnlyMesh mesh;
+	private final MutableMesh work = XmMeshes.claimMutable();
+
+	@Setup(Level.Trial)
+	public void setup() {
+		modelState = BenchmarkFixtures.primitiveState(primitive);
+
+		final XmPaint paint = XmPaintImpl.finder()
+				.textureDepth(3)
+				.texture(0, CoreTextures.TILE_COBBLE)
+				.texture(1, CoreTextures.TILE_COBBLE)
+				.texture(2, CoreTextures.TILE_COBBLE)
+				.find();
+
+		modelState.paintAll(paint);
+		mesh = BenchmarkFixtures.meshOf(modelState);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		mesh.release();
+		modelState.release();
+	}
+
+	@Benchmark
+	public int paint() {
+		final Polygon reader = mesh.threadSafeReader();
+		final MutablePolygon editor = work.editor();
+		int result = 0;
+
+		if (reader.origin()) {
+			do {
+				PaintManager.paintPolygon(reader, modelState, work);
+
+				if (editor.origin()) {
+					do {
+						++result;
+					} while (editor.next());
+				}
+			} while (reader.next());
+		}
+
+		reader.release();
+		return result;
+	}
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.painter;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.fabricmc.fabric.api.renderer.v1.mesh.QuadEmitter;
+
+import grondag.xm.api.mesh.MutableMesh;
+import grondag.xm.api.mesh.ReadOnlyMesh;
+import grondag.xm.api.mesh.XmMeshes;
+import grondag.xm.api.mesh.polygon.MutablePolygon;
+import grondag.xm.api.mesh.polygon.Polygon;
+import grondag.xm.api.modelstate.primitive.MutablePrimitiveState;
+import grondag.xm.bench.BenchmarkFixtures;
+
+/**
+ * Painting of primitive meshes as done by {@link PaintManager}, emitting to a stub quad emitter.
+ * <p>
+ *
+ * Sprite baking is excluded because it needs the block atlas. The emitter is a dynamic proxy
+ * that only counts emitted quads - its call overhead is included in results but is constant
+ * between runs, which is sufficient for tracking regressions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PaintBenchmark {
+	@Param({BenchmarkFixtures.CUT_ROUND_COLUMN, BenchmarkFixtures.ICOSAHEDRAL_SPHERE, BenchmarkFixtures.STACKED_PLATES})
+	public String primitive;
+
+	private MutablePrimitiveState modelState;
+	private ReadOnlyMesh mesh;
+	private final MutableMesh work = XmMeshes.claimMutable();
+	private final int[] emitCount = new int[1];
+
+	private final QuadEmitter emitter = (QuadEmitter) Proxy.newProxyInstance(QuadEmitter.class.getClassLoader(), new Class<?>[] {QuadEmitter.class}, (proxy, method, args) -> {
+		if (method.getName().equals("emit")) {
+			++emitCount[0];
+		}
+
+		return method.getReturnType().isInstance(proxy) ? proxy : null;
+	});
+
+	@Setup(Level.Trial)
+	public void setup() {
+		modelState = BenchmarkFixtures.primitiveState(primitive);
+		mesh = BenchmarkFixtures.meshOf(modelState);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		mesh.release();
+		modelState.release();
+	}
+
+	@Benchmark
+	public int paint() {
+		final Polygon reader = mesh.threadSafeReader();
+		final MutablePolygon editor = work.editor();
+		emitCount[0] = 0;
+
+		if (reader.origin()) {
+			do {
+				PaintManager.paintPolygon(reader, modelState, work);
+				editor.origin();
+
+				do {
+					if (!editor.spriteName(0).isEmpty()) {
+						final int layerCount = editor.spriteName(1).isEmpty() ? 1 : editor.spriteName(2).isEmpty() ? 2 : 3;
+						editor.spriteDepth(layerCount);
+
+						for (int i = 0; i < layerCount; ++i) {
+							PaintManager.outputIndigoQuad(editor, emitter, i);
+						}
+					}
+				} while (editor.next());
+			} while (reader.next());
+		}
+
+		reader.release();
+		return emitCount[0];
+	}
+}
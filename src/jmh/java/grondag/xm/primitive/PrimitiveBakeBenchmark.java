@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.primitive;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import grondag.xm.api.modelstate.primitive.MutablePrimitiveState;
+import grondag.xm.api.primitive.ModelPrimitive;
+import grondag.xm.bench.BenchmarkFixtures;
+
+/**
+ * Bake-time mesh generation for primitives built with CSG. The primitive
+ * mesh cache is invalidated before each invocation so every call runs
+ * the primitive's polygon factory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PrimitiveBakeBenchmark {
+	@Param({
+		BenchmarkFixtures.CUT_ROUND_COLUMN,
+		BenchmarkFixtures.CAPPED_ROUND_COLUMN,
+		BenchmarkFixtures.CAPPED_SQUARE_INSET_COLUMN,
+		BenchmarkFixtures.ROUNDED_COLUMN,
+		BenchmarkFixtures.INSET_PANEL
+	})
+	public String primitive;
+
+	private MutablePrimitiveState modelState;
+	private ModelPrimitive<?, ?> modelPrimitive;
+	private int count;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		modelState = BenchmarkFixtures.primitiveState(primitive);
+		modelPrimitive = modelState.primitive();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		modelState.release();
+	}
+
+	@Benchmark
+	public int bake() {
+		modelPrimitive.invalidateCache();
+		count = 0;
+		modelState.emitPolygons(p -> ++count);
+		return count;
+	}
+}
@@ -17,7 +17,17 @@
 package grondag.xm;
 
 import static grondag.xm.XmConfig.DEFAULTS;
+import static grondag.xm.XmConfig.asyncBake;
+import static grondag.xm.XmConfig.bakeThreads;
+import static grondag.xm.XmConfig.csgMeshBacking;
 import static grondag.xm.XmConfig.debugCollisionBoxes;
+import static grondag.xm.XmConfig.modelCacheMegabytes;
+import static grondag.xm.XmConfig.mutableMeshBacking;
+import static grondag.xm.XmConfig.persistCollisionShapes;
+import static grondag.xm.XmConfig.prebakeModels;
+import static grondag.xm.XmConfig.prebakeRecentLimit;
+import static grondag.xm.XmConfig.readOnlyMeshBacking;
+import static grondag.xm.XmConfig.writableMeshBacking;
 
 import java.util.Arrays;
 import java.util.stream.Collectors;
@@ -35,6 +45,9 @@ import net.minecraft.text.TranslatableText;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
 
+import grondag.xm.dispatch.XmDispatcher;
+import grondag.xm.mesh.MeshStreamBacking;
+
 @Environment(EnvType.CLIENT)
 public class ConfigScreen {
 	private static ConfigEntryBuilder ENTRY_BUILDER = ConfigEntryBuilder.create();
@@ -47,6 +60,82 @@ public class ConfigScreen {
 
 		final ConfigBuilder builder = ConfigBuilder.create().setParentScreen(parent).setTitle(new TranslatableText("config.xm.title")).setSavingRunnable(ConfigScreen::saveUserInput);
 
+		// PERFORMANCE
+		final ConfigCategory performance = builder.getOrCreateCategory(new TranslatableText("config.xm.category.performance"));
+
+		performance.addEntry(ENTRY_BUILDER.startBooleanToggle(new TranslatableText("config.xm.value.persist_collision_shapes"), persistCollisionShapes)
+				.setDefaultValue(DEFAULTS.persistCollisionShapes)
+				.setSaveConsumer(b -> persistCollisionShapes = b)
+				.setTooltip(parse("config.xm.help.persist_collision_shapes"))
+				.build());
+
+		performance.addEntry(ENTRY_BUILDER.startIntField(new TranslatableText("config.xm.value.model_cache_megabytes"), modelCacheMegabytes)
+				.setDefaultValue(DEFAULTS.modelCacheMegabytes)
+				.setMin(16)
+				.setMax(8192)
+				.setSaveConsumer(i -> modelCacheMegabytes = i)
+				.setTooltip(parse("config.xm.help.model_cache_megabytes"))
+				.build());
+
+		performance.addEntry(ENTRY_BUILDER.startBooleanToggle(new TranslatableText("config.xm.value.prebake_models"), prebakeModels)
+				.setDefaultValue(DEFAULTS.prebakeModels)
+				.setSaveConsumer(b -> prebakeModels = b)
+				.setTooltip(parse("config.xm.help.prebake_models"))
+				.build());
+
+		performance.addEntry(ENTRY_BUILDER.startIntField(new TranslatableText("config.xm.value.prebake_recent_limit"), prebakeRecentLimit)
+				.setDefaultValue(DEFAULTS.prebakeRecentLimit)
+				.setMin(0)
+				.setMax(65536)
+				.setSaveConsumer(i -> prebakeRecentLimit = i)
+				.setTooltip(parse("config.xm.help.prebake_recent_limit"))
+				.build());
+
+		performance.addEntry(ENTRY_BUILDER.startBooleanToggle(new TranslatableText("config.xm.value.async_bake"), asyncBake)
+				.setDefaultValue(DEFAULTS.asyncBake)
+				.setSaveConsumer(b -> asyncBake = b)
+				.setTooltip(parse("config.xm.help.async_bake"))
+				.build());
+
+		performance.addEntry(ENTRY_BUILDER.startIntField(new TranslatableText("config.xm.value.bake_threads"), bakeThreads)
+				.setDefaultValue(DEFAULTS.bakeThreads)
+				.setMin(0)
+				.setMax(64)
+				.setSaveConsumer(i -> bakeThreads = i)
+				.setTooltip(parse("config.xm.help.bake_threads"))
+				.build());
+
+		performance.addEntry(ENTRY_BUILDER.startEnumSelector(new TranslatableText("config.xm.value.writable_mesh_backing"), MeshStreamBacking.class, writableMeshBacking)
+				.setDefaultValue(DEFAULTS.writableMeshBacking)
+				.setSaveConsumer(b -> writableMeshBacking = b)
+				.setTooltip(parse("config.xm.help.writable_mesh_backing"))
+				.build());
+
+		performance.addEntry(ENTRY_BUILDER.startEnumSelector(new TranslatableText("config.xm.value.mutable_mesh_backing"), MeshStreamBacking.class, mutableMeshBacking)
+				.setDefaultValue(DEFAULTS.mutableMeshBacking)
+				.setSaveConsumer(b -> mutableMeshBacking = b)
+				.setTooltip(parse("config.xm.help.mutable_mesh_backing"))
+				.build());
+
+		performance.addEntry(ENTRY_BUILDER.startEnumSelector(new TranslatableText("config.xm.value.csg_mesh_backing"), MeshStreamBacking.class, csgMeshBacking)
+				.setDefaultValue(DEFAULTS.csgMeshBacking)
+				.setSaveConsumer(b -> csgMeshBacking = b)
+				.setTooltip(parse("config.xm.help.csg_mesh_backing"))
+				.build());
+
+		performance.addEntry(ENTRY_BUILDER.startEnumSelector(new TranslatableText("config.xm.value.read_only_mesh_backing"), MeshStreamBacking.class, readOnlyMeshBacking)
+				.setDefaultValue(DEFAULTS.readOnlyMeshBacking)
+				.setSaveConsumer(b -> readOnlyMeshBacking = b)
+				.setTooltip(parse("config.xm.help.read_only_mesh_backing"))
+				.build());
+
+		final XmDispatcher cache = XmDispatcher.INSTANCE;
+
+		performance.addEntry(ENTRY_BUILDER.startTextDescription(new TranslatableText("config.xm.value.model_cache_stats",
+				cache.size(), cache.weightedBytes() / 1024 / 1024, cache.maximumBytes() / 1024 / 1024,
+				String.format("%.1f", cache.hitRate() * 100), cache.hitCount(), cache.missCount(),
+				cache.evictionCount(), cache.evictedBytes() / 1024 / 1024)).build());
+
 		// DEBUG
 		final ConfigCategory blocks = builder.getOrCreateCategory(new TranslatableText("config.xm.category.debug"));
 
@@ -61,5 +150,6 @@ public class ConfigScreen {
 
 	private static void saveUserInput() {
 		XmConfig.saveConfig();
+		XmDispatcher.INSTANCE.maximumBytes(modelCacheMegabytes * 1024L * 1024L);
 	}
 }
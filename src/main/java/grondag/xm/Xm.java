@@ -23,11 +23,20 @@ import org.apiguardian.api.API;
 
 import net.minecraft.util.Identifier;
 
+import net.minecraft.util.WorldSavePath;
+
 import net.fabricmc.api.ModInitializer;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerChunkEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
 
 import grondag.xm.api.paint.VertexProcessorRegistry;
 import grondag.xm.api.paint.VertexProcessors;
+import grondag.xm.collision.CollisionDispatcherImpl;
+import grondag.xm.dispatch.XmWorldAccess;
 import grondag.xm.network.Packets;
+import grondag.xm.virtual.ExcavationRenderTracker;
 
 @API(status = INTERNAL)
 public class Xm implements ModInitializer {
@@ -35,8 +44,26 @@ public class Xm implements ModInitializer {
 	public void onInitialize() {
 		XmConfig.init();
 		Packets.initializeCommon();
+		XmCommands.init();
 
 		VertexProcessorRegistry.INSTANCE.add(Xm.id("variation"), VertexProcessors.SPECIES_VARIATION);
+
+		ServerLifecycleEvents.SERVER_STARTED.register(server -> {
+			if (XmConfig.persistCollisionShapes) {
+				CollisionDispatcherImpl.openStore(server.getSavePath(WorldSavePath.ROOT).resolve("data").resolve("exotic-matter-collision.bin"));
+			}
+		});
+
+		ServerLifecycleEvents.SERVER_STOPPING.register(server -> {
+			CollisionDispatcherImpl.closeStore();
+			ExcavationRenderTracker.INSTANCE.clear();
+		});
+
+		ServerTickEvents.END_SERVER_TICK.register(ExcavationRenderTracker.INSTANCE::onServerTick);
+		ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> ExcavationRenderTracker.INSTANCE.stopPlayerTracking(handler.player));
+
+		ServerChunkEvents.CHUNK_LOAD.register((world, chunk) -> ((XmWorldAccess) world).xm_shapeCache().onChunkChanged(chunk.getPos()));
+		ServerChunkEvents.CHUNK_UNLOAD.register((world, chunk) -> ((XmWorldAccess) world).xm_shapeCache().onChunkChanged(chunk.getPos()));
 	}
 
 	public static Logger LOG = LogManager.getLogger("Exotic Matter");
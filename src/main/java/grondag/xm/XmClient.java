@@ -18,11 +18,13 @@ package grondag.xm;
 
 import static org.apiguardian.api.API.Status.INTERNAL;
 
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import org.apiguardian.api.API;
 
 import net.minecraft.block.BlockState;
 import net.minecraft.client.render.RenderLayer;
 import net.minecraft.client.render.RenderLayers;
+import net.minecraft.client.render.chunk.ChunkRendererRegion;
 import net.minecraft.client.world.ClientWorld;
 import net.minecraft.resource.ResourceType;
 import net.minecraft.util.math.BlockPos;
@@ -30,7 +32,9 @@ import net.minecraft.util.math.Vec3d;
 
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.fabric.api.blockrenderlayer.v1.BlockRenderLayerMap;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientChunkEvents;
 import net.fabricmc.fabric.api.client.model.ModelLoadingRegistry;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
 import net.fabricmc.fabric.api.client.rendering.v1.InvalidateRenderStateCallback;
 import net.fabricmc.fabric.api.client.rendering.v1.WorldRenderEvents;
 import net.fabricmc.fabric.api.resource.ResourceManagerHelper;
@@ -38,14 +42,21 @@ import net.fabricmc.fabric.api.resource.ResourceManagerHelper;
 import grondag.xm.api.block.XmBlockState;
 import grondag.xm.api.modelstate.ModelState;
 import grondag.xm.collision.CollisionDispatcherImpl;
+import grondag.xm.connect.SectionJoinCache;
+import grondag.xm.dispatch.ModelPrebaker;
+import grondag.xm.dispatch.SnapshotViews;
 import grondag.xm.dispatch.XmDispatcher;
 import grondag.xm.dispatch.XmVariantProvider;
+import grondag.xm.dispatch.XmWorldAccess;
 import grondag.xm.mesh.helper.PolyTransformImpl;
 import grondag.xm.modelstate.AbstractPrimitiveModelState;
 import grondag.xm.network.Packets;
 import grondag.xm.paint.XmPaintRegistryImpl;
+import grondag.xm.painter.PaintedMesh;
 import grondag.xm.primitive.ModelPrimitiveRegistryImpl;
 import grondag.xm.render.OutlineRenderer;
+import grondag.xm.terrain.TerrainHeightField;
+import grondag.xm.texture.SpriteIndex;
 import grondag.xm.texture.XmTexturesImpl;
 
 @API(status = INTERNAL)
@@ -55,8 +66,12 @@ public class XmClient implements ClientModInitializer {
 		XmTexturesImpl.init();
 		ModelLoadingRegistry.INSTANCE.registerVariantProvider(r -> new XmVariantProvider());
 		InvalidateRenderStateCallback.EVENT.register(XmClient::invalidate);
+		ClientPlayConnectionEvents.DISCONNECT.register((handler, client) -> releaseThreadCaches());
 		Packets.initializeClient();
 		AbstractPrimitiveModelState.useClientHandler();
+		SnapshotViews.predicate(v -> v instanceof ChunkRendererRegion);
+		ClientChunkEvents.CHUNK_LOAD.register((world, chunk) -> ((XmWorldAccess) world).xm_shapeCache().onChunkChanged(chunk.getPos()));
+		ClientChunkEvents.CHUNK_UNLOAD.register((world, chunk) -> ((XmWorldAccess) world).xm_shapeCache().onChunkChanged(chunk.getPos()));
 		ResourceManagerHelper.get(ResourceType.CLIENT_RESOURCES).registerReloadListener(XmPaintRegistryImpl.INSTANCE);
 
 		SidedHelper.RENDER_LAYER_REMAPPER  = (b, s) -> BlockRenderLayerMap.INSTANCE.putBlock(b, RenderLayers.getBlockLayer(s));
@@ -91,9 +106,20 @@ public class XmClient implements ClientModInitializer {
 	}
 
 	public static void invalidate() {
+		final ObjectArrayList<ModelState> recent = ModelPrebaker.captureRecent();
 		PolyTransformImpl.invalidateCache();
+		SpriteIndex.invalidate();
+		PaintedMesh.clear();
 		XmDispatcher.INSTANCE.clear();
 		CollisionDispatcherImpl.clear();
 		ModelPrimitiveRegistryImpl.INSTANCE.invalidateCache();
+		ModelPrebaker.prebake(recent);
+		releaseThreadCaches();
+	}
+
+	/** Releases render regions and world data retained by chunk builder threads. */
+	private static void releaseThreadCaches() {
+		TerrainHeightField.releaseThreadFields();
+		SectionJoinCache.releaseThreadCaches();
 	}
 }
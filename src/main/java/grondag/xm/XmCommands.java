@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm;
+
+import static net.minecraft.server.command.CommandManager.literal;
+import static org.apiguardian.api.API.Status.INTERNAL;
+
+import com.mojang.brigadier.context.CommandContext;
+import org.apiguardian.api.API;
+
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.TranslatableText;
+
+import net.fabricmc.api.EnvType;
+import net.fabricmc.fabric.api.command.v1.CommandRegistrationCallback;
+import net.fabricmc.loader.api.FabricLoader;
+
+import grondag.xm.collision.CollisionDispatcherImpl;
+import grondag.xm.dispatch.XmDispatcher;
+import grondag.xm.mesh.XmMeshesImpl;
+import grondag.xm.primitive.JoinGeometryCache;
+
+/**
+ * Debug commands. Cache statistics for rendering are only meaningful when
+ * the server runs in the same process as the client.
+ */
+@API(status = INTERNAL)
+public class XmCommands {
+	static void init() {
+		CommandRegistrationCallback.EVENT.register((dispatcher, dedicated) -> {
+			dispatcher.register(literal("xm")
+					.requires(source -> source.hasPermissionLevel(2))
+					.then(literal("stats").executes(XmCommands::stats)));
+		});
+	}
+
+	private static int stats(CommandContext<ServerCommandSource> context) {
+		final ServerCommandSource source = context.getSource();
+
+		if (FabricLoader.getInstance().getEnvironmentType() == EnvType.CLIENT) {
+			final XmDispatcher cache = XmDispatcher.INSTANCE;
+
+			source.sendFeedback(new TranslatableText("command.xm.model_cache_stats",
+					cache.size(), cache.weightedBytes() / 1024 / 1024, cache.maximumBytes() / 1024 / 1024,
+					String.format("%.1f", cache.hitRate() * 100), cache.hitCount(), cache.missCount(),
+					cache.evictionCount(), cache.evictedBytes() / 1024 / 1024), false);
+		} else {
+			source.sendFeedback(new TranslatableText("command.xm.client_only"), false);
+		}
+
+		source.sendFeedback(new TranslatableText("command.xm.collision_cache_stats", CollisionDispatcherImpl.persistedCount()), false);
+		source.sendFeedback(new TranslatableText("command.xm.join_geometry_cache_stats",
+				JoinGeometryCache.size(), String.format("%.1f", JoinGeometryCache.hitRate() * 100),
+				JoinGeometryCache.hitCount(), JoinGeometryCache.missCount(), JoinGeometryCache.evictionCount()), false);
+
+		source.sendFeedback(new TranslatableText("command.xm.mesh_pool_stats",
+				String.format("%.1f", XmMeshesImpl.poolHitRate() * 100), XmMeshesImpl.poolHitCount(),
+				XmMeshesImpl.poolMissCount(), XmMeshesImpl.poolDiscardCount()), false);
+
+		return 1;
+	}
+}
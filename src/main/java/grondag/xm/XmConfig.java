@@ -29,9 +29,41 @@ import org.apiguardian.api.API;
 
 import net.fabricmc.loader.api.FabricLoader;
 
+import grondag.xm.mesh.MeshStreamBacking;
+
 @API(status = INTERNAL)
 public class XmConfig {
 	public static class ConfigData {
+		// PERFORMANCE
+		@Comment("Save collision shapes with the world so they don't have to be regenerated after restart.")
+		public boolean persistCollisionShapes = false;
+
+		@Comment("Approximate memory limit in megabytes for cached model meshes. Less frequently used models are evicted when exceeded.")
+		public int modelCacheMegabytes = 256;
+
+		@Comment("Bake models for block default states in parallel after resources are reloaded.")
+		public boolean prebakeModels = true;
+
+		@Comment("Maximum number of recently used models to bake again after resources are reloaded. Zero disables.")
+		public int prebakeRecentLimit = 4096;
+
+		@Comment("Bake models needed by chunk rebuilds on background threads instead of blocking the rebuild. Blocks are not drawn until their model is ready.")
+		public boolean asyncBake = false;
+
+		@Comment("Number of threads for background model baking. Zero uses one less than the number of processors. Changes apply after restart.")
+		public int bakeThreads = 0;
+
+		@Comment("Storage for meshes being built. PAGED, CONTIGUOUS (single heap buffer) or OFF_HEAP (single direct buffer).")
+		public MeshStreamBacking writableMeshBacking = MeshStreamBacking.PAGED;
+
+		@Comment("Storage for meshes being modified. PAGED, CONTIGUOUS (single heap buffer) or OFF_HEAP (single direct buffer).")
+		public MeshStreamBacking mutableMeshBacking = MeshStreamBacking.PAGED;
+
+		@Comment("Storage for CSG operands and results. PAGED, CONTIGUOUS (single heap buffer) or OFF_HEAP (single direct buffer).")
+		public MeshStreamBacking csgMeshBacking = MeshStreamBacking.PAGED;
+
+		@Comment("Storage for finished meshes. PAGED, CONTIGUOUS (single heap buffer) or OFF_HEAP (single direct buffer).")
+		public MeshStreamBacking readOnlyMeshBacking = MeshStreamBacking.PAGED;
 
 		// DEBUG
 		@Comment("Draw detailed collision boxes normally rendered by vanilla. Can be ugly - useful for debugging.")
@@ -44,6 +76,18 @@ public class XmConfig {
 	private static final Jankson JANKSON = Jankson.builder().build();
 	private static File configFile;
 
+	// PERFORMANCE
+	public static boolean persistCollisionShapes = DEFAULTS.persistCollisionShapes;
+	public static int modelCacheMegabytes = DEFAULTS.modelCacheMegabytes;
+	public static boolean prebakeModels = DEFAULTS.prebakeModels;
+	public static int prebakeRecentLimit = DEFAULTS.prebakeRecentLimit;
+	public static boolean asyncBake = DEFAULTS.asyncBake;
+	public static int bakeThreads = DEFAULTS.bakeThreads;
+	public static MeshStreamBacking writableMeshBacking = DEFAULTS.writableMeshBacking;
+	public static MeshStreamBacking mutableMeshBacking = DEFAULTS.mutableMeshBacking;
+	public static MeshStreamBacking csgMeshBacking = DEFAULTS.csgMeshBacking;
+	public static MeshStreamBacking readOnlyMeshBacking = DEFAULTS.readOnlyMeshBacking;
+
 	// DEBUG
 	public static boolean debugCollisionBoxes = DEFAULTS.debugCollisionBoxes;
 
@@ -75,6 +119,18 @@ public class XmConfig {
 			Xm.LOG.error("Unable to load config. Using default values.");
 		}
 
+		// PERFORMANCE
+		persistCollisionShapes = config.persistCollisionShapes;
+		modelCacheMegabytes = config.modelCacheMegabytes;
+		prebakeModels = config.prebakeModels;
+		prebakeRecentLimit = config.prebakeRecentLimit;
+		asyncBake = config.asyncBake;
+		bakeThreads = config.bakeThreads;
+		writableMeshBacking = config.writableMeshBacking == null ? DEFAULTS.writableMeshBacking : config.writableMeshBacking;
+		mutableMeshBacking = config.mutableMeshBacking == null ? DEFAULTS.mutableMeshBacking : config.mutableMeshBacking;
+		csgMeshBacking = config.csgMeshBacking == null ? DEFAULTS.csgMeshBacking : config.csgMeshBacking;
+		readOnlyMeshBacking = config.readOnlyMeshBacking == null ? DEFAULTS.readOnlyMeshBacking : config.readOnlyMeshBacking;
+
 		// DEBUG
 		debugCollisionBoxes = config.debugCollisionBoxes;
 	}
@@ -82,6 +138,18 @@ public class XmConfig {
 	public static void saveConfig() {
 		final ConfigData config = new ConfigData();
 
+		// PERFORMANCE
+		config.persistCollisionShapes = persistCollisionShapes;
+		config.modelCacheMegabytes = modelCacheMegabytes;
+		config.prebakeModels = prebakeModels;
+		config.prebakeRecentLimit = prebakeRecentLimit;
+		config.asyncBake = asyncBake;
+		config.bakeThreads = bakeThreads;
+		config.writableMeshBacking = writableMeshBacking;
+		config.mutableMeshBacking = mutableMeshBacking;
+		config.csgMeshBacking = csgMeshBacking;
+		config.readOnlyMeshBacking = readOnlyMeshBacking;
+
 		// DEBUG
 		config.debugCollisionBoxes = debugCollisionBoxes;
 
@@ -64,7 +64,6 @@ import grondag.fermion.orientation.api.FaceEdge;
 import grondag.fermion.orientation.api.HorizontalEdge;
 import grondag.fermion.world.WorldHelper;
 import grondag.xm.SidedHelper;
-import grondag.xm.api.block.XmBlockState;
 import grondag.xm.api.block.XmProperties;
 import grondag.xm.api.collision.CollisionDispatcher;
 import grondag.xm.api.modelstate.primitive.SimplePrimitiveStateMutator;
@@ -105,7 +104,7 @@ public class StairLike extends Block implements Waterloggable {
 
 	@Override
 	public VoxelShape getOutlineShape(BlockState blockState, BlockView blockView, BlockPos pos, ShapeContext entityContext) {
-		return CollisionDispatcher.shapeFor(XmBlockState.modelState(blockState, blockView, pos, true));
+		return CollisionDispatcher.shapeFor(blockState, blockView, pos);
 	}
 
 	@Override
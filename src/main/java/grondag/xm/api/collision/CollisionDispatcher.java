@@ -19,7 +19,10 @@ import static org.apiguardian.api.API.Status.EXPERIMENTAL;
 
 import org.apiguardian.api.API;
 
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.shape.VoxelShape;
+import net.minecraft.world.BlockView;
 
 import grondag.xm.api.modelstate.ModelState;
 import grondag.xm.collision.CollisionDispatcherImpl;
@@ -31,4 +34,12 @@ public class CollisionDispatcher {
 	public static VoxelShape shapeFor(ModelState modelState) {
 		return CollisionDispatcherImpl.shapeFor(modelState);
 	}
+
+	/**
+	 * Preferred for block shape queries. Shapes are retained on the block state
+	 * when geometry does not depend on world, and per position otherwise.
+	 */
+	public static VoxelShape shapeFor(BlockState blockState, BlockView blockView, BlockPos pos) {
+		return CollisionDispatcherImpl.shapeFor(blockState, blockView, pos);
+	}
 }
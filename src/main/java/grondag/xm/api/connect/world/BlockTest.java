@@ -43,7 +43,26 @@ import grondag.xm.api.modelstate.ModelState;
 public interface BlockTest<T extends ModelState> {
 	boolean apply(BlockTestContext<T> context);
 
-	@SuppressWarnings("rawtypes") BlockTest SAME_BLOCK = ctx -> ctx.fromBlockState().getBlock() == ctx.toBlockState().getBlock();
+	/**
+	 * Override to return true if the result of testing A to B is always the same as
+	 * testing B to A. When true, results can be shared between neighboring blocks
+	 * that use the same test, so that each pair is tested once during chunk meshing.
+	 */
+	default boolean isSymmetric() {
+		return false;
+	}
+
+	@SuppressWarnings("rawtypes") BlockTest SAME_BLOCK = new BlockTest() {
+		@Override
+		public boolean apply(BlockTestContext ctx) {
+			return ctx.fromBlockState().getBlock() == ctx.toBlockState().getBlock();
+		}
+
+		@Override
+		public boolean isSymmetric() {
+			return true;
+		}
+	};
 
 	/** True when blocks are same instance */
 	@SuppressWarnings("unchecked")
@@ -51,8 +51,6 @@ import static org.apiguardian.api.API.Status.EXPERIMENTAL;
 
 import org.apiguardian.api.API;
 
-import grondag.xm.api.mesh.polygon.Polygon;
-
 /**
  * Access point for CSG operations.<br>
  * <em>Heavily</em> modified from original source.<br>
@@ -99,12 +97,8 @@ public abstract class Csg {
 		a.complete();
 		b.complete();
 
-		//PERF: look at restoring - problem with former implementation
-		// is that it happens without face recombination
-		//        // A outside of B bounds can be passed directly to output
-		//        if (outputDisjointA(a, b, output))
-		//            // if A is empty there is nothing to subtract from
-		//            return;
+		// Polys outside the bounds of the other mesh are resolved without
+		// splitting during clip and still go through face recombination.
 
 		// add portions of A within B bounds but not inside B mesh
 		a.invert();
@@ -213,17 +207,8 @@ public abstract class Csg {
 		a.complete();
 		b.complete();
 
-		//PERF: look at restoring - problem with former implementation
-		// is that it happens without face recombination
-
-		// A outside of B bounds can be passed directly to output
-		//        if (outputDisjointA(a, b, output)) {
-		//            // A and B bounds don't overlap, so output all of original b
-		//            b.outputRecombinedQuads(output);
-		//        } else {
-		// some potential overlap
-		// add union of the overlapping bits,
-		// which will include any parts of B that need to be included
+		// Polys outside the bounds of the other mesh are resolved without
+		// splitting during clip and still go through face recombination.
 
 		a.clipTo(b);
 		b.clipTo(a);
@@ -233,131 +218,5 @@ public abstract class Csg {
 
 		a.outputRecombinedQuads(output);
 		b.outputRecombinedQuads(output);
-		//        }
-	}
-
-	/**
-	 * Polygons in A that do not intersect with B are sent to output and then
-	 * deleted. Returns true if A is empty, either because it was empty at the
-	 * start, or because all A polygons have been deleted.
-	 */
-	@SuppressWarnings("unused")
-	private static boolean outputDisjointA(CsgMesh a, CsgMesh b, WritableMesh output) {
-		final Polygon aReader = a.reader();
-		if (aReader.origin()) {
-			if (b.reader().origin())
-				// nominal case
-				return outputDisjointAInner(a, b, output);
-			else {
-				// B is empty, A is not, therefore output all of A and return false
-
-				do {
-					output.appendCopy(aReader);
-					aReader.delete();
-				} while (aReader.next());
-				return false;
-			}
-		} else
-			// A already empty
-			return false;
-	}
-
-	/**
-	 * Handles nominal case when both A and B are non-empty. Assumes A and B are at
-	 * origin.
-	 */
-	private static boolean outputDisjointAInner(CsgMesh a, CsgMesh b, WritableMesh output) {
-		boolean aIsEmpty = true;
-
-		// compute B mesh bounds
-		float bMinX = Float.MAX_VALUE;
-		float bMinY = Float.MAX_VALUE;
-		float bMinZ = Float.MAX_VALUE;
-		float bMaxX = Float.MIN_VALUE;
-		float bMaxY = Float.MIN_VALUE;
-		float bMaxZ = Float.MIN_VALUE;
-
-		// scoping
-		{
-			final Polygon bReader = b.reader();
-			do {
-				final int vCount = bReader.vertexCount();
-				for (int i = 1; i < vCount; i++) {
-					final float x = bReader.x(i);
-					if (x < bMinX) {
-						bMinX = x;
-					} else if (x > bMaxX) {
-						bMaxX = x;
-					}
-
-					final float y = bReader.y(i);
-					if (y < bMinY) {
-						bMinY = y;
-					} else if (y > bMaxY) {
-						bMaxY = y;
-					}
-
-					final float z = bReader.z(i);
-					if (z < bMinZ) {
-						bMinZ = z;
-					} else if (z > bMaxZ) {
-						bMaxZ = z;
-					}
-				}
-			} while (bReader.next());
-		}
-
-		final Polygon aReader = a.reader();
-		do {
-			// Note we don't do a point-by-point test here
-			// and instead compute a bounding box for the polygon.
-			// This correctly handles case when all poly points
-			// are outside the mesh box but plane of poly intersects.
-			// Considered using SAT tests developed for collisions boxes
-			// but those require tris and re-packing of vertex data. Not worth.
-
-			float pMinX = aReader.x(0);
-			float pMinY = aReader.y(0);
-			float pMinZ = aReader.z(0);
-			float pMaxX = pMinX;
-			float pMaxY = pMinY;
-			float pMaxZ = pMinZ;
-
-			final int vCount = aReader.vertexCount();
-			for (int i = 1; i < vCount; i++) {
-				final float x = aReader.x(i);
-				if (x < pMinX) {
-					pMinX = x;
-				} else if (x > pMaxX) {
-					pMaxX = x;
-				}
-
-				final float y = aReader.y(i);
-				if (y < pMinY) {
-					pMinY = y;
-				} else if (y > pMaxY) {
-					pMaxY = y;
-				}
-
-				final float z = aReader.z(i);
-				if (z < pMinZ) {
-					pMinZ = z;
-				} else if (z > pMaxZ) {
-					pMaxZ = z;
-				}
-			}
-
-			// For CSG operations we consider a point on the edge to be intersecting.
-			if (bMinX <= pMaxX && bMaxX >= pMinX && bMinY <= pMaxY && bMaxY >= pMinY && bMinZ <= pMaxZ && bMaxZ >= pMinZ) {
-				// potentially intersecting
-				aIsEmpty = false;
-			} else {
-				// disjoint
-				output.appendCopy(aReader);
-				aReader.delete();
-			}
-		} while (aReader.next());
-
-		return aIsEmpty;
 	}
 }
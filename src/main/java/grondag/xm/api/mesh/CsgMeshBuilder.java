@@ -43,6 +43,25 @@ public interface CsgMeshBuilder {
 
 	void difference();
 
+	/**
+	 * Starts a new operand of a batched boolean operation and returns the mesh
+	 * that receives its polygons. The batch result is the union of all union
+	 * operands less the union of all difference operands.
+	 * <p>
+	 *
+	 * The batch is resolved by {@link #build()} or {@link #buildMutable()}. Each
+	 * operand's BSP tree is built once and quads are recombined once at the end,
+	 * instead of once per pairwise operation. Output of any earlier pairwise
+	 * operations becomes the first union operand. Pairwise operations are not
+	 * allowed while batch operands are pending.
+	 */
+	CsgMesh unionOperand();
+
+	/**
+	 * Like {@link #unionOperand()} but the operand is subtracted from the batch result.
+	 */
+	CsgMesh differenceOperand();
+
 	static CsgMeshBuilder threadLocal() {
 		return CsgMeshBuilderImpl.threadLocal();
 	}
@@ -38,4 +38,14 @@ public interface MutableMesh extends WritableMesh {
 	 * Moves editor to given address and returns the editor cursor for concision.
 	 */
 	MutablePolygon editor(int address);
+
+	/**
+	 * Removes deleted polygons in place, moving surviving polygons towards the
+	 * origin without changing their order. Cheaper than copying to a new mesh
+	 * when a pass has split or deleted polygons and the stream will be read again.
+	 * <p>
+	 *
+	 * All addresses obtained before this call, including links, become invalid.
+	 */
+	void removeDeleted();
 }
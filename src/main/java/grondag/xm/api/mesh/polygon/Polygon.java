@@ -332,6 +332,13 @@ public interface Polygon {
 
 	String spriteName(int layerIndex);
 
+	/**
+	 * Interned handle of {@link #spriteName(int)}, 0 if the layer has no texture.
+	 * Handles are small, dense and stable for the session, so they are suitable as array
+	 * indices. Avoids string lookups when the name itself is not needed.
+	 */
+	int spriteHandle(int layerIndex);
+
 	boolean shouldContractUVs(int layerIndex);
 
 	TextureOrientation rotation(int layerIndex);
@@ -32,5 +32,15 @@ import net.minecraft.world.BlockView;
 public interface ModelStateFunction<T extends MutableModelState> {
 	@Nullable T apply(BlockState blockState, @Nullable BlockView world, @Nullable BlockPos pos, boolean refreshFromWorld);
 
+	/**
+	 * True if the geometry of states produced by this function depends only on the
+	 * block state - not on position or neighbors - even when refreshed from world.
+	 * Allows collision and outline shapes to be computed once and retained.
+	 * Conservative default is false.
+	 */
+	default boolean isWorldIndependent() {
+		return false;
+	}
+
 	ModelStateFunction<?> NULL = (s, w, p, r) -> null;
 }
@@ -17,6 +17,7 @@ package grondag.xm.api.primitive.simple;
 
 import static org.apiguardian.api.API.Status.EXPERIMENTAL;
 
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Function;
 
 import org.apiguardian.api.API;
@@ -27,6 +28,7 @@ import grondag.fermion.color.Color;
 import grondag.fermion.orientation.api.OrientationType;
 import grondag.xm.Xm;
 import grondag.xm.api.connect.state.CornerJoinFaceState;
+import grondag.xm.api.connect.state.CornerJoinFaceStates;
 import grondag.xm.api.connect.state.CornerJoinState;
 import grondag.xm.api.connect.state.SimpleJoinState;
 import grondag.xm.api.mesh.CsgMeshBuilder;
@@ -60,32 +62,66 @@ public class FlatPanel {
 
 	private static final float[][] SPECS = ConnectedShapeHelper.panelspec(1f / 8f);
 
+	/** Cut geometry does not depend on lamp state here, so one template per face and join */
+	private static final AtomicReferenceArray<XmMesh> CUT_TEMPLATES = new AtomicReferenceArray<>(6 * CornerJoinFaceStates.COUNT);
+
 	static final Function<PrimitiveState, XmMesh> POLY_FACTORY = modelState -> {
 		final CornerJoinState joins = modelState.cornerJoin();
 
 		if(joins.simpleJoin() == SimpleJoinState.ALL_JOINS)
 			return XmMesh.EMPTY;
 
-		final CsgMeshBuilder csg = CsgMeshBuilder.threadLocal();
-
-		final boolean isLit = modelState.primitive().lampSurface(modelState) != null;
+		// resolve templates first - building one uses the same CSG builder
+		final XmMesh[] cuts = new XmMesh[6];
 
 		for (int i = 0; i < 6; i++) {
 			final Direction face = Direction.byId(i);
-			cutSide(face, csg, joins.faceState(face), isLit);
+			cuts[i] = cutTemplate(face, joins.faceState(face));
+		}
+
+		final CsgMeshBuilder csg = CsgMeshBuilder.threadLocal();
+
+		for (final XmMesh cut : cuts) {
+			if (cut != null) {
+				csg.unionOperand().appendAll(cut);
+			}
 		}
 
-		emitOuter(csg.input(), joins);
-		csg.union();
+		emitOuter(csg.unionOperand(), joins);
 
 		return csg.build();
 	};
 
-	private static void cutSide(Direction face, CsgMeshBuilder csg, CornerJoinFaceState faceJoin, boolean isLit) {
+	/**
+	 * Union of all cuts for one face and join state, built on first use. Cuts of a
+	 * single face can be combined once for all panels, but cuts of different faces
+	 * overlap at edges and are still clipped to each other per panel. Null if the
+	 * face has no cuts.
+	 */
+	private static XmMesh cutTemplate(Direction face, CornerJoinFaceState faceJoin) {
+		if (SPECS[faceJoin.ordinal()] == null) {
+			return null;
+		}
+
+		final int index = face.ordinal() * CornerJoinFaceStates.COUNT + faceJoin.ordinal();
+		XmMesh result = CUT_TEMPLATES.get(index);
 
-		final float[] spec = SPECS[faceJoin.ordinal()];
+		if (result == null) {
+			final CsgMeshBuilder csg = CsgMeshBuilder.threadLocal();
+			cutSide(face, csg, faceJoin);
+			result = csg.build();
+
+			if (!CUT_TEMPLATES.compareAndSet(index, null, result)) {
+				result = CUT_TEMPLATES.get(index);
+			}
+		}
 
-		if(spec == null) return;
+		return result;
+	}
+
+	private static void cutSide(Direction face, CsgMeshBuilder csg, CornerJoinFaceState faceJoin) {
+
+		final float[] spec = SPECS[faceJoin.ordinal()];
 
 		final Direction top = PolyHelper.defaultTopOf(face);
 		final Direction opposite = face.getOpposite();
@@ -115,16 +151,16 @@ public class FlatPanel {
 			writer.setupFaceQuad(face, x0, y0, x1, y1, 0, top);
 			writer.append();
 
-			setupCutSideQuad(writer, x0, INV_DEPTH, x1, 1, y0, PolyHelper.bottomOf(face, top), face, isLit);
-			setupCutSideQuad(writer, 1 - x1, INV_DEPTH, 1 - x0, 1, 1 - y1, top, face, isLit);
+			setupCutSideQuad(writer, x0, INV_DEPTH, x1, 1, y0, PolyHelper.bottomOf(face, top), face);
+			setupCutSideQuad(writer, 1 - x1, INV_DEPTH, 1 - x0, 1, 1 - y1, top, face);
 
-			setupCutSideQuad(writer, 1 - y1, INV_DEPTH, 1 - y0, 1, x0, PolyHelper.leftOf(face, top), face, isLit);
-			setupCutSideQuad(writer, y0, INV_DEPTH, y1, 1, 1 - x1, PolyHelper.rightOf(face, top), face, isLit);
+			setupCutSideQuad(writer, 1 - y1, INV_DEPTH, 1 - y0, 1, x0, PolyHelper.leftOf(face, top), face);
+			setupCutSideQuad(writer, y0, INV_DEPTH, y1, 1, 1 - x1, PolyHelper.rightOf(face, top), face);
 			csg.union();
 		}
 	}
 
-	private static void setupCutSideQuad(MutablePolygon poly, float x0, float y0, float x1, float y1, float depth, Direction face, Direction topFace, boolean isLit) {
+	private static void setupCutSideQuad(MutablePolygon poly, float x0, float y0, float x1, float y1, float depth, Direction face, Direction topFace) {
 
 		poly.surface(SURFACE_INNER);
 
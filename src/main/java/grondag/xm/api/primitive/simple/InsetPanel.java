@@ -17,6 +17,7 @@ package grondag.xm.api.primitive.simple;
 
 import static org.apiguardian.api.API.Status.EXPERIMENTAL;
 
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Function;
 
 import org.apiguardian.api.API;
@@ -28,6 +29,7 @@ import grondag.fermion.color.Color;
 import grondag.fermion.orientation.api.OrientationType;
 import grondag.xm.Xm;
 import grondag.xm.api.connect.state.CornerJoinFaceState;
+import grondag.xm.api.connect.state.CornerJoinFaceStates;
 import grondag.xm.api.connect.state.CornerJoinState;
 import grondag.xm.api.connect.state.SimpleJoinState;
 import grondag.xm.api.mesh.CsgMeshBuilder;
@@ -63,34 +65,68 @@ public class InsetPanel {
 
 	private static final float[][] SPECS = ConnectedShapeHelper.panelspec(DEPTH * 2);
 
+	/** Indexed by face, join and lamp state - lit cuts have glowing sides */
+	private static final AtomicReferenceArray<XmMesh> CUT_TEMPLATES = new AtomicReferenceArray<>(12 * CornerJoinFaceStates.COUNT);
+
 	static final Function<PrimitiveState, XmMesh> POLY_FACTORY = modelState -> {
 		final CornerJoinState joins = modelState.cornerJoin();
 
 		if(joins.simpleJoin() == SimpleJoinState.ALL_JOINS)
 			return XmMesh.EMPTY;
 
-		final CsgMeshBuilder csg = CsgMeshBuilder.threadLocal();
-		emitOuter(csg.input(), joins);
-
-		csg.union();
-
 		final boolean isLit = modelState.primitive().lampSurface(modelState) != null;
 
+		// resolve templates first - building one uses the same CSG builder
+		final XmMesh[] cuts = new XmMesh[6];
+
 		for (int i = 0; i < 6; i++) {
 			final Direction face = Direction.byId(i);
-			cutSide(face, csg, joins.faceState(face), isLit);
+			cuts[i] = cutTemplate(face, joins.faceState(face), isLit);
+		}
+
+		final CsgMeshBuilder csg = CsgMeshBuilder.threadLocal();
+		emitOuter(csg.unionOperand(), joins);
+
+		for (final XmMesh cut : cuts) {
+			if (cut != null) {
+				csg.differenceOperand().appendAll(cut);
+			}
 		}
 
 		return csg.build();
 
 	};
 
+	/**
+	 * Union of all cuts for one face, join state and lamp state, built on first use.
+	 * Subtracting the union is equivalent to subtracting each cut in turn, so each face
+	 * is one operand instead of one per cut. Null if the face has no cuts.
+	 */
+	private static XmMesh cutTemplate(Direction face, CornerJoinFaceState faceJoin, boolean isLit) {
+		if (SPECS[faceJoin.ordinal()] == null) {
+			return null;
+		}
+
+		final int index = ((face.ordinal() * CornerJoinFaceStates.COUNT + faceJoin.ordinal()) << 1) | (isLit ? 1 : 0);
+		XmMesh result = CUT_TEMPLATES.get(index);
+
+		if (result == null) {
+			final CsgMeshBuilder csg = CsgMeshBuilder.threadLocal();
+			cutSide(face, csg, faceJoin, isLit);
+			result = csg.build();
+
+			if (!CUT_TEMPLATES.compareAndSet(index, null, result)) {
+				result = CUT_TEMPLATES.get(index);
+			}
+		}
+
+		return result;
+	}
+
 	private static void cutSide(Direction face, CsgMeshBuilder csg, CornerJoinFaceState faceJoin, boolean isLit) {
 
 		final float[] spec = SPECS[faceJoin.ordinal()];
 
-		if(spec == null) return;
-
 		final Direction top = PolyHelper.defaultTopOf(face);
 		final Direction opposite = face.getOpposite();
 
@@ -124,7 +160,7 @@ public class InsetPanel {
 
 			setupCutSideQuad(writer, 1 - y1, INV_DEPTH, 1 - y0, 1, x0, PolyHelper.leftOf(face, top), face, isLit);
 			setupCutSideQuad(writer, y0, INV_DEPTH, y1, 1, 1 - x1, PolyHelper.rightOf(face, top), face, isLit);
-			csg.difference();
+			csg.union();
 		}
 	}
 
@@ -17,13 +17,22 @@ package grondag.xm.collision;
 
 import static org.apiguardian.api.API.Status.INTERNAL;
 
+import java.nio.file.Path;
+
 import org.apiguardian.api.API;
 
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.shape.VoxelShape;
 import net.minecraft.util.shape.VoxelShapes;
+import net.minecraft.world.BlockView;
 
 import grondag.fermion.sc.cache.ObjectSimpleLoadingCache;
 import grondag.xm.api.modelstate.ModelState;
+import grondag.xm.api.modelstate.ModelStateFunction;
+import grondag.xm.collision.CollisionShapeStore.StoreKey;
+import grondag.xm.dispatch.XmBlockStateAccess;
+import grondag.xm.dispatch.XmWorldAccess;
 
 @API(status = INTERNAL)
 public class CollisionDispatcherImpl {
@@ -40,10 +49,57 @@ public class CollisionDispatcherImpl {
 		}
 	};
 
+	private static volatile CollisionShapeStore store = null;
+
 	public static VoxelShape shapeFor(ModelState modelState) {
 		return modelState == null ? VoxelShapes.fullCube() : modelCache.get(modelState.geometricState());
 	}
 
+	/**
+	 * Shape for the given block state in world, avoiding model state retrieval when possible.
+	 * Shapes with world-independent geometry are retained on the block state. Others
+	 * are retained per position and state when the view is a world and the state is
+	 * the one actually present.
+	 */
+	public static VoxelShape shapeFor(BlockState blockState, BlockView blockView, BlockPos pos) {
+		final XmBlockStateAccess access = (XmBlockStateAccess) blockState;
+		VoxelShape result = access.xm_shape();
+
+		if (result != null) {
+			return result;
+		}
+
+		final ModelStateFunction<?> func = access.xm_modelStateFunc();
+
+		if (func == null) {
+			return VoxelShapes.fullCube();
+		}
+
+		if (func.isWorldIndependent()) {
+			result = shapeFor(func.apply(blockState, blockView, pos, true));
+			access.xm_shape(result);
+			return result;
+		}
+
+		if (blockView instanceof XmWorldAccess) {
+			final WorldShapeCache cache = ((XmWorldAccess) blockView).xm_shapeCache();
+			result = cache.get(blockState, pos);
+
+			if (result == null) {
+				result = shapeFor(func.apply(blockState, blockView, pos, true));
+
+				// hypothetical states (placement checks, pistons) would evict the block actually there
+				if (blockView.getBlockState(pos) == blockState) {
+					cache.put(blockState, pos, result);
+				}
+			}
+
+			return result;
+		}
+
+		return shapeFor(func.apply(blockState, blockView, pos, true));
+	}
+
 	/**
 	 * Clears the cache.
 	 */
@@ -52,12 +108,57 @@ public class CollisionDispatcherImpl {
 		volCache.clear();
 	}
 
+	/**
+	 * Opens persistent voxel volume storage at the given location.
+	 * Any previously open store is saved and closed first.
+	 */
+	public static synchronized void openStore(Path file) {
+		closeStore();
+		store = CollisionShapeStore.open(file);
+		modelCache.clear();
+	}
+
+	/**
+	 * Saves new entries to persistent storage (if open) and stops using it.
+	 */
+	public static synchronized void closeStore() {
+		final CollisionShapeStore store = CollisionDispatcherImpl.store;
+
+		if (store != null) {
+			CollisionDispatcherImpl.store = null;
+			store.close();
+		}
+	}
+
+	/**
+	 * Number of entries in persistent storage, or zero if not open.
+	 */
+	public static int persistedCount() {
+		final CollisionShapeStore store = CollisionDispatcherImpl.store;
+		return store == null ? 0 : store.size();
+	}
+
 	private static VoxelShape load(ModelState key) {
+		final CollisionShapeStore store = CollisionDispatcherImpl.store;
+		final StoreKey storeKey = store == null ? null : CollisionShapeStore.keyFor(key);
+
+		if (storeKey != null) {
+			final long[] bits = store.get(storeKey);
+
+			if (bits != null) {
+				return volCache.get(VoxelVolumeKey.fromBits(bits));
+			}
+		}
+
 		final MeshVoxelizer generator = fastBoxGen.get();
 		key.emitPolygons(generator);
 
 		final VoxelVolumeKey vKey = generator.build();
 
+		if (storeKey != null) {
+			store.put(storeKey, vKey.copyBits());
+		}
+
 		return volCache.get(vKey);
 	}
 }
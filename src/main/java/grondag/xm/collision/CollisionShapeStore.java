@@ -0,0 +1,322 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.collision;
+
+import static org.apiguardian.api.API.Status.INTERNAL;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.HashCommon;
+import org.apiguardian.api.API;
+
+import net.minecraft.network.PacketByteBuf;
+
+import net.fabricmc.loader.api.FabricLoader;
+import net.fabricmc.loader.api.ModContainer;
+
+import grondag.xm.Xm;
+import grondag.xm.api.modelstate.ModelState;
+import grondag.xm.api.modelstate.base.BaseModelState;
+
+/**
+ * Persistent map of geometric model state to voxel volume, kept in the world save so that
+ * collision shapes seen in previous sessions do not need to be voxelized again.
+ * <p>
+ *
+ * File layout is a fixed header followed by append-only records of
+ * {@code (unsigned short keyLength, key bytes, 8 longs of voxel bits)}. The file is read into a heap
+ * buffer and parsed once when opened; it is never mapped, so truncating or rewriting it on close
+ * cannot collide with a live mapping. New entries are held in memory and appended when the store is closed.
+ * A truncated trailing record (from a crash during write) is ignored when loading and cut off before
+ * the next append, so that later records stay aligned.
+ * <p>
+ *
+ * The header includes a hash of all loaded mod versions. Any change to the mod set discards the file
+ * because primitive geometry or serialization may have changed.
+ */
+@API(status = INTERNAL)
+class CollisionShapeStore {
+	private static final int MAGIC = 0x584D4353; // XMCS
+	private static final int FORMAT_VERSION = 2;
+	private static final int HEADER_BYTES = 4 + 4 + 8;
+	private static final int VOXEL_BYTES = 8 * 8;
+	private static final int MAX_KEY_BYTES = 0xFFFF;
+
+	private final Path file;
+	private final long environmentHash;
+	private final ConcurrentHashMap<StoreKey, long[]> entries = new ConcurrentHashMap<>();
+	private final ConcurrentLinkedQueue<StoreKey> pending = new ConcurrentLinkedQueue<>();
+
+	/** File offset after the last complete record, or -1 if the file must be rewritten. */
+	private long validBytes = -1;
+
+	private CollisionShapeStore(Path file) {
+		this.file = file;
+		environmentHash = environmentHash();
+	}
+
+	static CollisionShapeStore open(Path file) {
+		final CollisionShapeStore result = new CollisionShapeStore(file);
+
+		try {
+			result.load();
+		} catch (final Exception e) {
+			Xm.LOG.warn("Unable to load collision shape cache. Shapes will be regenerated.", e);
+			result.entries.clear();
+			result.validBytes = -1;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns voxel bits for the given geometric state, or null if not stored.
+	 * Key should be obtained from {@link #keyFor(ModelState)}.
+	 */
+	long[] get(StoreKey key) {
+		return key == null ? null : entries.get(key);
+	}
+
+	void put(StoreKey key, long[] voxelBits) {
+		if (key != null && entries.putIfAbsent(key, voxelBits) == null) {
+			pending.add(key);
+		}
+	}
+
+	int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Compact serialization of geometric state. Uses primitive ID instead of
+	 * registry index because index is not stable across sessions.
+	 * Returns null if state cannot be serialized.
+	 */
+	static StoreKey keyFor(ModelState modelState) {
+		if (!(modelState instanceof BaseModelState)) {
+			return null;
+		}
+
+		final PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer(64));
+
+		try {
+			buf.writeString(((BaseModelState<?, ?>) modelState).primitive().id().toString());
+			final int idBytes = buf.writerIndex();
+
+			modelState.toBytes(buf);
+
+			// skip primitive index written by toBytes
+			buf.readerIndex(idBytes);
+			buf.readVarInt();
+			final int skipped = buf.readerIndex() - idBytes;
+			final int length = buf.writerIndex() - skipped;
+
+			if (length > MAX_KEY_BYTES) {
+				return null;
+			}
+
+			final byte[] bytes = new byte[length];
+			buf.getBytes(0, bytes, 0, idBytes);
+			buf.getBytes(buf.readerIndex(), bytes, idBytes, length - idBytes);
+			return new StoreKey(bytes);
+		} finally {
+			buf.release();
+		}
+	}
+
+	private void load() throws IOException {
+		if (!Files.exists(file)) {
+			return;
+		}
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			final long size = channel.size();
+
+			if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+				return;
+			}
+
+			final ByteBuffer data = ByteBuffer.allocate((int) size);
+
+			while (data.hasRemaining() && channel.read(data) >= 0) {
+				// read until full
+			}
+
+			data.flip();
+
+			if (data.getInt() != MAGIC || data.getInt() != FORMAT_VERSION || data.getLong() != environmentHash) {
+				Xm.LOG.info("Discarding collision shape cache created with different mod versions.");
+				return;
+			}
+
+			validBytes = data.position();
+
+			while (data.remaining() >= 2) {
+				final int keyLength = data.getShort() & 0xFFFF;
+
+				if (data.remaining() < keyLength + VOXEL_BYTES) {
+					break;
+				}
+
+				final byte[] key = new byte[keyLength];
+				data.get(key);
+
+				final long[] bits = new long[8];
+
+				for (int i = 0; i < 8; ++i) {
+					bits[i] = data.getLong();
+				}
+
+				entries.put(new StoreKey(key), bits);
+				validBytes = data.position();
+			}
+
+			if (validBytes < size) {
+				Xm.LOG.info("Collision shape cache ends with an incomplete record, which will be discarded.");
+			}
+		}
+	}
+
+	/**
+	 * Appends entries added since the store was opened, after any incomplete trailing record.
+	 * Rewrites the file if it was missing, unreadable or created by a different environment.
+	 */
+	void close() {
+		if (pending.isEmpty()) {
+			return;
+		}
+
+		try {
+			Files.createDirectories(file.getParent());
+			final boolean rewrite = validBytes < HEADER_BYTES || !isHeaderCurrent();
+
+			try (FileChannel channel = rewrite
+					? FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)
+							: FileChannel.open(file, StandardOpenOption.WRITE)) {
+
+				if (!rewrite) {
+					if (channel.size() > validBytes) {
+						channel.truncate(validBytes);
+					}
+
+					channel.position(validBytes);
+				} else {
+					final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+					header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(environmentHash).flip();
+					writeFully(channel, header);
+					// everything in memory is valid for this environment
+					pending.clear();
+					pending.addAll(entries.keySet());
+				}
+
+				ByteBuffer buffer = ByteBuffer.allocate(4096);
+				StoreKey key;
+
+				while ((key = pending.poll()) != null) {
+					final long[] bits = entries.get(key);
+					final int recordBytes = 2 + key.bytes.length + VOXEL_BYTES;
+
+					if (buffer.remaining() < recordBytes) {
+						buffer.flip();
+						writeFully(channel, buffer);
+						buffer.clear();
+
+						if (buffer.capacity() < recordBytes) {
+							buffer = ByteBuffer.allocate(recordBytes);
+						}
+					}
+
+					buffer.putShort((short) key.bytes.length);
+					buffer.put(key.bytes);
+
+					for (int i = 0; i < 8; ++i) {
+						buffer.putLong(bits[i]);
+					}
+				}
+
+				buffer.flip();
+				writeFully(channel, buffer);
+				validBytes = channel.position();
+			}
+		} catch (final Exception e) {
+			Xm.LOG.warn("Unable to save collision shape cache.", e);
+		}
+	}
+
+	private boolean isHeaderCurrent() throws IOException {
+		if (!Files.exists(file) || Files.size(file) < HEADER_BYTES) {
+			return false;
+		}
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+
+			while (header.hasRemaining() && channel.read(header) >= 0) {
+				// read until full
+			}
+
+			header.flip();
+			return header.remaining() == HEADER_BYTES && header.getInt() == MAGIC && header.getInt() == FORMAT_VERSION && header.getLong() == environmentHash;
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	private static long environmentHash() {
+		long result = FORMAT_VERSION;
+
+		for (final ModContainer mod : FabricLoader.getInstance().getAllMods()) {
+			final String s = mod.getMetadata().getId() + "@" + mod.getMetadata().getVersion().getFriendlyString();
+			// order-independent combination
+			result += HashCommon.murmurHash3((long) s.hashCode());
+		}
+
+		return result;
+	}
+
+	static final class StoreKey {
+		private final byte[] bytes;
+		private final int hash;
+
+		private StoreKey(byte[] bytes) {
+			this.bytes = bytes;
+			hash = Arrays.hashCode(bytes);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof StoreKey && Arrays.equals(bytes, ((StoreKey) obj).bytes);
+		}
+	}
+}
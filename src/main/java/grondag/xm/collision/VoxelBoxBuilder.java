@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.collision;
+
+import static org.apiguardian.api.API.Status.INTERNAL;
+
+import org.apiguardian.api.API;
+
+import net.minecraft.util.function.BooleanBiFunction;
+import net.minecraft.util.shape.VoxelShape;
+import net.minecraft.util.shape.VoxelShapes;
+
+/**
+ * Merges the occupied voxels of an 8x8x8 volume into maximal boxes with a single
+ * greedy sweep over the bit planes of {@link VoxelVolumeKey}.
+ * <p>
+ *
+ * Each unclaimed voxel (in z, y, x order) seeds a box that is grown along X,
+ * then Y, then Z for as long as every voxel in the new row/plane is still
+ * unclaimed. Growth along Y and Z is tested with a single mask operation per
+ * step because a full X-Y plane fits in one long.
+ * <p>
+ *
+ * Boxes are packed into ints as six 4-bit coordinates in the 0-8 range so the
+ * sweep needs no per-box allocation. The finished box list is merged into one
+ * shape without simplifying intermediate results - every box lies on the same
+ * 1/8 grid, so each combine is bounded by that grid no matter how many boxes came
+ * before - and the result is simplified once at the end.
+ */
+@API(status = INTERNAL)
+final class VoxelBoxBuilder {
+	private VoxelBoxBuilder() { }
+
+	/** Upper bound on box count - one box per voxel. */
+	static final int MAX_BOXES = 512;
+
+	private static final double SCALE = 1.0 / 8.0;
+
+	static int packBox(int x0, int y0, int z0, int x1, int y1, int z1) {
+		return x0 | (y0 << 4) | (z0 << 8) | (x1 << 12) | (y1 << 16) | (z1 << 20);
+	}
+
+	static int x0(int box) {
+		return box & 0xF;
+	}
+
+	static int y0(int box) {
+		return (box >> 4) & 0xF;
+	}
+
+	static int z0(int box) {
+		return (box >> 8) & 0xF;
+	}
+
+	static int x1(int box) {
+		return (box >> 12) & 0xF;
+	}
+
+	static int y1(int box) {
+		return (box >> 16) & 0xF;
+	}
+
+	static int z1(int box) {
+		return (box >> 20) & 0xF;
+	}
+
+	/**
+	 * Performs the greedy sweep.
+	 *
+	 * @param voxelBits  8 longs, one per Z plane, bit address is {@code x | (y << 3)}. Not modified.
+	 * @param boxes  receives packed boxes, must have room for {@link #MAX_BOXES}
+	 * @return number of boxes written to {@code boxes}
+	 */
+	static int sweep(long[] voxelBits, int[] boxes) {
+		final long[] work = new long[8];
+		System.arraycopy(voxelBits, 0, work, 0, 8);
+
+		int boxCount = 0;
+
+		for (int z = 0; z < 8; ++z) {
+			long plane = work[z];
+
+			while (plane != 0) {
+				final int seed = Long.numberOfTrailingZeros(plane);
+				final int x = seed & 7;
+				final int y = seed >> 3;
+
+				// grow along X within the row
+				int x1 = x + 1;
+
+				while (x1 < 8 && (plane & (1L << (x1 | (y << 3)))) != 0) {
+					++x1;
+				}
+
+				final long rowMask = ((1L << (x1 - x)) - 1) << x;
+
+				// grow along Y within the plane
+				long planeMask = rowMask << (y << 3);
+				int y1 = y + 1;
+
+				while (y1 < 8) {
+					final long nextRow = rowMask << (y1 << 3);
+
+					if ((plane & nextRow) != nextRow) {
+						break;
+					}
+
+					planeMask |= nextRow;
+					++y1;
+				}
+
+				// grow along Z across planes
+				int z1 = z + 1;
+
+				while (z1 < 8 && (work[z1] & planeMask) == planeMask) {
+					work[z1] &= ~planeMask;
+					++z1;
+				}
+
+				plane &= ~planeMask;
+				boxes[boxCount++] = packBox(x, y, z, x1, y1, z1);
+			}
+
+			work[z] = 0;
+		}
+
+		return boxCount;
+	}
+
+	/**
+	 * Converts packed boxes to a single shape.
+	 */
+	static VoxelShape toShape(int[] boxes, int boxCount) {
+		if (boxCount == 0) {
+			return VoxelShapes.empty();
+		}
+
+		VoxelShape result = cuboid(boxes[0]);
+
+		for (int i = 1; i < boxCount; ++i) {
+			result = VoxelShapes.combine(result, cuboid(boxes[i]), BooleanBiFunction.OR);
+		}
+
+		return boxCount == 1 ? result : result.simplify();
+	}
+
+	private static VoxelShape cuboid(int box) {
+		return VoxelShapes.cuboid(
+				x0(box) * SCALE, y0(box) * SCALE, z0(box) * SCALE,
+				x1(box) * SCALE, y1(box) * SCALE, z1(box) * SCALE);
+	}
+
+	static VoxelShape build(long[] voxelBits) {
+		final int[] boxes = new int[MAX_BOXES];
+		return toShape(boxes, sweep(voxelBits, boxes));
+	}
+}
@@ -33,9 +33,8 @@ import net.minecraft.util.shape.VoxelShapes;
  * that are at least half full.
  * <p>
  *
- * Output voxels sharing a face joined together by
- * {@link JoiningBoxListBuilder}. No other attempt is made to reduce box count -
- * instead relying on the low resolution to keep box counts reasonable.
+ * Output voxels are merged into maximal boxes by {@link VoxelBoxBuilder}
+ * and the resulting box list is converted to a single shape.
  * <p>
  *
  * During the shell identification, voxels are addressed using Octree
@@ -151,6 +150,26 @@ class VoxelVolumeKey {
 		return result;
 	}
 
+	/**
+	 * Copy of voxel bits for persistence.
+	 */
+	long[] copyBits() {
+		final long[] result = new long[8];
+		System.arraycopy(voxelBits, 0, result, 0, 8);
+		return result;
+	}
+
+	/**
+	 * Immutable key from previously persisted voxel bits.
+	 */
+	static VoxelVolumeKey fromBits(long[] bits) {
+		final VoxelVolumeKey result = new VoxelVolumeKey();
+		System.arraycopy(bits, 0, result.voxelBits, 0, 8);
+		result.hash = result.hashCode();
+		result.immutable = true;
+		return result;
+	}
+
 	private static final int X_LOW  = 0b01010101;
 	private static final int X_HIGH = 0b10101010;
 	private static final int Y_LOW  = 0b00110011;
@@ -159,6 +178,47 @@ class VoxelVolumeKey {
 	private static final int Z_HIGH = 0b11110000;
 
 	final VoxelShape build() {
+		if (isEmpty()) {
+			return VoxelShapes.empty();
+		} else if (isFull()) {
+			return VoxelShapes.fullCube();
+		}
+
+		return VoxelBoxBuilder.build(voxelBits);
+	}
+
+	/**
+	 * Number of cuboids {@link #buildLegacy(int[])} unions to produce the same shape.
+	 * Used to compare the box output of {@link VoxelBoxBuilder#sweep(long[], int[])}.
+	 */
+	int legacyBoxCount() {
+		final int[] counter = new int[1];
+		buildLegacy(counter);
+		return counter[0];
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+
+		for (int i = 0; i < 8; ++i) {
+			if (i > 0) {
+				sb.append(',');
+			}
+
+			sb.append(Long.toHexString(voxelBits[i]));
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Original recursive builder that unions one cuboid at a time.
+	 * Retained only to verify output of {@link #build()}.
+	 *
+	 * @param boxCounter  element zero is incremented for every cuboid added
+	 */
+	final VoxelShape buildLegacy(int[] boxCounter) {
 		//        final long start = System.nanoTime();
 
 		VoxelShape result = VoxelShapes.empty();
@@ -204,57 +264,57 @@ class VoxelVolumeKey {
 				}
 
 				if ((halves & Y_LOW) == Y_LOW) {
-					result = VoxelShapes.union(result, VoxelShapes.cuboid(0, 0, 0, 1, 0.5, 1));
-					result = div1(count010, result, 0, 1, 0);
-					result = div1(count011, result, 1, 1, 0);
-					result = div1(count110, result, 0, 1, 1);
-					result = div1(count111, result, 1, 1, 1);
+					result = addBox(boxCounter, result, 0, 0, 0, 1, 0.5, 1);
+					result = div1(boxCounter, count010, result, 0, 1, 0);
+					result = div1(boxCounter, count011, result, 1, 1, 0);
+					result = div1(boxCounter, count110, result, 0, 1, 1);
+					result = div1(boxCounter, count111, result, 1, 1, 1);
 
 				} else if ((halves & Y_HIGH) == Y_HIGH) {
-					result = VoxelShapes.union(result, VoxelShapes.cuboid(0, 0.5, 0, 1, 1, 1));
-					result = div1(count000, result, 0, 0, 0);
-					result = div1(count001, result, 1, 0, 0);
-					result = div1(count100, result, 0, 0, 1);
-					result = div1(count101, result, 1, 0, 1);
+					result = addBox(boxCounter, result, 0, 0.5, 0, 1, 1, 1);
+					result = div1(boxCounter, count000, result, 0, 0, 0);
+					result = div1(boxCounter, count001, result, 1, 0, 0);
+					result = div1(boxCounter, count100, result, 0, 0, 1);
+					result = div1(boxCounter, count101, result, 1, 0, 1);
 
 				} else if ((halves & X_LOW) == X_LOW) {
-					result = VoxelShapes.union(result, VoxelShapes.cuboid(0, 0, 0, 0.5, 1, 1));
-					result = div1(count001, result, 1, 0, 0);
-					result = div1(count011, result, 1, 1, 0);
-					result = div1(count101, result, 1, 0, 1);
-					result = div1(count111, result, 1, 1, 1);
+					result = addBox(boxCounter, result, 0, 0, 0, 0.5, 1, 1);
+					result = div1(boxCounter, count001, result, 1, 0, 0);
+					result = div1(boxCounter, count011, result, 1, 1, 0);
+					result = div1(boxCounter, count101, result, 1, 0, 1);
+					result = div1(boxCounter, count111, result, 1, 1, 1);
 
 				} else if ((halves & X_HIGH) == X_HIGH) {
-					result = VoxelShapes.union(result, VoxelShapes.cuboid(0.5, 0, 0, 1, 1, 1));
-					result = div1(count000, result, 0, 0, 0);
-					result = div1(count010, result, 0, 1, 0);
-					result = div1(count100, result, 0, 0, 1);
-					result = div1(count110, result, 0, 1, 1);
+					result = addBox(boxCounter, result, 0.5, 0, 0, 1, 1, 1);
+					result = div1(boxCounter, count000, result, 0, 0, 0);
+					result = div1(boxCounter, count010, result, 0, 1, 0);
+					result = div1(boxCounter, count100, result, 0, 0, 1);
+					result = div1(boxCounter, count110, result, 0, 1, 1);
 
 				} else if ((halves & Z_LOW) == Z_LOW) {
-					result = VoxelShapes.union(result, VoxelShapes.cuboid(0, 0, 0, 1, 1, 0.5));
-					result = div1(count100, result, 0, 0, 1);
-					result = div1(count101, result, 1, 0, 1);
-					result = div1(count110, result, 0, 1, 1);
-					result = div1(count111, result, 1, 1, 1);
+					result = addBox(boxCounter, result, 0, 0, 0, 1, 1, 0.5);
+					result = div1(boxCounter, count100, result, 0, 0, 1);
+					result = div1(boxCounter, count101, result, 1, 0, 1);
+					result = div1(boxCounter, count110, result, 0, 1, 1);
+					result = div1(boxCounter, count111, result, 1, 1, 1);
 
 				} else if ((halves & Z_HIGH) == Z_HIGH) {
-					result = VoxelShapes.union(result, VoxelShapes.cuboid(0, 0, 0.5, 1, 1, 1));
-					result = div1(count000, result, 0, 0, 0);
-					result = div1(count001, result, 1, 0, 0);
-					result = div1(count010, result, 0, 1, 0);
-					result = div1(count011, result, 1, 1, 0);
+					result = addBox(boxCounter, result, 0, 0, 0.5, 1, 1, 1);
+					result = div1(boxCounter, count000, result, 0, 0, 0);
+					result = div1(boxCounter, count001, result, 1, 0, 0);
+					result = div1(boxCounter, count010, result, 0, 1, 0);
+					result = div1(boxCounter, count011, result, 1, 1, 0);
 
 				} else {
 					// no halves
-					result = div1(count000, result, 0, 0, 0);
-					result = div1(count001, result, 1, 0, 0);
-					result = div1(count010, result, 0, 1, 0);
-					result = div1(count011, result, 1, 1, 0);
-					result = div1(count100, result, 0, 0, 1);
-					result = div1(count101, result, 1, 0, 1);
-					result = div1(count110, result, 0, 1, 1);
-					result = div1(count111, result, 1, 1, 1);
+					result = div1(boxCounter, count000, result, 0, 0, 0);
+					result = div1(boxCounter, count001, result, 1, 0, 0);
+					result = div1(boxCounter, count010, result, 0, 1, 0);
+					result = div1(boxCounter, count011, result, 1, 1, 0);
+					result = div1(boxCounter, count100, result, 0, 0, 1);
+					result = div1(boxCounter, count101, result, 1, 0, 1);
+					result = div1(boxCounter, count110, result, 0, 1, 1);
+					result = div1(boxCounter, count111, result, 1, 1, 1);
 				}
 			}
 		}
@@ -264,16 +324,21 @@ class VoxelVolumeKey {
 		return result;
 	}
 
+	private static VoxelShape addBox(int[] boxCounter, VoxelShape shape, double x0, double y0, double z0, double x1, double y1, double z1) {
+		++boxCounter[0];
+		return VoxelShapes.union(shape, VoxelShapes.cuboid(x0, y0, z0, x1, y1, z1));
+	}
+
 	private static final double DIV1 = 1.0 / 2.0;
 
-	private VoxelShape div1(int count, VoxelShape shape, int x, int y, int z) {
+	private VoxelShape div1(int[] boxCounter, int count, VoxelShape shape, int x, int y, int z) {
 		if (count == 0)
 			return shape;
 		else if (count == 64) {
 			final double x0 = x * DIV1;
 			final double y0 = y * DIV1;
 			final double z0 = z * DIV1;
-			return VoxelShapes.union(shape, VoxelShapes.cuboid(x0, y0, z0, x0 + DIV1, y0 + DIV1, z0 + DIV1));
+			return addBox(boxCounter, shape, x0, y0, z0, x0 + DIV1, y0 + DIV1, z0 + DIV1);
 		} else {
 			final int x0 = x * 2;
 			final int y0 = y * 2;
@@ -282,21 +347,21 @@ class VoxelVolumeKey {
 			final int y1 = y0 + 1;
 			final int z1 = z0 + 1;
 
-			shape = div2(shape, x0, y0, z0);
-			shape = div2(shape, x0, y0, z1);
-			shape = div2(shape, x0, y1, z0);
-			shape = div2(shape, x0, y1, z1);
-			shape = div2(shape, x1, y0, z0);
-			shape = div2(shape, x1, y0, z1);
-			shape = div2(shape, x1, y1, z0);
-			shape = div2(shape, x1, y1, z1);
+			shape = div2(boxCounter, shape, x0, y0, z0);
+			shape = div2(boxCounter, shape, x0, y0, z1);
+			shape = div2(boxCounter, shape, x0, y1, z0);
+			shape = div2(boxCounter, shape, x0, y1, z1);
+			shape = div2(boxCounter, shape, x1, y0, z0);
+			shape = div2(boxCounter, shape, x1, y0, z1);
+			shape = div2(boxCounter, shape, x1, y1, z0);
+			shape = div2(boxCounter, shape, x1, y1, z1);
 			return shape;
 		}
 	}
 
 	private static final double DIV2 = 1.0 / 4.0;
 
-	private VoxelShape div2(VoxelShape shape, int x, int y, int z) {
+	private VoxelShape div2(int[] boxCounter, VoxelShape shape, int x, int y, int z) {
 		final int count = count2(x, y, z);
 
 		if (count == 0)
@@ -305,7 +370,7 @@ class VoxelVolumeKey {
 			final double x0 = x * DIV2;
 			final double y0 = y * DIV2;
 			final double z0 = z * DIV2;
-			return VoxelShapes.union(shape, VoxelShapes.cuboid(x0, y0, z0, x0 + DIV2, y0 + DIV2, z0 + DIV2));
+			return addBox(boxCounter, shape, x0, y0, z0, x0 + DIV2, y0 + DIV2, z0 + DIV2);
 		} else {
 			final int x0 = x * 2;
 			final int y0 = y * 2;
@@ -314,26 +379,26 @@ class VoxelVolumeKey {
 			final int y1 = y0 + 1;
 			final int z1 = z0 + 1;
 
-			shape = div3(shape, x0, y0, z0);
-			shape = div3(shape, x0, y0, z1);
-			shape = div3(shape, x0, y1, z0);
-			shape = div3(shape, x0, y1, z1);
-			shape = div3(shape, x1, y0, z0);
-			shape = div3(shape, x1, y0, z1);
-			shape = div3(shape, x1, y1, z0);
-			shape = div3(shape, x1, y1, z1);
+			shape = div3(boxCounter, shape, x0, y0, z0);
+			shape = div3(boxCounter, shape, x0, y0, z1);
+			shape = div3(boxCounter, shape, x0, y1, z0);
+			shape = div3(boxCounter, shape, x0, y1, z1);
+			shape = div3(boxCounter, shape, x1, y0, z0);
+			shape = div3(boxCounter, shape, x1, y0, z1);
+			shape = div3(boxCounter, shape, x1, y1, z0);
+			shape = div3(boxCounter, shape, x1, y1, z1);
 			return shape;
 		}
 	}
 
 	private static final double DIV3 = 1.0 / 8.0;
 
-	private VoxelShape div3(VoxelShape shape, int x, int y, int z) {
+	private VoxelShape div3(int[] boxCounter, VoxelShape shape, int x, int y, int z) {
 		if (get(x, y, z)) {
 			final double x0 = x * DIV3;
 			final double y0 = y * DIV3;
 			final double z0 = z * DIV3;
-			return VoxelShapes.union(shape, VoxelShapes.cuboid(x0, y0, z0, x0 + DIV3, y0 + DIV3, z0 + DIV3));
+			return addBox(boxCounter, shape, x0, y0, z0, x0 + DIV3, y0 + DIV3, z0 + DIV3);
 		} else
 			return shape;
 	}
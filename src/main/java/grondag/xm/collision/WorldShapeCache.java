@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.collision;
+
+import static org.apiguardian.api.API.Status.INTERNAL;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.apiguardian.api.API;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.shape.VoxelShape;
+
+/**
+ * Outline/collision shapes of blocks with world-dependent geometry, retained per world
+ * and keyed by packed block position within per-chunk buckets.
+ * <p>
+ *
+ * Each entry records the block state it was computed for. Shapes are also queried for
+ * states that are not (yet) in the world - placement checks, pistons, falling blocks -
+ * and those queries miss unless the state matches.
+ * <p>
+ *
+ * Geometry depends at most on the block and its 26 neighbors, so a block change
+ * drops every entry in the surrounding 3x3x3 volume. Chunk loads and unloads bypass
+ * block updates and so drop the buckets of the chunk and its eight neighbors, which
+ * covers the one-block border without visiting individual entries.
+ * <p>
+ *
+ * Entity movement queries shapes on the world thread but other threads may read them,
+ * so access is synchronized. Contention is expected to be negligible.
+ */
+@API(status = INTERNAL)
+public class WorldShapeCache {
+	/** Entries beyond this are not worth tracking - cache is cleared and rebuilt as needed */
+	private static final int MAX_SIZE = 0x10000;
+
+	private final Long2ObjectOpenHashMap<Long2ObjectOpenHashMap<Entry>> chunks = new Long2ObjectOpenHashMap<>();
+	private int size = 0;
+
+	/**
+	 * Shape retained for the given state at the given position, or null if none
+	 * or if it was computed for a different state.
+	 */
+	public synchronized VoxelShape get(BlockState blockState, BlockPos pos) {
+		final Long2ObjectOpenHashMap<Entry> bucket = chunks.get(ChunkPos.toLong(pos.getX() >> 4, pos.getZ() >> 4));
+
+		if (bucket == null) {
+			return null;
+		}
+
+		final Entry entry = bucket.get(pos.asLong());
+		return entry == null || entry.blockState != blockState ? null : entry.shape;
+	}
+
+	public synchronized void put(BlockState blockState, BlockPos pos, VoxelShape shape) {
+		if (size >= MAX_SIZE) {
+			clear();
+		}
+
+		final long chunkKey = ChunkPos.toLong(pos.getX() >> 4, pos.getZ() >> 4);
+		Long2ObjectOpenHashMap<Entry> bucket = chunks.get(chunkKey);
+
+		if (bucket == null) {
+			bucket = new Long2ObjectOpenHashMap<>();
+			chunks.put(chunkKey, bucket);
+		}
+
+		if (bucket.put(pos.asLong(), new Entry(blockState, shape)) == null) {
+			++size;
+		}
+	}
+
+	public synchronized void onBlockChanged(BlockPos pos) {
+		if (size == 0) {
+			return;
+		}
+
+		final int x = pos.getX();
+		final int y = pos.getY();
+		final int z = pos.getZ();
+
+		for (int i = -1; i <= 1; ++i) {
+			for (int k = -1; k <= 1; ++k) {
+				final long chunkKey = ChunkPos.toLong((x + i) >> 4, (z + k) >> 4);
+				final Long2ObjectOpenHashMap<Entry> bucket = chunks.get(chunkKey);
+
+				if (bucket == null) {
+					continue;
+				}
+
+				for (int j = -1; j <= 1; ++j) {
+					if (bucket.remove(BlockPos.asLong(x + i, y + j, z + k)) != null) {
+						--size;
+					}
+				}
+
+				if (bucket.isEmpty()) {
+					chunks.remove(chunkKey);
+				}
+			}
+		}
+	}
+
+	public synchronized void onChunkChanged(ChunkPos chunkPos) {
+		if (size == 0) {
+			return;
+		}
+
+		for (int i = -1; i <= 1; ++i) {
+			for (int k = -1; k <= 1; ++k) {
+				final Long2ObjectOpenHashMap<Entry> bucket = chunks.remove(ChunkPos.toLong(chunkPos.x + i, chunkPos.z + k));
+
+				if (bucket != null) {
+					size -= bucket.size();
+				}
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		chunks.clear();
+		size = 0;
+	}
+
+	private static final class Entry {
+		private final BlockState blockState;
+		private final VoxelShape shape;
+
+		private Entry(BlockState blockState, VoxelShape shape) {
+			this.blockState = blockState;
+			this.shape = shape;
+		}
+	}
+}
@@ -25,6 +25,7 @@ import grondag.xm.Xm;
 import grondag.xm.api.connect.world.BlockNeighbors;
 import grondag.xm.api.connect.world.BlockTest;
 import grondag.xm.api.connect.world.BlockTestContext;
+import grondag.xm.api.connect.world.MasonryHelper;
 import grondag.xm.api.connect.world.ModelStateFunction;
 import grondag.xm.api.modelstate.ModelState;
 import org.apiguardian.api.API;
@@ -43,6 +44,10 @@ import net.minecraft.world.BlockView;
  * Convenient way to gather and test block states for blocks adjacent to a given
  * position. Position is immutable, blockstates are looked up lazily and values
  * are cached for reuse.
+ * <p>
+ *
+ * When the world is a snapshot view, block states and test results are
+ * shared with other blocks in the same chunk section via {@link SectionJoinCache}.
  */
 @SuppressWarnings("rawtypes")
 @API(status = INTERNAL)
@@ -103,6 +108,12 @@ public class BlocksNeighborsImpl implements BlockNeighbors, BlockTestContext {
 	private final BlockPos.Mutable myPos = new BlockPos.Mutable();
 	private ModelState myModelState;
 
+	private SectionJoinCache section;
+	private int sectionGeneration;
+	private SectionJoinCache.TestResults sectionResults;
+	private boolean sectionResultsChecked;
+	private int sectionIndex;
+
 	protected BlocksNeighborsImpl() {
 	}
 
@@ -119,6 +130,10 @@ public class BlocksNeighborsImpl implements BlockNeighbors, BlockTestContext {
 		myModelState = null;
 		completionFlags = blockTest == null ? -1 : 0;
 		resultFlags = 0;
+		section = SectionJoinCache.forView(world, x, y, z);
+		sectionGeneration = section == null ? 0 : section.generation();
+		sectionResults = null;
+		sectionResultsChecked = false;
 		System.arraycopy(EMPTY_BLOCK_STATE, 0, blockStates, 0, STATE_COUNT);
 		System.arraycopy(EMPTY_BLOCK_ENTITY, 0, blockEntities, 0, STATE_COUNT);
 		System.arraycopy(EMPTY_MODEL_STATE, 0, modelStates, 0, STATE_COUNT);
@@ -159,6 +174,30 @@ public class BlocksNeighborsImpl implements BlockNeighbors, BlockTestContext {
 	// BLOCK STATE
 	//////////////////////////////
 
+	/**
+	 * Section cache if still valid for this instance. Another instance for a different
+	 * section on the same thread will have moved the thread-local cache elsewhere.
+	 */
+	private SectionJoinCache section() {
+		final SectionJoinCache section = this.section;
+
+		if (section != null && section.generation() != sectionGeneration) {
+			this.section = null;
+			sectionResults = null;
+			return null;
+		}
+
+		return section;
+	}
+
+	private BlockState readBlockState(BlockPos.Mutable pos) {
+		final SectionJoinCache section = section();
+		final int x = pos.getX();
+		final int y = pos.getY();
+		final int z = pos.getZ();
+		return section != null && section.contains(x, y, z) ? section.blockState(x, y, z) : world.getBlockState(pos);
+	}
+
 	@Override
 	public BlockState blockState(Direction face) {
 		BlockState result = blockStates[face.ordinal()];
@@ -167,7 +206,7 @@ public class BlocksNeighborsImpl implements BlockNeighbors, BlockTestContext {
 
 			// Try to catch XB #12
 			try {
-				result = world.getBlockState(mutablePos);
+				result = readBlockState(mutablePos);
 			} catch (final Exception e) {
 				result = Blocks.AIR.getDefaultState();
 				Xm.LOG.warn("Unable to retrieve neighbor block state due to error. Block shape/appearance may be incorrect.", e);
@@ -182,7 +221,7 @@ public class BlocksNeighborsImpl implements BlockNeighbors, BlockTestContext {
 	public BlockState blockState() {
 		BlockState result = myBlockState;
 		if (result == null) {
-			result = world.getBlockState(mutablePos.set(x, y, z));
+			result = readBlockState(mutablePos.set(x, y, z));
 			myBlockState = result;
 		}
 		return result;
@@ -193,7 +232,7 @@ public class BlocksNeighborsImpl implements BlockNeighbors, BlockTestContext {
 		BlockState result = blockStates[edge.superOrdinal];
 		if (result == null) {
 			setPos(mutablePos, edge);
-			result = world.getBlockState(mutablePos);
+			result = readBlockState(mutablePos);
 			blockStates[edge.superOrdinal] = result;
 		}
 		return result;
@@ -204,7 +243,7 @@ public class BlocksNeighborsImpl implements BlockNeighbors, BlockTestContext {
 		BlockState result = blockStates[corner.superOrdinal];
 		if (result == null) {
 			setPos(mutablePos, corner);
-			result = world.getBlockState(mutablePos);
+			result = readBlockState(mutablePos);
 			blockStates[corner.superOrdinal] = result;
 		}
 		return result;
@@ -330,6 +369,8 @@ public class BlocksNeighborsImpl implements BlockNeighbors, BlockTestContext {
 		this.blockTest = blockTest;
 		completionFlags = 0;
 		resultFlags = 0;
+		sectionResults = null;
+		sectionResultsChecked = false;
 		return this;
 	}
 
@@ -354,32 +395,91 @@ public class BlocksNeighborsImpl implements BlockNeighbors, BlockTestContext {
 
 	@SuppressWarnings("unchecked")
 	private boolean doTest(Direction face) {
+		final int neighborIndex = face.ordinal();
+		final SectionJoinCache.TestResults sectionResults = sectionResults();
+
+		if (sectionResults != null && sectionResults.isComplete(sectionIndex, neighborIndex)) {
+			return sectionResults.result(sectionIndex, neighborIndex);
+		}
+
 		targetLocation = face;
 		targetModelState = FACE_MODELSTATE;
 		targetBlockState = FACE_BLOCKSTATE;
 		targetBlockEntity = FACE_BLOCKENTITY;
 		setPos(targetPos, face);
-		return blockTest.apply(this);
+		final boolean result = blockTest.apply(this);
+
+		if (sectionResults != null) {
+			sectionResults.record(x, y, z, neighborIndex, targetPos, result);
+		}
+
+		return result;
 	}
 
 	@SuppressWarnings("unchecked")
 	private boolean doTest(CubeEdge edge) {
+		final int neighborIndex = edge.superOrdinal;
+		final SectionJoinCache.TestResults sectionResults = sectionResults();
+
+		if (sectionResults != null && sectionResults.isComplete(sectionIndex, neighborIndex)) {
+			return sectionResults.result(sectionIndex, neighborIndex);
+		}
+
 		targetLocation = edge;
 		targetModelState = EDGE_MODELSTATE;
 		targetBlockState = EDGE_BLOCKSTATE;
 		targetBlockEntity = EDGE_BLOCKENTITY;
 		setPos(targetPos, edge);
-		return blockTest.apply(this);
+		final boolean result = blockTest.apply(this);
+
+		if (sectionResults != null) {
+			sectionResults.record(x, y, z, neighborIndex, targetPos, result);
+		}
+
+		return result;
 	}
 
 	@SuppressWarnings("unchecked")
 	private boolean doTest(CubeCorner corner) {
+		final int neighborIndex = corner.superOrdinal;
+		final SectionJoinCache.TestResults sectionResults = sectionResults();
+
+		if (sectionResults != null && sectionResults.isComplete(sectionIndex, neighborIndex)) {
+			return sectionResults.result(sectionIndex, neighborIndex);
+		}
+
 		targetLocation = corner;
 		targetModelState = CORNER_MODELSTATE;
 		targetBlockState = CORNER_BLOCKSTATE;
 		targetBlockEntity = CORNER_BLOCKENTITY;
 		setPos(targetPos, corner);
-		return blockTest.apply(this);
+		final boolean result = blockTest.apply(this);
+
+		if (sectionResults != null) {
+			sectionResults.record(x, y, z, neighborIndex, targetPos, result);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Shared results for the current test, or null if not available. Results are not shared
+	 * if the block state given to {@link #withBlockState(BlockState)} differs from the world
+	 * or if the test is a masonry wrapper, which changes per call.
+	 */
+	private SectionJoinCache.TestResults sectionResults() {
+		final SectionJoinCache section = section();
+
+		if (!sectionResultsChecked) {
+			sectionResultsChecked = true;
+
+			if (section != null && blockTest != null && !(blockTest instanceof MasonryHelper) && blockState() == section.blockState(x, y, z)) {
+				sectionIndex = section.sectionIndex(x, y, z);
+				sectionResults = section.results(blockTest, stateFunc);
+			}
+		}
+
+		return section == null ? null : sectionResults;
 	}
 
 	@Override
@@ -0,0 +1,288 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.connect;
+
+import static org.apiguardian.api.API.Status.INTERNAL;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import org.apiguardian.api.API;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.util.math.Vec3i;
+import net.minecraft.world.BlockView;
+
+import grondag.fermion.orientation.api.CubeCorner;
+import grondag.fermion.orientation.api.CubeEdge;
+import grondag.xm.api.connect.world.BlockTest;
+import grondag.xm.api.connect.world.ModelStateFunction;
+import grondag.xm.dispatch.SnapshotViews;
+
+/**
+ * Shares block states and join test results between all blocks of a chunk
+ * section while a snapshot view (a client render region) is meshed.
+ * <p>
+ *
+ * Block states of the section and a one-block border are read at most once into
+ * an 18x18x18 array. Test results are kept per block and neighbor for each distinct
+ * test and model state function, so each test runs once per block and neighbor.
+ * For {@link BlockTest#isSymmetric() symmetric} tests the result is also recorded
+ * for the neighbor looking back, so each pair of blocks is tested once.
+ * <p>
+ *
+ * A thread-local instance is retained while consecutive calls are for the same view and
+ * section. Safe only because snapshots cannot change. Not used for other views. The view
+ * is weakly held so the thread-local instance does not keep a render region, and through
+ * it the client world, reachable after the rebuild. Cached states and results are discarded
+ * on first use after {@link #releaseThreadCaches()}.
+ */
+@API(status = INTERNAL)
+@SuppressWarnings("rawtypes")
+public class SectionJoinCache {
+	private static final int PADDED_SIZE = 18;
+	private static final int PADDED_COUNT = PADDED_SIZE * PADDED_SIZE * PADDED_SIZE;
+	private static final int SECTION_COUNT = 16 * 16 * 16;
+
+	/** Neighbor index (face ordinal or edge/corner super ordinal) by offset, -1 for self. */
+	private static final int[] NEIGHBOR_BY_OFFSET = new int[27];
+
+	/** Offset index by neighbor index. */
+	private static final int[] OFFSET_BY_NEIGHBOR = new int[26];
+
+	static {
+		NEIGHBOR_BY_OFFSET[offsetIndex(0, 0, 0)] = -1;
+
+		for (final Direction face : Direction.values()) {
+			mapNeighbor(face.ordinal(), face.getVector());
+		}
+
+		for (final CubeEdge edge : CubeEdge.values()) {
+			mapNeighbor(edge.superOrdinal, edge.vector);
+		}
+
+		for (final CubeCorner corner : CubeCorner.values()) {
+			mapNeighbor(corner.superOrdinal, corner.vector);
+		}
+	}
+
+	private static void mapNeighbor(int neighborIndex, Vec3i vec) {
+		final int offsetIndex = offsetIndex(vec.getX(), vec.getY(), vec.getZ());
+		NEIGHBOR_BY_OFFSET[offsetIndex] = neighborIndex;
+		OFFSET_BY_NEIGHBOR[neighborIndex] = offsetIndex;
+	}
+
+	private static int offsetIndex(int dx, int dy, int dz) {
+		return (dx + 1) * 9 + (dy + 1) * 3 + dz + 1;
+	}
+
+	/** Neighbor index of the block at the given offset, looking back at the origin. */
+	private static int oppositeNeighbor(int neighborIndex) {
+		return NEIGHBOR_BY_OFFSET[26 - OFFSET_BY_NEIGHBOR[neighborIndex]];
+	}
+
+	private static final ThreadLocal<SectionJoinCache> THREADLOCAL = ThreadLocal.withInitial(SectionJoinCache::new);
+
+	private static final WeakReference<BlockView> NO_WORLD = new WeakReference<>(null);
+
+	/** Incremented by {@link #releaseThreadCaches()}. */
+	private static volatile int releaseEpoch = 0;
+
+	/**
+	 * Causes thread-local caches to drop cached states and results when next used.
+	 * Call when the client world is unloaded or render state is invalidated.
+	 */
+	public static void releaseThreadCaches() {
+		++releaseEpoch;
+	}
+
+	/**
+	 * Cache for the section containing the given position, or null if the view is not a snapshot.
+	 */
+	static SectionJoinCache forView(BlockView world, int x, int y, int z) {
+		if (!SnapshotViews.isSnapshot(world)) {
+			return null;
+		}
+
+		final SectionJoinCache result = THREADLOCAL.get();
+		final int releaseEpoch = SectionJoinCache.releaseEpoch;
+
+		if (result.releaseEpoch != releaseEpoch) {
+			result.release();
+			result.releaseEpoch = releaseEpoch;
+		}
+
+		result.prepare(world, x & ~15, y & ~15, z & ~15);
+		return result;
+	}
+
+	private final BlockState[] blockStates = new BlockState[PADDED_COUNT];
+	private final ObjectArrayList<TestResults> results = new ObjectArrayList<>();
+	private final ObjectArrayList<TestResults> spareResults = new ObjectArrayList<>();
+	private final BlockPos.Mutable searchPos = new BlockPos.Mutable();
+	private WeakReference<BlockView> worldRef = NO_WORLD;
+	private int originX;
+	private int originY;
+	private int originZ;
+	private int generation;
+	private int releaseEpoch;
+
+	/**
+	 * Incremented each time the cache moves to a different view or section.
+	 * Holders must stop using the cache (and any {@link TestResults}) when it changes.
+	 */
+	int generation() {
+		return generation;
+	}
+
+	private void prepare(BlockView world, int originX, int originY, int originZ) {
+		if (world == worldRef.get() && originX == this.originX && originY == this.originY && originZ == this.originZ) {
+			return;
+		}
+
+		++generation;
+
+		if (world != worldRef.get()) {
+			worldRef = new WeakReference<>(world);
+		}
+
+		this.originX = originX;
+		this.originY = originY;
+		this.originZ = originZ;
+
+		Arrays.fill(blockStates, null);
+
+		if (!results.isEmpty()) {
+			for (final TestResults r : results) {
+				r.clear();
+				spareResults.add(r);
+			}
+
+			results.clear();
+		}
+	}
+
+	/**
+	 * Drops the view, cached states and all test results, including spares.
+	 */
+	private void release() {
+		++generation;
+		worldRef = NO_WORLD;
+		Arrays.fill(blockStates, null);
+		results.clear();
+		spareResults.clear();
+	}
+
+	/** True if position is in the section or its one-block border. */
+	boolean contains(int x, int y, int z) {
+		final int px = x - originX + 1;
+		final int py = y - originY + 1;
+		final int pz = z - originZ + 1;
+		return px >= 0 && px < PADDED_SIZE && py >= 0 && py < PADDED_SIZE && pz >= 0 && pz < PADDED_SIZE;
+	}
+
+	/** Position must be {@link #contains(int, int, int) contained}. */
+	BlockState blockState(int x, int y, int z) {
+		final int index = (x - originX + 1) + (z - originZ + 1) * PADDED_SIZE + (y - originY + 1) * PADDED_SIZE * PADDED_SIZE;
+		BlockState result = blockStates[index];
+
+		if (result == null) {
+			result = worldRef.get().getBlockState(searchPos.set(x, y, z));
+			blockStates[index] = result;
+		}
+
+		return result;
+	}
+
+	/** Index of position within the section (excluding border), or -1 if outside. */
+	int sectionIndex(int x, int y, int z) {
+		x -= originX;
+		y -= originY;
+		z -= originZ;
+		return ((x | y | z) & ~15) == 0 ? x | (z << 4) | (y << 8) : -1;
+	}
+
+	TestResults results(BlockTest test, ModelStateFunction stateFunc) {
+		final ObjectArrayList<TestResults> results = this.results;
+		final int limit = results.size();
+
+		for (int i = 0; i < limit; ++i) {
+			final TestResults r = results.get(i);
+
+			if (r.test == test && r.stateFunc == stateFunc) {
+				return r;
+			}
+		}
+
+		final TestResults r = spareResults.isEmpty() ? new TestResults() : spareResults.pop();
+		r.test = test;
+		r.stateFunc = stateFunc;
+		r.symmetric = test.isSymmetric();
+		results.add(r);
+		return r;
+	}
+
+	/**
+	 * Results of one test for every block in the section. Each long holds
+	 * completion flags in the low 26 bits and result flags in the high word.
+	 */
+	class TestResults {
+		private final long[] flags = new long[SECTION_COUNT];
+		private BlockTest test;
+		private ModelStateFunction stateFunc;
+		private boolean symmetric;
+
+		private void clear() {
+			Arrays.fill(flags, 0);
+			test = null;
+			stateFunc = null;
+		}
+
+		/** True if a result for the given block and neighbor has been recorded. */
+		boolean isComplete(int sectionIndex, int neighborIndex) {
+			return (flags[sectionIndex] & (1L << neighborIndex)) != 0;
+		}
+
+		/** Valid only if {@link #isComplete(int, int)}. */
+		boolean result(int sectionIndex, int neighborIndex) {
+			return (flags[sectionIndex] & (1L << (neighborIndex + 32))) != 0;
+		}
+
+		/**
+		 * Records result for the block at the given position and neighbor. For symmetric tests,
+		 * also records it for the neighbor looking back if the neighbor is in the section.
+		 */
+		void record(int x, int y, int z, int neighborIndex, BlockPos neighborPos, boolean result) {
+			set(sectionIndex(x, y, z), neighborIndex, result);
+
+			if (symmetric) {
+				final int neighborSectionIndex = sectionIndex(neighborPos.getX(), neighborPos.getY(), neighborPos.getZ());
+
+				if (neighborSectionIndex >= 0) {
+					set(neighborSectionIndex, oppositeNeighbor(neighborIndex), result);
+				}
+			}
+		}
+
+		private void set(int sectionIndex, int neighborIndex, boolean result) {
+			final long bits = result ? (1L << neighborIndex) | (1L << (neighborIndex + 32)) : 1L << neighborIndex;
+			flags[sectionIndex] |= bits;
+		}
+	}
+}
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.dispatch;
+
+import static org.apiguardian.api.API.Status.INTERNAL;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import org.apiguardian.api.API;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.render.WorldRenderer;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+
+import grondag.xm.XmConfig;
+
+/**
+ * Executor for model bakes that run off the calling thread: pre-bake after reload and,
+ * when {@link XmConfig#asyncBake} is enabled, bakes requested by chunk rebuilds.
+ * <p>
+ *
+ * Each worker thread gets its own thread-local {@code PaintManager} and CSG builder,
+ * same as chunk builder threads. De-duplication of concurrent bakes for the same state
+ * is handled by the model state itself; this class only runs the work and schedules
+ * a section rebuild once a deferred mesh is ready.
+ */
+@API(status = INTERNAL)
+@Environment(EnvType.CLIENT)
+public final class ModelBakeService {
+	private ModelBakeService() { }
+
+	private static ForkJoinPool pool;
+
+	/** Packed section positions with a rebuild already queued on the client thread. */
+	private static final Set<Long> PENDING_SECTIONS = ConcurrentHashMap.newKeySet();
+
+	public static synchronized ForkJoinPool executor() {
+		ForkJoinPool result = pool;
+
+		if (result == null) {
+			final int threads = XmConfig.bakeThreads > 0 ? XmConfig.bakeThreads : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+			result = new ForkJoinPool(threads, p -> {
+				final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+				thread.setName("XM Model Bake " + thread.getPoolIndex());
+				thread.setDaemon(true);
+				return thread;
+			}, null, false);
+
+			pool = result;
+		}
+
+		return result;
+	}
+
+	public static void execute(Runnable task) {
+		executor().execute(task);
+	}
+
+	/**
+	 * Rebuilds the chunk section containing {@code pos} after the future completes,
+	 * so that output emitted while the bake was pending is replaced. This includes
+	 * failed bakes, so the rebuild can retry synchronously and surface the error.
+	 * Sections waiting on several bakes are only queued once at a time.
+	 */
+	public static void rebuildWhenDone(CompletableFuture<?> future, BlockPos pos) {
+		final long section = ChunkSectionPos.fromBlockPos(pos.asLong());
+
+		future.whenComplete((result, error) -> {
+			if (PENDING_SECTIONS.add(section)) {
+				MinecraftClient.getInstance().execute(() -> rebuild(section));
+			}
+		});
+	}
+
+	private static void rebuild(long section) {
+		PENDING_SECTIONS.remove(section);
+		final WorldRenderer worldRenderer = MinecraftClient.getInstance().worldRenderer;
+
+		if (worldRenderer != null) {
+			worldRenderer.scheduleBlockRenders(ChunkSectionPos.unpackX(section), ChunkSectionPos.unpackY(section), ChunkSectionPos.unpackZ(section));
+		}
+	}
+}
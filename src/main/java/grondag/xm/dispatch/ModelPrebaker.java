@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.dispatch;
+
+import static org.apiguardian.api.API.Status.INTERNAL;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import org.apiguardian.api.API;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.registry.Registry;
+
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+
+import grondag.xm.Xm;
+import grondag.xm.XmConfig;
+import grondag.xm.api.block.XmBlockState;
+import grondag.xm.api.modelstate.ModelState;
+import grondag.xm.api.modelstate.MutableModelState;
+import grondag.xm.modelstate.AbstractPrimitiveModelState;
+
+/**
+ * Bakes meshes for the default state of every XM block state, and optionally
+ * for states that were in use before the last reload, so they are ready before
+ * the world renders instead of being painted lazily during the first frames.
+ * <p>
+ *
+ * Work is spread over the {@link ModelBakeService} executor.
+ */
+@API(status = INTERNAL)
+@Environment(EnvType.CLIENT)
+public class ModelPrebaker {
+	private ModelPrebaker() { }
+
+	/**
+	 * Captures recently used states. Call before the dispatcher is cleared.
+	 * Result is passed to {@link #prebake(ObjectArrayList)} after the clear.
+	 */
+	public static ObjectArrayList<ModelState> captureRecent() {
+		final int limit = XmConfig.prebakeRecentLimit;
+		return limit > 0 && XmConfig.prebakeModels ? XmDispatcher.INSTANCE.recentStates(limit) : new ObjectArrayList<>();
+	}
+
+	/**
+	 * Interns and bakes default block states and the given recent states.
+	 * Blocks until complete.
+	 */
+	public static void prebake(ObjectArrayList<ModelState> recent) {
+		if (!XmConfig.prebakeModels) {
+			return;
+		}
+
+		final long start = System.nanoTime();
+		final ObjectArrayList<MutableModelState> states = new ObjectArrayList<>();
+
+		for (final Block block : Registry.BLOCK) {
+			for (final BlockState blockState : block.getStateManager().getStates()) {
+				final XmBlockState xmState = XmBlockState.get(blockState);
+
+				if (xmState != null) {
+					final MutableModelState modelState = xmState.defaultModelState();
+
+					if (modelState != null) {
+						states.add(modelState);
+					}
+				}
+			}
+		}
+
+		final int defaultCount = states.size();
+
+		// copies are needed because prior instances retain meshes baked with the old atlas
+		for (final ModelState modelState : recent) {
+			states.add(modelState.mutableCopy());
+		}
+
+		if (states.isEmpty()) {
+			return;
+		}
+
+		final AtomicBoolean notifyException = new AtomicBoolean(true);
+
+		try {
+			ModelBakeService.executor().submit(() -> states.parallelStream().forEach(s -> bake(s, notifyException))).get();
+		} catch (final Exception e) {
+			Xm.LOG.warn("Model pre-bake did not complete normally. Remaining models will be baked on demand.", e);
+		}
+
+		Xm.LOG.info(String.format("Pre-baked %d default and %d recent models in %d ms", defaultCount, states.size() - defaultCount, (System.nanoTime() - start) / 1000000));
+	}
+
+	private static void bake(MutableModelState modelState, AtomicBoolean notifyException) {
+		try {
+			final ModelState interned = XmDispatcher.INSTANCE.get(modelState);
+
+			if (interned instanceof AbstractPrimitiveModelState) {
+				((AbstractPrimitiveModelState<?, ?, ?>) interned).mesh();
+			}
+		} catch (final Exception e) {
+			if (notifyException.getAndSet(false)) {
+				Xm.LOG.warn("Unexpected exception during model pre-bake. Subsequent errors will be suppressed.", e);
+			}
+		} finally {
+			modelState.release();
+		}
+	}
+}
@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.dispatch;
+
+import static org.apiguardian.api.API.Status.INTERNAL;
+
+import java.util.function.Predicate;
+
+import org.apiguardian.api.API;
+
+import net.minecraft.world.BlockView;
+
+/**
+ * Identifies block views that are immutable snapshots, such as client chunk render regions.
+ * Values derived from a snapshot can be retained for as long as the same view is in use.
+ */
+@API(status = INTERNAL)
+public final class SnapshotViews {
+	private SnapshotViews() { }
+
+	private static volatile Predicate<BlockView> predicate = v -> false;
+
+	/**
+	 * Set during client initialization.
+	 */
+	public static void predicate(Predicate<BlockView> predicate) {
+		SnapshotViews.predicate = predicate;
+	}
+
+	public static boolean isSnapshot(BlockView world) {
+		return predicate.test(world);
+	}
+}
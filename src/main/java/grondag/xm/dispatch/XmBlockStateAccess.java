@@ -20,6 +20,8 @@ import grondag.xm.api.modelstate.ModelStateFunction;
 import org.apiguardian.api.API;
 import org.jetbrains.annotations.Nullable;
 
+import net.minecraft.util.shape.VoxelShape;
+
 import static org.apiguardian.api.API.Status.INTERNAL;
 
 @API(status = INTERNAL)
@@ -29,4 +31,12 @@ public interface XmBlockStateAccess {
 	ModelStateFunction<?> xm_modelStateFunc();
 
 	@Nullable XmBlockState xm_toXmBlockState();
+
+	/**
+	 * Outline/collision shape retained for states with world-independent geometry.
+	 * Null until first computed or if geometry depends on world.
+	 */
+	@Nullable VoxelShape xm_shape();
+
+	void xm_shape(VoxelShape shape);
 }
@@ -17,23 +17,549 @@ package grondag.xm.dispatch;
 
 import static org.apiguardian.api.API.Status.INTERNAL;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import org.apiguardian.api.API;
 
-import grondag.fermion.sc.cache.KeyInterningCache;
+import grondag.xm.XmConfig;
 import grondag.xm.api.modelstate.ModelState;
+import grondag.xm.modelstate.AbstractPrimitiveModelState;
 
-// custom loading cache is at least 2X faster than guava LoadingCache for our use case
+/**
+ * Interns immutable model states, which in turn hold baked meshes and quad lists.
+ * <p>
+ *
+ * Bounded by estimated retained bytes instead of entry count because meshes vary
+ * by orders of magnitude in size. Eviction follows W-TinyLFU: new entries enter a small
+ * LRU window and must then beat the least-recently used entry of the main space on
+ * estimated access frequency to be retained. The main space is a segmented LRU
+ * with probation and protected queues.
+ * <p>
+ *
+ * Hits are lock-free map lookups. Accesses are recorded in a lossy ring buffer and
+ * applied to the policy in batches under a lock, which is also held for inserts.
+ */
 @API(status = INTERNAL)
-public class XmDispatcher extends KeyInterningCache<ModelState> {
+public class XmDispatcher {
+	public static final XmDispatcher INSTANCE = new XmDispatcher(XmConfig.modelCacheMegabytes * 1024L * 1024L);
+
+	private static final int NEW = -1;
+	private static final int WINDOW = 0;
+	private static final int PROBATION = 1;
+	private static final int PROTECTED = 2;
+	private static final int REMOVED = 3;
+
+	private static final int READ_BUFFER_SIZE = 128;
+	private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+	private static final int READ_DRAIN_INTERVAL_MASK = 31;
+
+	private final ConcurrentHashMap<ModelState, Node> map = new ConcurrentHashMap<>();
+	private final ReentrantLock evictionLock = new ReentrantLock();
+	private final AtomicReferenceArray<Node> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+	private final AtomicLong readCounter = new AtomicLong();
+
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
+	private final LongAdder evictedBytes = new LongAdder();
+
+	// all below guarded by evictionLock
+	private final AccessQueue window = new AccessQueue();
+	private final AccessQueue probation = new AccessQueue();
+	private final AccessQueue protectedQueue = new AccessQueue();
+	private final FrequencySketch sketch = new FrequencySketch();
+	private long maximumBytes;
+	private long windowMaximum;
+	private long protectedMaximum;
+	private volatile long weightedBytes;
 
-	public static final XmDispatcher INSTANCE = new XmDispatcher(0xFFFF);
+	public XmDispatcher(long maximumBytes) {
+		maximumBytes(maximumBytes);
+	}
+
+	/**
+	 * Changes the byte limit. Excess entries are evicted immediately.
+	 */
+	public void maximumBytes(long maximumBytes) {
+		evictionLock.lock();
 
-	public XmDispatcher(int maxSize) {
-		super(k -> k.toImmutable(), maxSize);
+		try {
+			this.maximumBytes = Math.max(1, maximumBytes);
+			windowMaximum = Math.max(1, this.maximumBytes / 100);
+			protectedMaximum = (this.maximumBytes - windowMaximum) * 80 / 100;
+			sketch.ensureCapacity(this.maximumBytes / AbstractPrimitiveModelState.ESTIMATED_BASE_BYTES);
+			evictEntries();
+		} finally {
+			evictionLock.unlock();
+		}
 	}
 
-	@Override
 	public ModelState get(ModelState key) {
-		return super.get(key);
+		final Node node = map.get(key);
+
+		if (node != null) {
+			hitCount.increment();
+			recordRead(node);
+			claimPaintedCharge(node.state);
+			return node.state;
+		}
+
+		missCount.increment();
+
+		final Node newNode = new Node(key.toImmutable());
+		final Node prior = map.putIfAbsent(newNode.state, newNode);
+
+		if (prior != null) {
+			// lost a race with another thread loading the same state
+			recordRead(prior);
+			return prior.state;
+		}
+
+		evictionLock.lock();
+
+		try {
+			drainReadBuffer();
+			sketch.increment(newNode.hash);
+
+			if (newNode.queue == NEW) {
+				window.addLast(newNode);
+				newNode.queue = WINDOW;
+				window.weight += newNode.weight;
+				weightedBytes += newNode.weight;
+				evictEntries();
+			}
+		} finally {
+			evictionLock.unlock();
+		}
+
+		return newNode.state;
+	}
+
+	/**
+	 * Call when the retained size of an interned state changes, typically after
+	 * the mesh or quad lists are baked. Does nothing if the instance is not interned.
+	 */
+	public void updateWeight(ModelState state) {
+		final Node node = map.get(state);
+
+		if (node == null || node.state != state) {
+			return;
+		}
+
+		evictionLock.lock();
+
+		try {
+			if (node.queue == NEW) {
+				// not yet added to policy
+				node.weight = weigh(state);
+			} else if (node.queue != REMOVED) {
+				final int newWeight = weigh(state);
+				final int delta = newWeight - node.weight;
+				node.weight = newWeight;
+				queueFor(node.queue).weight += delta;
+				weightedBytes += delta;
+				evictEntries();
+			}
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * A shared mesh stays alive while any state retains it, so when the state charged
+	 * for it is evicted the charge moves to the next retaining state that is looked up.
+	 */
+	private void claimPaintedCharge(ModelState state) {
+		if (state instanceof AbstractPrimitiveModelState && ((AbstractPrimitiveModelState<?, ?, ?>) state).claimPaintedCharge()) {
+			updateWeight(state);
+		}
+	}
+
+	public void clear() {
+		evictionLock.lock();
+
+		try {
+			for (final Node node : map.values()) {
+				node.queue = REMOVED;
+			}
+
+			map.clear();
+			window.clear();
+			probation.clear();
+			protectedQueue.clear();
+			weightedBytes = 0;
+
+			for (int i = 0; i < READ_BUFFER_SIZE; ++i) {
+				readBuffer.lazySet(i, null);
+			}
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * Interned states ordered from most to least likely to be reused:
+	 * protected (most recent first), then window, then probation.
+	 */
+	public ObjectArrayList<ModelState> recentStates(int limit) {
+		final ObjectArrayList<ModelState> result = new ObjectArrayList<>();
+
+		evictionLock.lock();
+
+		try {
+			drainReadBuffer();
+			collectRecent(protectedQueue, result, limit);
+			collectRecent(window, result, limit);
+			collectRecent(probation, result, limit);
+		} finally {
+			evictionLock.unlock();
+		}
+
+		return result;
+	}
+
+	private static void collectRecent(AccessQueue queue, ObjectArrayList<ModelState> result, int limit) {
+		Node node = queue.tail;
+
+		while (node != null && result.size() < limit) {
+			result.add(node.state);
+			node = node.prev;
+		}
+	}
+
+	public int size() {
+		return map.size();
+	}
+
+	public long hitCount() {
+		return hitCount.sum();
+	}
+
+	public long missCount() {
+		return missCount.sum();
+	}
+
+	public long evictionCount() {
+		return evictionCount.sum();
+	}
+
+	public long evictedBytes() {
+		return evictedBytes.sum();
+	}
+
+	/** Estimated bytes retained by all interned states. */
+	public long weightedBytes() {
+		return weightedBytes;
+	}
+
+	public long maximumBytes() {
+		return maximumBytes;
+	}
+
+	public float hitRate() {
+		final long hits = hitCount();
+		final long total = hits + missCount();
+		return total == 0 ? 1f : (float) hits / total;
+	}
+
+	private static int weigh(ModelState state) {
+		return state instanceof AbstractPrimitiveModelState ? ((AbstractPrimitiveModelState<?, ?, ?>) state).estimatedBytes() : AbstractPrimitiveModelState.ESTIMATED_BASE_BYTES;
+	}
+
+	private void recordRead(Node node) {
+		final long count = readCounter.getAndIncrement();
+		readBuffer.lazySet((int) count & READ_BUFFER_MASK, node);
+
+		if ((count & READ_DRAIN_INTERVAL_MASK) == READ_DRAIN_INTERVAL_MASK && evictionLock.tryLock()) {
+			try {
+				drainReadBuffer();
+			} finally {
+				evictionLock.unlock();
+			}
+		}
+	}
+
+	private void drainReadBuffer() {
+		for (int i = 0; i < READ_BUFFER_SIZE; ++i) {
+			final Node node = readBuffer.getAndSet(i, null);
+
+			if (node != null) {
+				onAccess(node);
+			}
+		}
+	}
+
+	private void onAccess(Node node) {
+		sketch.increment(node.hash);
+
+		switch (node.queue) {
+		case WINDOW:
+			window.moveToLast(node);
+			break;
+
+		case PROBATION:
+			probation.remove(node);
+			probation.weight -= node.weight;
+			protectedQueue.addLast(node);
+			protectedQueue.weight += node.weight;
+			node.queue = PROTECTED;
+
+			// demote overflow back to probation
+			while (protectedQueue.weight > protectedMaximum && protectedQueue.head != node) {
+				final Node demoted = protectedQueue.head;
+				protectedQueue.remove(demoted);
+				protectedQueue.weight -= demoted.weight;
+				probation.addLast(demoted);
+				probation.weight += demoted.weight;
+				demoted.queue = PROBATION;
+			}
+
+			break;
+
+		case PROTECTED:
+			protectedQueue.moveToLast(node);
+			break;
+
+		default:
+			break;
+		}
+	}
+
+	private AccessQueue queueFor(int queue) {
+		switch (queue) {
+		case WINDOW:
+			return window;
+		case PROBATION:
+			return probation;
+		default:
+			return protectedQueue;
+		}
+	}
+
+	private void evictEntries() {
+		evictFromMain(evictFromWindow());
+	}
+
+	/**
+	 * Moves least-recently used entries exceeding the window limit to the tail of
+	 * probation, where they become candidates for admission to the main space.
+	 */
+	private int evictFromWindow() {
+		int candidates = 0;
+
+		while (window.weight > windowMaximum && window.head != null) {
+			final Node node = window.head;
+			window.remove(node);
+			window.weight -= node.weight;
+			probation.addLast(node);
+			probation.weight += node.weight;
+			node.queue = PROBATION;
+			++candidates;
+		}
+
+		return candidates;
+	}
+
+	/**
+	 * Evicts until within limit. Each candidate from the window competes with the
+	 * least-recently used probation entry and the less frequently used loses.
+	 */
+	private void evictFromMain(int candidates) {
+		Node candidate = candidates == 0 ? null : probation.tail;
+
+		while (weightedBytes > maximumBytes) {
+			final Node victim = probation.head;
+
+			if (candidates == 0) {
+				candidate = null;
+			}
+
+			if (victim == null) {
+				final Node fallback = protectedQueue.head == null ? window.head : protectedQueue.head;
+
+				if (fallback == null) {
+					break;
+				}
+
+				evict(fallback);
+				continue;
+			}
+
+			if (candidate == null || candidate == victim) {
+				evict(victim);
+				candidate = null;
+				continue;
+			}
+
+			final Node nextCandidate = candidate.prev;
+			--candidates;
+
+			if (sketch.frequency(candidate.hash) > sketch.frequency(victim.hash)) {
+				evict(victim);
+			} else {
+				evict(candidate);
+			}
+
+			candidate = nextCandidate == null || nextCandidate.queue != PROBATION ? null : nextCandidate;
+		}
+	}
+
+	private void evict(Node node) {
+		final AccessQueue queue = queueFor(node.queue);
+		queue.remove(node);
+		queue.weight -= node.weight;
+		weightedBytes -= node.weight;
+		node.queue = REMOVED;
+		map.remove(node.state, node);
+
+		if (node.state instanceof AbstractPrimitiveModelState) {
+			((AbstractPrimitiveModelState<?, ?, ?>) node.state).releasePaintedCharge();
+		}
+
+		evictionCount.increment();
+		evictedBytes.add(node.weight);
+	}
+
+	private static class Node {
+		final ModelState state;
+		final int hash;
+		int weight;
+		int queue = NEW;
+		Node prev;
+		Node next;
+
+		Node(ModelState state) {
+			this.state = state;
+			hash = HashCommon.mix(state.hashCode());
+			weight = weigh(state);
+		}
+	}
+
+	/** Intrusive doubly-linked access-order queue. Head is least recently used. */
+	private static class AccessQueue {
+		Node head;
+		Node tail;
+		long weight;
+
+		void addLast(Node node) {
+			node.next = null;
+			node.prev = tail;
+
+			if (tail == null) {
+				head = node;
+			} else {
+				tail.next = node;
+			}
+
+			tail = node;
+		}
+
+		void remove(Node node) {
+			final Node prev = node.prev;
+			final Node next = node.next;
+
+			if (prev == null) {
+				head = next;
+			} else {
+				prev.next = next;
+			}
+
+			if (next == null) {
+				tail = prev;
+			} else {
+				next.prev = prev;
+			}
+
+			node.prev = null;
+			node.next = null;
+		}
+
+		void moveToLast(Node node) {
+			if (tail != node) {
+				remove(node);
+				addLast(node);
+			}
+		}
+
+		void clear() {
+			head = null;
+			tail = null;
+			weight = 0;
+		}
+	}
+
+	/**
+	 * Count-min sketch with 4-bit counters, four per hash, 16 per long.
+	 * Counters are halved periodically so frequency reflects recent history.
+	 */
+	private static class FrequencySketch {
+		private static final long[] SEED = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+		private static final long RESET_MASK = 0x7777777777777777L;
+
+		private long[] table = new long[16];
+		private int tableMask = 15;
+		private int sampleSize = 160;
+		private int size;
+
+		void ensureCapacity(long expectedEntries) {
+			final int capacity = (int) Math.min(Math.max(expectedEntries, 16), 1 << 24);
+			final int length = HashCommon.nextPowerOfTwo(capacity);
+
+			if (length > table.length) {
+				table = new long[length];
+				tableMask = length - 1;
+				sampleSize = 10 * capacity;
+				size = 0;
+			}
+		}
+
+		int frequency(int hash) {
+			final int start = (hash & 3) << 2;
+			int result = Integer.MAX_VALUE;
+
+			for (int i = 0; i < 4; ++i) {
+				final int index = indexOf(hash, i);
+				final int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xFL);
+				result = Math.min(result, count);
+			}
+
+			return result;
+		}
+
+		void increment(int hash) {
+			final int start = (hash & 3) << 2;
+			boolean added = false;
+
+			for (int i = 0; i < 4; ++i) {
+				final int index = indexOf(hash, i);
+				final int offset = (start + i) << 2;
+				final long mask = 0xFL << offset;
+
+				if ((table[index] & mask) != mask) {
+					table[index] += 1L << offset;
+					added = true;
+				}
+			}
+
+			if (added && ++size == sampleSize) {
+				for (int i = 0; i < table.length; ++i) {
+					table[i] = (table[i] >>> 1) & RESET_MASK;
+				}
+
+				size >>>= 1;
+			}
+		}
+
+		private int indexOf(int hash, int i) {
+			long h = (hash + SEED[i]) * SEED[i];
+			h += h >>> 32;
+			return ((int) h) & tableMask;
+		}
 	}
 }
@@ -17,7 +17,6 @@ package grondag.xm.mesh;
 
 import static org.apiguardian.api.API.Status.INTERNAL;
 
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -31,6 +30,9 @@ import grondag.xm.api.mesh.polygon.Polygon;
 abstract class AbstractXmMesh implements XmMesh {
 	protected IntStream stream;
 
+	/** Storage for streams claimed by this mesh. Set by the pool before each claim. */
+	protected MeshStreamBacking backing = MeshStreamBacking.PAGED;
+
 	/**
 	 * Address in stream where poly info starts. Some streams with additional
 	 * metadata may start at something other than zero.
@@ -224,7 +226,7 @@ abstract class AbstractXmMesh implements XmMesh {
 		}
 	}
 
-	private static class ThreadSafeReader extends StreamBackedPolygon {
+	static class ThreadSafeReader extends StreamBackedPolygon {
 
 		@Override
 		public final void release() {
@@ -234,11 +236,11 @@ abstract class AbstractXmMesh implements XmMesh {
 			}
 			stream = null;
 			mesh = null;
-			safeReaders.offer(this);
+			SAFE_READERS.offer(this);
 		}
 	}
 
-	private static final ArrayBlockingQueue<ThreadSafeReader> safeReaders = new ArrayBlockingQueue<>(256);
+	static final MeshPool<ThreadSafeReader> SAFE_READERS = new MeshPool<>(256);
 
 	/**
 	 * True once our release method has been called. Reset on prepare.
@@ -257,7 +259,7 @@ abstract class AbstractXmMesh implements XmMesh {
 			throw new UnsupportedOperationException("Cannot claim threadsafe reader on released stream.");
 		}
 
-		ThreadSafeReader reader = safeReaders.poll();
+		ThreadSafeReader reader = SAFE_READERS.poll();
 		if (reader == null) {
 			reader = new ThreadSafeReader();
 		}
@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.mesh;
+
+import static org.apiguardian.api.API.Status.INTERNAL;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import org.apiguardian.api.API;
+
+import grondag.fermion.intstream.IntStream;
+
+/**
+ * Int stream backed by a single contiguous buffer, either on-heap or direct.
+ * Stream-to-stream copies between contiguous streams are a single bulk transfer
+ * instead of per-int reads and writes through page lookups.
+ * <p>
+ *
+ * Grows by doubling, which copies existing content. Tracks the highest written
+ * address so that clear and copy only touch memory that has actually been used.
+ * Reads beyond that address return zero, same as unwritten pages in paged streams.
+ * <p>
+ *
+ * Instances are pooled by backing type. Direct buffers are expensive to allocate
+ * and are only freed by GC, so they should not be created casually.
+ * <p>
+ *
+ * Buffer positions are set through {@link Buffer} because the covariant overrides
+ * added in Java 9 do not exist on Java 8 runtimes.
+ */
+@API(status = INTERNAL)
+final class ContiguousIntStream implements IntStream {
+	private static final int MIN_CAPACITY = 1024;
+	private static final int[] ZEROS = new int[MIN_CAPACITY];
+
+	private static final ArrayBlockingQueue<ContiguousIntStream> HEAP_POOL = new ArrayBlockingQueue<>(512);
+	private static final ArrayBlockingQueue<ContiguousIntStream> DIRECT_POOL = new ArrayBlockingQueue<>(512);
+
+	private final boolean isDirect;
+	private IntBuffer buffer;
+	private int capacity;
+
+	/** One past the highest address written since last clear. */
+	private int limit;
+
+	private ContiguousIntStream(boolean isDirect, int capacity) {
+		this.isDirect = isDirect;
+		this.capacity = capacity;
+		buffer = allocate(isDirect, capacity);
+	}
+
+	static ContiguousIntStream claim(boolean isDirect, int minCapacity) {
+		ContiguousIntStream result = (isDirect ? DIRECT_POOL : HEAP_POOL).poll();
+
+		if (result == null) {
+			result = new ContiguousIntStream(isDirect, capacityFor(minCapacity));
+		} else if (result.capacity < minCapacity) {
+			result.grow(minCapacity);
+		}
+
+		return result;
+	}
+
+	private static int capacityFor(int minCapacity) {
+		return minCapacity <= MIN_CAPACITY ? MIN_CAPACITY : Integer.highestOneBit(minCapacity - 1) << 1;
+	}
+
+	private static IntBuffer allocate(boolean isDirect, int capacity) {
+		return isDirect ? ByteBuffer.allocateDirect(capacity * 4).order(ByteOrder.nativeOrder()).asIntBuffer() : IntBuffer.allocate(capacity);
+	}
+
+	private void grow(int minCapacity) {
+		resize(capacityFor(minCapacity));
+	}
+
+	private void resize(int newCapacity) {
+		final IntBuffer newBuffer = allocate(isDirect, newCapacity);
+
+		if (limit > 0) {
+			final IntBuffer src = buffer.duplicate();
+			((Buffer) src).position(0).limit(limit);
+			newBuffer.put(src);
+		}
+
+		buffer = newBuffer;
+		capacity = newCapacity;
+	}
+
+	@Override
+	public int get(int address) {
+		return address < limit ? buffer.get(address) : 0;
+	}
+
+	@Override
+	public void set(int address, int value) {
+		if (address >= limit) {
+			if (address >= capacity) {
+				grow(address + 1);
+			}
+
+			limit = address + 1;
+		}
+
+		buffer.put(address, value);
+	}
+
+	@Override
+	public float getFloat(int address) {
+		return Float.intBitsToFloat(get(address));
+	}
+
+	@Override
+	public void setFloat(int address, float value) {
+		set(address, Float.floatToRawIntBits(value));
+	}
+
+	private void ensureLimit(int end) {
+		if (end > limit) {
+			if (end > capacity) {
+				grow(end);
+			}
+
+			limit = end;
+		}
+	}
+
+	@Override
+	public void copyFrom(int targetAddress, IntStream source, int sourceAddress, int length) {
+		if (length <= 0) {
+			return;
+		}
+
+		if (source instanceof ContiguousIntStream) {
+			final ContiguousIntStream src = (ContiguousIntStream) source;
+			// content beyond source limit is zero, and so is the target after clear,
+			// but target may hold prior data so zero-fill any remainder explicitly
+			final int available = Math.max(0, Math.min(length, src.limit - sourceAddress));
+			ensureLimit(targetAddress + length);
+
+			if (available > 0) {
+				final IntBuffer from = src.buffer.duplicate();
+				((Buffer) from).position(sourceAddress).limit(sourceAddress + available);
+				final IntBuffer to = buffer.duplicate();
+				((Buffer) to).position(targetAddress);
+				to.put(from);
+			}
+
+			if (available < length) {
+				zero(targetAddress + available, length - available);
+			}
+		} else {
+			for (int i = 0; i < length; ++i) {
+				set(targetAddress + i, source.get(sourceAddress + i));
+			}
+		}
+	}
+
+	private void zero(int address, int length) {
+		final IntBuffer dst = buffer.duplicate();
+		((Buffer) dst).position(address);
+
+		while (length > 0) {
+			final int n = Math.min(length, ZEROS.length);
+			dst.put(ZEROS, 0, n);
+			length -= n;
+		}
+	}
+
+	@Override
+	public void clear() {
+		if (limit > 0) {
+			zero(0, limit);
+			limit = 0;
+		}
+	}
+
+	@Override
+	public void compact() {
+		final int target = capacityFor(limit);
+
+		if (target < capacity) {
+			resize(target);
+		}
+	}
+
+	@Override
+	public int capacity() {
+		return capacity;
+	}
+
+	@Override
+	public void release() {
+		clear();
+		(isDirect ? DIRECT_POOL : HEAP_POOL).offer(this);
+	}
+}
@@ -48,9 +48,13 @@ public class CsgMeshBuilderImpl implements CsgMeshBuilder {
 	private CsgMesh output = XmMeshes.claimCsg();
 	private boolean hasOutput = false;
 	private int pendingOp = NO_OP;
+	private final ObjectArrayList<CsgMesh> unionOperands = new ObjectArrayList<>();
+	private final ObjectArrayList<CsgMesh> differenceOperands = new ObjectArrayList<>();
 
 	@Override
 	public void push() {
+		checkNoBatch();
+
 		if(hasOutput) {
 			applyPendingOp(temp);
 			outputStack.push(output);
@@ -83,6 +87,8 @@ public class CsgMeshBuilderImpl implements CsgMeshBuilder {
 
 	@Override
 	public CsgMesh input() {
+		checkNoBatch();
+
 		if (hasOutput) {
 			applyPendingOp(temp);
 			return input;
@@ -106,7 +112,9 @@ public class CsgMeshBuilderImpl implements CsgMeshBuilder {
 
 		final MutableMesh target = XmMeshes.claimMutable();
 
-		if(pendingOp == NO_OP) {
+		if (hasBatch()) {
+			resolveBatch(target);
+		} else if(pendingOp == NO_OP) {
 			output.outputRecombinedQuads(target);
 		} else {
 			applyPendingOp(target);
@@ -125,6 +133,8 @@ public class CsgMeshBuilderImpl implements CsgMeshBuilder {
 	/** must be the first operation */
 	@Override
 	public void union() {
+		checkNoBatch();
+
 		if(hasOutput) {
 			pendingOp = UNION;
 		} else {
@@ -134,6 +144,8 @@ public class CsgMeshBuilderImpl implements CsgMeshBuilder {
 
 	@Override
 	public void intersect() {
+		checkNoBatch();
+
 		if(hasOutput) {
 			pendingOp = INTERSECT;
 		} else
@@ -142,12 +154,155 @@ public class CsgMeshBuilderImpl implements CsgMeshBuilder {
 
 	@Override
 	public void difference() {
+		checkNoBatch();
+
 		if(hasOutput) {
 			pendingOp = DIFFERENCE;
 		} else
 			throw new UnsupportedOperationException("First operation must be union.");
 	}
 
+	@Override
+	public CsgMesh unionOperand() {
+		final CsgMesh result = XmMeshes.claimCsg();
+		unionOperands.add(result);
+		return result;
+	}
+
+	@Override
+	public CsgMesh differenceOperand() {
+		final CsgMesh result = XmMeshes.claimCsg();
+		differenceOperands.add(result);
+		return result;
+	}
+
+	private boolean hasBatch() {
+		return !unionOperands.isEmpty() || !differenceOperands.isEmpty();
+	}
+
+	private void checkNoBatch() {
+		if (hasBatch()) {
+			throw new IllegalStateException("Pairwise CSG operation with pending batch operands.");
+		}
+	}
+
+	/**
+	 * Resolves union and difference operands. Each union operand is clipped to
+	 * every other union operand. With no difference operands, the survivors are
+	 * the result. Otherwise both sides are merged into a single mesh, which builds
+	 * one more tree per side, and a single difference produces the result.
+	 */
+	private void resolveBatch(WritableMesh target) {
+		if (hasOutput) {
+			applyPendingOp(temp);
+			unionOperands.add(0, output);
+			output = XmMeshes.claimCsg();
+			input.clear();
+			hasOutput = false;
+		}
+
+		// empty meshes have no BSP tree to clip against
+		removeEmpty(unionOperands);
+		removeEmpty(differenceOperands);
+
+		if (!unionOperands.isEmpty()) {
+			clipUnion(unionOperands);
+
+			if (differenceOperands.isEmpty()) {
+				for (final CsgMesh mesh : unionOperands) {
+					mesh.outputRecombinedQuads(target);
+				}
+			} else {
+				clipUnion(differenceOperands);
+				final CsgMesh a = merge(unionOperands);
+				final CsgMesh b = merge(differenceOperands);
+
+				Csg.difference(a, b, target);
+
+				if (a != unionOperands.get(0)) {
+					a.release();
+				}
+
+				if (b != differenceOperands.get(0)) {
+					b.release();
+				}
+			}
+		}
+
+		for (final CsgMesh mesh : unionOperands) {
+			mesh.release();
+		}
+
+		for (final CsgMesh mesh : differenceOperands) {
+			mesh.release();
+		}
+
+		unionOperands.clear();
+		differenceOperands.clear();
+	}
+
+	private static void removeEmpty(ObjectArrayList<CsgMesh> operands) {
+		for (int i = operands.size() - 1; i >= 0; --i) {
+			if (operands.get(i).isEmpty()) {
+				operands.remove(i).release();
+			}
+		}
+	}
+
+	/**
+	 * Removes the parts of each operand that are inside any other operand.
+	 * Coplanar faces shared by two operands are kept only in the earlier one,
+	 * same as {@link Csg#union(CsgMesh, CsgMesh, WritableMesh)}.
+	 */
+	private static void clipUnion(ObjectArrayList<CsgMesh> operands) {
+		final int limit = operands.size();
+
+		for (int i = 0; i < limit; ++i) {
+			operands.get(i).complete();
+		}
+
+		if (limit == 1) {
+			return;
+		}
+
+		for (int i = 0; i < limit; ++i) {
+			final CsgMesh target = operands.get(i);
+
+			for (int j = 0; j < limit; ++j) {
+				if (j == i) {
+					continue;
+				}
+
+				final CsgMesh clip = operands.get(j);
+				target.clipTo(clip);
+
+				if (j < i) {
+					target.invert();
+					target.clipTo(clip);
+					target.invert();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copies surviving polys of clipped operands into one mesh. Tags are retained so
+	 * fragments of the same original poly can still be recombined.
+	 */
+	private static CsgMesh merge(ObjectArrayList<CsgMesh> operands) {
+		if (operands.size() == 1) {
+			return operands.get(0);
+		}
+
+		final CsgMesh result = XmMeshes.claimCsg();
+
+		for (final CsgMesh mesh : operands) {
+			result.appendAll(mesh);
+		}
+
+		return result;
+	}
+
 	private void applyPendingOp(WritableMesh target) {
 		switch(pendingOp) {
 		case UNION:
@@ -23,7 +23,6 @@ import it.unimi.dsi.fastutil.ints.IntArrayList;
 import org.apiguardian.api.API;
 
 import grondag.fermion.intstream.IntStream;
-import grondag.fermion.intstream.IntStreams;
 import grondag.xm.api.mesh.CsgMesh;
 import grondag.xm.api.mesh.WritableMesh;
 import grondag.xm.api.mesh.polygon.PolyHelper;
@@ -42,6 +41,14 @@ import grondag.xm.api.mesh.polygon.Vec3f;
  * Also tracks AABB for the mesh overall and for individual polys as a way to
  * optimize bounds testing for CSG operations.
  * <p>
+ *
+ * Each BSP node keeps the AABB of all polys that reached it while the tree was
+ * built, so the root node holds bounds for the whole mesh. A poly that does not
+ * overlap the bounds of a subtree cannot cross the mesh surface within that subtree.
+ * Clipping resolves such polys by walking the subtree without splitting and then keeps
+ * or deletes them whole, which avoids creating fragments that would later need to be
+ * recombined.
+ * <p>
  */
 @API(status = INTERNAL)
 class CsgMeshImpl extends MutableMeshImpl implements CsgMesh {
@@ -98,7 +105,13 @@ class CsgMeshImpl extends MutableMeshImpl implements CsgMesh {
 	private static final int NODE_PLANE_NORMAL_X = 3;
 	private static final int NODE_PLANE_NORMAL_Y = 4;
 	private static final int NODE_PLANE_NORMAL_Z = 5;
-	private static final int NODE_STRIDE = 6;
+	private static final int NODE_MIN_X = 6;
+	private static final int NODE_MIN_Y = 7;
+	private static final int NODE_MIN_Z = 8;
+	private static final int NODE_MAX_X = 9;
+	private static final int NODE_MAX_Y = 10;
+	private static final int NODE_MAX_Z = 11;
+	private static final int NODE_STRIDE = 12;
 
 	private static final int NO_NODE_ADDRESS = -1;
 
@@ -109,6 +122,35 @@ class CsgMeshImpl extends MutableMeshImpl implements CsgMesh {
 		}
 	};
 
+	/** Captures AABB of poly as minX, minY, minZ, maxX, maxY, maxZ. */
+	private static void polyBounds(Polygon poly, float[] bounds) {
+		float minX = poly.x(0);
+		float minY = poly.y(0);
+		float minZ = poly.z(0);
+		float maxX = minX;
+		float maxY = minY;
+		float maxZ = minZ;
+
+		final int vCount = poly.vertexCount();
+
+		for (int i = 1; i < vCount; i++) {
+			final float x = poly.x(i);
+			final float y = poly.y(i);
+			final float z = poly.z(i);
+
+			if (x < minX) minX = x; else if (x > maxX) maxX = x;
+			if (y < minY) minY = y; else if (y > maxY) maxY = y;
+			if (z < minZ) minZ = z; else if (z > maxZ) maxZ = z;
+		}
+
+		bounds[0] = minX;
+		bounds[1] = minY;
+		bounds[2] = minZ;
+		bounds[3] = maxX;
+		bounds[4] = maxY;
+		bounds[5] = maxZ;
+	}
+
 	private IntStream nodeStream;
 
 	private int nextNodeAddress = 0;
@@ -117,9 +159,15 @@ class CsgMeshImpl extends MutableMeshImpl implements CsgMesh {
 
 	private boolean isInverted = false;
 
+	/** Poly AABB for BSP build. */
+	private final float[] buildBounds = new float[6];
+
+	/** Poly AABB when this mesh is the target of a clip. */
+	private final float[] clipBounds = new float[6];
+
 	protected void prepare() {
 		super.prepare(0);
-		nodeStream = IntStreams.claim();
+		nodeStream = backing.claim();
 		clear();
 	}
 
@@ -258,8 +306,11 @@ class CsgMeshImpl extends MutableMeshImpl implements CsgMesh {
 
 	private void buildBSPInner(IntArrayList stack, final int polyAddress, int nodeAddress) {
 		polyB.moveTo(polyAddress);
+		final float[] bounds = buildBounds;
+		polyBounds(polyB, bounds);
 
 		do {
+			expandNodeBounds(nodeAddress, bounds);
 			final float normalX = normalX(nodeAddress);
 			final float normalY = normalY(nodeAddress);
 			final float normalZ = normalZ(nodeAddress);
@@ -536,22 +587,32 @@ class CsgMeshImpl extends MutableMeshImpl implements CsgMesh {
 		assert stack.isEmpty();
 		int nodeAddress = 0;
 
-		clipPolyInner(stack, targetStream, clippingStream, polyAddress, 0);
+		// Fragments are contained in the original poly, so its bounds are
+		// a conservative stand-in for theirs.
+		final float[] bounds = targetStream.clipBounds;
+		targetStream.polyB.moveTo(polyAddress);
+		polyBounds(targetStream.polyB, bounds);
+
+		clipPolyInner(stack, targetStream, clippingStream, polyAddress, 0, bounds);
 
 		while (!stack.isEmpty()) {
 			nodeAddress = stack.popInt();
 			polyAddress = stack.popInt();
-			clipPolyInner(stack, targetStream, clippingStream, polyAddress, nodeAddress);
+			clipPolyInner(stack, targetStream, clippingStream, polyAddress, nodeAddress, bounds);
 		}
-
 	}
 
 	private static void clipPolyInner(IntArrayList stack, CsgMeshImpl targetStream, final CsgMeshImpl clippingStream, final int polyAddress,
-			int nodeAddress) {
+			int nodeAddress, float[] bounds) {
 		final StreamBackedPolygon polyB = targetStream.polyB;
 		polyB.moveTo(polyAddress);
 
 		do {
+			if (clippingStream.isDisjoint(nodeAddress, bounds)) {
+				clipDisjoint(targetStream, clippingStream, polyB, nodeAddress);
+				return;
+			}
+
 			final float normalX = clippingStream.normalX(nodeAddress);
 			final float normalY = clippingStream.normalY(nodeAddress);
 			final float normalZ = clippingStream.normalZ(nodeAddress);
@@ -753,6 +814,83 @@ class CsgMeshImpl extends MutableMeshImpl implements CsgMesh {
 		} while (true);
 	}
 
+	/**
+	 * Finishes clipping of a poly that does not overlap the bounds of the subtree at the given node.
+	 * Because the mesh surface within the subtree is contained in those bounds, every part of the poly
+	 * would reach the same kind of leaf. Follows the tree without splitting, taking the front branch
+	 * for spanning polys, and then keeps or deletes the poly as a whole.
+	 */
+	private static void clipDisjoint(CsgMeshImpl targetStream, CsgMeshImpl clippingStream, StreamBackedPolygon polyB, int nodeAddress) {
+		final int vCount = polyB.vertexCount();
+
+		do {
+			final float normalX = clippingStream.normalX(nodeAddress);
+			final float normalY = clippingStream.normalY(nodeAddress);
+			final float normalZ = clippingStream.normalZ(nodeAddress);
+			final float dist = clippingStream.dist(nodeAddress);
+			int combinedCount = 0;
+
+			for (int i = 0; i < vCount; i++) {
+				combinedCount += vertexIncrement(polyB.x(i), polyB.y(i), polyB.z(i), normalX, normalY, normalZ, dist);
+			}
+
+			boolean isFront = (combinedCount & FRONT_MASK) != 0;
+
+			if (combinedCount == 0) {
+				// coplanar - same rule as full clip
+				float faceNormX = polyB.faceNormalX();
+				float faceNormY = polyB.faceNormalY();
+				float faceNormZ = polyB.faceNormalZ();
+				if (targetStream.isInverted()) {
+					faceNormX = -faceNormX;
+					faceNormY = -faceNormY;
+					faceNormZ = -faceNormZ;
+				}
+				isFront = faceNormX * normalX + faceNormY * normalY + faceNormZ * normalZ > 0;
+			}
+
+			if (isFront) {
+				nodeAddress = clippingStream.getFrontNode(nodeAddress);
+
+				if (nodeAddress == NO_NODE_ADDRESS) {
+					return;
+				}
+			} else {
+				nodeAddress = clippingStream.getBackNode(nodeAddress);
+
+				if (nodeAddress == NO_NODE_ADDRESS) {
+					polyB.delete();
+					return;
+				}
+			}
+		} while (true);
+	}
+
+	/**
+	 * True if the given AABB is separated from the bounds of the subtree at
+	 * the given node by more than {@link PolyHelper#EPSILON} on any axis.
+	 */
+	private boolean isDisjoint(int nodeAddress, float[] bounds) {
+		final IntStream nodeStream = this.nodeStream;
+		return bounds[0] > nodeStream.getFloat(nodeAddress + NODE_MAX_X) + PolyHelper.EPSILON
+				|| bounds[3] < nodeStream.getFloat(nodeAddress + NODE_MIN_X) - PolyHelper.EPSILON
+				|| bounds[1] > nodeStream.getFloat(nodeAddress + NODE_MAX_Y) + PolyHelper.EPSILON
+				|| bounds[4] < nodeStream.getFloat(nodeAddress + NODE_MIN_Y) - PolyHelper.EPSILON
+				|| bounds[2] > nodeStream.getFloat(nodeAddress + NODE_MAX_Z) + PolyHelper.EPSILON
+				|| bounds[5] < nodeStream.getFloat(nodeAddress + NODE_MIN_Z) - PolyHelper.EPSILON;
+	}
+
+	private void expandNodeBounds(int nodeAddress, float[] bounds) {
+		final IntStream nodeStream = this.nodeStream;
+
+		if (bounds[0] < nodeStream.getFloat(nodeAddress + NODE_MIN_X)) nodeStream.setFloat(nodeAddress + NODE_MIN_X, bounds[0]);
+		if (bounds[1] < nodeStream.getFloat(nodeAddress + NODE_MIN_Y)) nodeStream.setFloat(nodeAddress + NODE_MIN_Y, bounds[1]);
+		if (bounds[2] < nodeStream.getFloat(nodeAddress + NODE_MIN_Z)) nodeStream.setFloat(nodeAddress + NODE_MIN_Z, bounds[2]);
+		if (bounds[3] > nodeStream.getFloat(nodeAddress + NODE_MAX_X)) nodeStream.setFloat(nodeAddress + NODE_MAX_X, bounds[3]);
+		if (bounds[4] > nodeStream.getFloat(nodeAddress + NODE_MAX_Y)) nodeStream.setFloat(nodeAddress + NODE_MAX_Y, bounds[4]);
+		if (bounds[5] > nodeStream.getFloat(nodeAddress + NODE_MAX_Z)) nodeStream.setFloat(nodeAddress + NODE_MAX_Z, bounds[5]);
+	}
+
 	/**
 	 * Appends all non-deleted polys to the given output, recombining polys that
 	 * have been split as much as possible. Outputs will all be quads or tris. (No
@@ -794,6 +932,9 @@ class CsgMeshImpl extends MutableMeshImpl implements CsgMesh {
 	private int createNode(int polyAddress) {
 		final Polygon p = reader(polyAddress);
 		final int newNodeAddress = createNode(p.faceNormal(), p.x(0), p.y(0), p.z(0));
+		final float[] bounds = buildBounds;
+		polyBounds(p, bounds);
+		expandNodeBounds(newNodeAddress, bounds);
 		return newNodeAddress;
 	}
 
@@ -811,6 +952,13 @@ class CsgMeshImpl extends MutableMeshImpl implements CsgMesh {
 		nodeStream.setFloat(newNodeAddress + NODE_PLANE_NORMAL_X, normal.x());
 		nodeStream.setFloat(newNodeAddress + NODE_PLANE_NORMAL_Y, normal.y());
 		nodeStream.setFloat(newNodeAddress + NODE_PLANE_NORMAL_Z, normal.z());
+		// empty bounds - expanded as polys are added
+		nodeStream.setFloat(newNodeAddress + NODE_MIN_X, Float.MAX_VALUE);
+		nodeStream.setFloat(newNodeAddress + NODE_MIN_Y, Float.MAX_VALUE);
+		nodeStream.setFloat(newNodeAddress + NODE_MIN_Z, Float.MAX_VALUE);
+		nodeStream.setFloat(newNodeAddress + NODE_MAX_X, -Float.MAX_VALUE);
+		nodeStream.setFloat(newNodeAddress + NODE_MAX_Y, -Float.MAX_VALUE);
+		nodeStream.setFloat(newNodeAddress + NODE_MAX_Z, -Float.MAX_VALUE);
 		return newNodeAddress;
 	}
 }
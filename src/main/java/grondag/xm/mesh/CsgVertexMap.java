@@ -23,6 +23,7 @@ import it.unimi.dsi.fastutil.floats.FloatArrayList;
 import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
 import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
 import it.unimi.dsi.fastutil.longs.LongComparators;
 import org.apiguardian.api.API;
@@ -34,6 +35,11 @@ import grondag.xm.api.mesh.polygon.Polygon;
 @API(status = INTERNAL)
 /**
  * Groups proximate vertices for face recombination.
+ * <p>
+ *
+ * Cluster centers are indexed in a uniform grid with cells as wide as the
+ * match distance, so only the (at most 8) cells overlapping the match
+ * radius around a vertex need to be checked to find its cluster.
  */
 class CsgVertexMap {
 
@@ -42,6 +48,27 @@ class CsgVertexMap {
 	 */
 	private final FloatArrayList clusters = new FloatArrayList();
 
+	/** Match distance, squared. */
+	private static final float CLUSTER_DIST_SQ = PolyHelper.EPSILON;
+
+	private static final float CLUSTER_DIST = (float) Math.sqrt(CLUSTER_DIST_SQ);
+
+	private static final float INVERSE_CELL_SIZE = 1f / CLUSTER_DIST;
+
+	private static final int CELL_BITS = 21;
+	private static final long CELL_MASK = (1L << CELL_BITS) - 1;
+
+	/**
+	 * Grid cell key to the most recently created cluster in that cell.
+	 * Older clusters in the same cell are chained through {@link #clusterNext}.
+	 */
+	private final Long2IntOpenHashMap cellHeads = new Long2IntOpenHashMap();
+
+	/**
+	 * Next (older) cluster in the same grid cell, indexed by cluster index / 3.
+	 */
+	private final IntArrayList clusterNext = new IntArrayList();
+
 	private final IntArrayList vertices = new IntArrayList();
 
 	private static final int VERTEX_POLY_ID = 0;
@@ -74,6 +101,10 @@ class CsgVertexMap {
 	private static final int MATCH_POLY_B = 2;
 	private static final int MATCH_VERTEX_B = 3;
 
+	CsgVertexMap() {
+		cellHeads.defaultReturnValue(NONE);
+	}
+
 	void add(int polyId, Polygon poly) {
 		final IntArrayList vertices = this.vertices;
 		final LongArrayList clusterMap = this.clusterMap;
@@ -90,25 +121,88 @@ class CsgVertexMap {
 		isClusterMapDirty = true;
 	}
 
-	private int findOrCreateCluster(float x, float y, float z) {
-		final FloatArrayList clusters = this.clusters;
-		final int limit = clusters.size();
-		int i  = 0;
-		while (i < limit) {
-			final float dx = x - clusters.getFloat(i++);
-			final float dy = y - clusters.getFloat(i++);
-			final float dz = z - clusters.getFloat(i++);
-			if(dx * dx + dy * dy + dz * dz < PolyHelper.EPSILON)
-				return i - 3;
+	/**
+	 * Returns index of first cluster created within match distance
+	 * of the given point, or creates a new cluster if none match.
+	 * Result is the index of the cluster x coordinate in {@link #clusters}.
+	 */
+	int findOrCreateCluster(float x, float y, float z) {
+		final int x0 = cell(x - CLUSTER_DIST);
+		final int x1 = cell(x + CLUSTER_DIST);
+		final int y0 = cell(y - CLUSTER_DIST);
+		final int y1 = cell(y + CLUSTER_DIST);
+		final int z0 = cell(z - CLUSTER_DIST);
+		final int z1 = cell(z + CLUSTER_DIST);
+
+		int result = NONE;
+
+		for (int cx = x0; cx <= x1; cx++) {
+			for (int cy = y0; cy <= y1; cy++) {
+				for (int cz = z0; cz <= z1; cz++) {
+					result = findInCell(cellKey(cx, cy, cz), x, y, z, result);
+				}
+			}
 		}
+
+		if (result != NONE) {
+			return result;
+		}
+
+		final FloatArrayList clusters = this.clusters;
+		result = clusters.size();
 		clusters.add(x);
 		clusters.add(y);
 		clusters.add(z);
-		return i;
+
+		final long key = cellKey(cell(x), cell(y), cell(z));
+		clusterNext.add(cellHeads.get(key));
+		cellHeads.put(key, result);
+
+		return result;
+	}
+
+	/**
+	 * Checks clusters in one grid cell and returns the lowest matching
+	 * index, or {@code best} if it is lower. Lowest index is preferred so
+	 * results do not depend on the order cells are visited.
+	 */
+	private int findInCell(long key, float x, float y, float z, int best) {
+		final FloatArrayList clusters = this.clusters;
+		int i = cellHeads.get(key);
+
+		while (i != NONE) {
+			if (best == NONE || i < best) {
+				final float dx = x - clusters.getFloat(i);
+				final float dy = y - clusters.getFloat(i + 1);
+				final float dz = z - clusters.getFloat(i + 2);
+
+				if (dx * dx + dy * dy + dz * dz < CLUSTER_DIST_SQ) {
+					best = i;
+				}
+			}
+
+			i = clusterNext.getInt(i / 3);
+		}
+
+		return best;
+	}
+
+	private static int cell(float coordinate) {
+		return (int) Math.floor(coordinate * INVERSE_CELL_SIZE);
+	}
+
+	/**
+	 * Cell coordinates wrap outside the key range. That only adds candidates
+	 * to a cell because each candidate is tested by actual distance.
+	 */
+	private static long cellKey(int cx, int cy, int cz) {
+		return (cx & CELL_MASK) | ((cy & CELL_MASK) << CELL_BITS) | ((cz & CELL_MASK) << (CELL_BITS * 2));
 	}
 
 	void clear() {
 		clusters.clear();
+		clusterNext.clear();
+		cellHeads.clear();
 		vertices.clear();
 		clusterMap.clear();
 		isClusterMapDirty = false;
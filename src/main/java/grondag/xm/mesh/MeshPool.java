@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.mesh;
+
+import static org.apiguardian.api.API.Status.INTERNAL;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apiguardian.api.API;
+
+/**
+ * Pool for mesh and reader instances, which are claimed and released on chunk
+ * builder threads for every model emit.
+ * <p>
+ *
+ * Each thread keeps a small stack of released instances and only goes to the
+ * shared pool when that is empty or full. The shared pool is a bounded lock-free
+ * MPMC ring buffer (Vyukov) so there is no lock on either path. Instances released
+ * when both are full are left for the garbage collector.
+ */
+@API(status = INTERNAL)
+class MeshPool<T> {
+	private static final int LOCAL_CAPACITY = 16;
+
+	private final ThreadLocal<LocalStack> local = ThreadLocal.withInitial(LocalStack::new);
+
+	private final int mask;
+	private final AtomicReferenceArray<T> buffer;
+	private final AtomicLongArray sequences;
+	private final AtomicLong enqueuePos = new AtomicLong();
+	private final AtomicLong dequeuePos = new AtomicLong();
+
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder discardCount = new LongAdder();
+
+	/**
+	 * @param capacity shared pool size, rounded up to a power of two
+	 */
+	MeshPool(int capacity) {
+		final int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		mask = size - 1;
+		buffer = new AtomicReferenceArray<>(size);
+		sequences = new AtomicLongArray(size);
+
+		for (int i = 0; i < size; ++i) {
+			sequences.set(i, i);
+		}
+	}
+
+	/**
+	 * Pooled instance or null if none available. Caller should allocate on null.
+	 */
+	@SuppressWarnings("unchecked")
+	T poll() {
+		final LocalStack stack = local.get();
+
+		if (stack.size > 0) {
+			final T result = (T) stack.items[--stack.size];
+			stack.items[stack.size] = null;
+			hitCount.increment();
+			return result;
+		}
+
+		final T result = pollShared();
+
+		if (result == null) {
+			missCount.increment();
+		} else {
+			hitCount.increment();
+		}
+
+		return result;
+	}
+
+	void offer(T item) {
+		final LocalStack stack = local.get();
+
+		if (stack.size < LOCAL_CAPACITY) {
+			stack.items[stack.size++] = item;
+		} else if (!offerShared(item)) {
+			discardCount.increment();
+		}
+	}
+
+	private T pollShared() {
+		long pos = dequeuePos.get();
+
+		for (;;) {
+			final int index = (int) pos & mask;
+			final long delta = sequences.get(index) - (pos + 1);
+
+			if (delta == 0) {
+				if (dequeuePos.compareAndSet(pos, pos + 1)) {
+					final T result = buffer.get(index);
+					buffer.lazySet(index, null);
+					// frees the slot for the producer one lap ahead
+					sequences.set(index, pos + mask + 1);
+					return result;
+				}
+
+				pos = dequeuePos.get();
+			} else if (delta < 0) {
+				// slot not yet filled - empty
+				return null;
+			} else {
+				pos = dequeuePos.get();
+			}
+		}
+	}
+
+	private boolean offerShared(T item) {
+		long pos = enqueuePos.get();
+
+		for (;;) {
+			final int index = (int) pos & mask;
+			final long delta = sequences.get(index) - pos;
+
+			if (delta == 0) {
+				if (enqueuePos.compareAndSet(pos, pos + 1)) {
+					buffer.lazySet(index, item);
+					// publishes the item to consumers
+					sequences.set(index, pos + 1);
+					return true;
+				}
+
+				pos = enqueuePos.get();
+			} else if (delta < 0) {
+				// slot not yet consumed - full
+				return false;
+			} else {
+				pos = enqueuePos.get();
+			}
+		}
+	}
+
+	long hitCount() {
+		return hitCount.sum();
+	}
+
+	long missCount() {
+		return missCount.sum();
+	}
+
+	long discardCount() {
+		return discardCount.sum();
+	}
+
+	private static class LocalStack {
+		private final Object[] items = new Object[LOCAL_CAPACITY];
+		private int size;
+	}
+}
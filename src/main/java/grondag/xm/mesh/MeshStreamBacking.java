@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.mesh;
+
+import static org.apiguardian.api.API.Status.INTERNAL;
+
+import org.apiguardian.api.API;
+
+import grondag.fermion.intstream.IntStream;
+import grondag.fermion.intstream.IntStreams;
+
+/**
+ * Storage used for mesh int streams. Selected per mesh pool in {@link XmMeshesImpl}.
+ */
+@API(status = INTERNAL)
+public enum MeshStreamBacking {
+	/** Fermion paged streams - grow in fixed-size blocks without copying. */
+	PAGED {
+		@Override
+		IntStream claim() {
+			return IntStreams.claim();
+		}
+
+		@Override
+		IntStream claim(int minCapacity) {
+			return IntStreams.claim(minCapacity);
+		}
+	},
+
+	/** Single contiguous on-heap region. */
+	CONTIGUOUS {
+		@Override
+		IntStream claim() {
+			return ContiguousIntStream.claim(false, 0);
+		}
+
+		@Override
+		IntStream claim(int minCapacity) {
+			return ContiguousIntStream.claim(false, minCapacity);
+		}
+	},
+
+	/** Single contiguous native-order direct buffer. */
+	OFF_HEAP {
+		@Override
+		IntStream claim() {
+			return ContiguousIntStream.claim(true, 0);
+		}
+
+		@Override
+		IntStream claim(int minCapacity) {
+			return ContiguousIntStream.claim(true, minCapacity);
+		}
+	};
+
+	abstract IntStream claim();
+
+	abstract IntStream claim(int minCapacity);
+}
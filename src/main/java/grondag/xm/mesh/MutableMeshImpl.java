@@ -67,6 +67,45 @@ class MutableMeshImpl extends WritableMeshImpl implements MutableMesh {
 		return editor;
 	}
 
+	@Override
+	public void removeDeleted() {
+		final int limit = writeAddress;
+		int readAddress = originAddress;
+		int targetAddress = originAddress;
+
+		while (readAddress < limit) {
+			internal.moveTo(readAddress);
+			final int stride = internal.stride();
+
+			if (!internal.isDeleted()) {
+				if (targetAddress != readAddress) {
+					for (int i = 0; i < stride; ++i) {
+						stream.set(targetAddress + i, stream.get(readAddress + i));
+					}
+				}
+
+				targetAddress += stride;
+			}
+
+			readAddress += stride;
+		}
+
+		if (targetAddress != limit) {
+			// appends expect unused stream space to be zero
+			for (int i = targetAddress; i < limit; ++i) {
+				stream.set(i, 0);
+			}
+
+			writeAddress = targetAddress;
+		}
+
+		reader.invalidate();
+		polyA.invalidate();
+		polyB.invalidate();
+		internal.invalidate();
+		editor.invalidate();
+	}
+
 	@Override
 	protected void appendCopy(Polygon polyIn, int withFormat) {
 		final boolean needReaderLoad = reader.baseAddress == writeAddress;
@@ -56,7 +56,6 @@ import static org.apiguardian.api.API.Status.INTERNAL;
 import org.apiguardian.api.API;
 
 import grondag.fermion.intstream.IntStream;
-import grondag.fermion.varia.IndexedInterner;
 import grondag.xm.api.mesh.polygon.Polygon;
 import grondag.xm.api.mesh.polygon.Vec3f;
 import grondag.xm.mesh.EncoderFunctions.FloatGetter;
@@ -69,8 +68,6 @@ import grondag.xm.mesh.EncoderFunctions.IntSetter;
 class PolyEncoder {
 	private static final PolyEncoder[] ENCODERS = new PolyEncoder[POLY_FORMAT_COUNT];
 
-	private static final IndexedInterner<String> textureHandler = new IndexedInterner<>(String.class);
-
 	private static final float MISSING_NORMAL = Float.NaN;
 
 	static {
@@ -457,14 +454,16 @@ class PolyEncoder {
 	}
 
 	public final String getTextureName(IntStream stream, int baseAddress, int layerIndex) {
-		final int handle = layerIndex == 0 ? getTexture0.get(stream, baseAddress + textureOffset01)
-				: layerIndex == 1 ? getTexture1.get(stream, baseAddress + textureOffset01) : getTexture2.get(stream, baseAddress + textureOffset2);
+		return TextureHandles.fromHandle(getTextureHandle(stream, baseAddress, layerIndex));
+	}
 
-				return handle == 0 ? "" : textureHandler.fromHandle(handle);
+	public final int getTextureHandle(IntStream stream, int baseAddress, int layerIndex) {
+		return layerIndex == 0 ? getTexture0.get(stream, baseAddress + textureOffset01)
+				: layerIndex == 1 ? getTexture1.get(stream, baseAddress + textureOffset01) : getTexture2.get(stream, baseAddress + textureOffset2);
 	}
 
 	public final void setTextureName(IntStream stream, int baseAddress, int layerIndex, String textureName) {
-		final int handle = textureName == null || textureName.isEmpty() ? 0 : textureHandler.toHandle(textureName);
+		final int handle = TextureHandles.toHandle(textureName);
 		if (layerIndex == 0) {
 			setTexture0.set(stream, baseAddress + textureOffset01, handle);
 		} else if (layerIndex == 1) {
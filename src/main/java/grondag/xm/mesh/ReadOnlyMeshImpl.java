@@ -19,14 +19,13 @@ import static org.apiguardian.api.API.Status.INTERNAL;
 
 import org.apiguardian.api.API;
 
-import grondag.fermion.intstream.IntStreams;
 import grondag.xm.api.mesh.ReadOnlyMesh;
 import grondag.xm.api.mesh.polygon.Polygon;
 
 @API(status = INTERNAL)
 class ReadOnlyMeshImpl extends AbstractXmMesh implements ReadOnlyMesh {
 	void load(WritableMeshImpl streamIn, int formatFlags) {
-		prepare(IntStreams.claim(streamIn.stream.capacity()));
+		prepare(backing.claim(streamIn.stream.capacity()));
 
 		if (!streamIn.isEmpty()) {
 			final Polygon reader = streamIn.reader();
@@ -305,6 +305,11 @@ class StreamBackedPolygon implements Polygon {
 		return polyEncoder.getTextureName(stream, baseAddress, layerIndex);
 	}
 
+	@Override
+	public final int spriteHandle(int layerIndex) {
+		return polyEncoder.getTextureHandle(stream, baseAddress, layerIndex);
+	}
+
 	@Override
 	public final boolean shouldContractUVs(int layerIndex) {
 		return StaticEncoder.shouldContractUVs(stream, baseAddress, layerIndex);
@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.mesh;
+
+import static org.apiguardian.api.API.Status.INTERNAL;
+
+import org.apiguardian.api.API;
+
+import grondag.fermion.varia.IndexedInterner;
+
+/**
+ * Dense integer handles for sprite names stored in mesh streams.
+ * Handle 0 means no texture. Handles are stable for the life of the session,
+ * so they can index arrays of values derived from the name.
+ */
+@API(status = INTERNAL)
+public final class TextureHandles {
+	private TextureHandles() { }
+
+	private static final IndexedInterner<String> INTERNER = new IndexedInterner<>(String.class);
+
+	public static int toHandle(String textureName) {
+		return textureName == null || textureName.isEmpty() ? 0 : INTERNER.toHandle(textureName);
+	}
+
+	public static String fromHandle(int handle) {
+		return handle == 0 ? "" : INTERNER.fromHandle(handle);
+	}
+}
@@ -20,7 +20,6 @@ import static org.apiguardian.api.API.Status.INTERNAL;
 import org.apiguardian.api.API;
 
 import grondag.fermion.intstream.IntStream;
-import grondag.fermion.intstream.IntStreams;
 import grondag.xm.api.mesh.ReadOnlyMesh;
 import grondag.xm.api.mesh.WritableMesh;
 import grondag.xm.api.mesh.polygon.MutablePolygon;
@@ -75,8 +74,8 @@ class WritableMeshImpl extends AbstractXmMesh implements WritableMesh {
 	protected final void prepare(IntStream stream, int formatFlags) {
 		super.prepare(stream);
 		copyFrom.stream = stream;
-		defaultStream = IntStreams.claim();
-		writerStream = IntStreams.claim();
+		defaultStream = backing.claim();
+		writerStream = backing.claim();
 		writer.stream = writerStream;
 		this.formatFlags = formatFlags | MeshFormat.MUTABLE_FLAG;
 		clearDefaults();
@@ -84,7 +83,7 @@ class WritableMeshImpl extends AbstractXmMesh implements WritableMesh {
 	}
 
 	protected void prepare(int formatFlags) {
-		prepare(IntStreams.claim(), formatFlags);
+		prepare(backing.claim(), formatFlags);
 	}
 
 	@Override
@@ -18,11 +18,11 @@ package grondag.xm.mesh;
 import static org.apiguardian.api.API.Status.INTERNAL;
 
 import java.util.Random;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ThreadLocalRandom;
 
 import org.apiguardian.api.API;
 
+import grondag.xm.XmConfig;
 import grondag.xm.api.mesh.CsgMesh;
 import grondag.xm.api.mesh.MutableMesh;
 import grondag.xm.api.mesh.ReadOnlyMesh;
@@ -36,10 +36,10 @@ public class XmMeshesImpl {
 	static final int FORMAT_TAGS = MeshFormat.HAS_TAG_FLAG;
 	static final int FORMAT_LINKS = MeshFormat.HAS_LINK_FLAG;
 
-	private static final ArrayBlockingQueue<WritableMeshImpl> writables = new ArrayBlockingQueue<>(256);
-	private static final ArrayBlockingQueue<MutableMeshImpl> mutables = new ArrayBlockingQueue<>(128);
-	private static final ArrayBlockingQueue<CsgMeshImpl> csgStreams = new ArrayBlockingQueue<>(128);
-	private static final ArrayBlockingQueue<ReadOnlyMeshImpl> readables = new ArrayBlockingQueue<>(256);
+	private static final MeshPool<WritableMeshImpl> writables = new MeshPool<>(256);
+	private static final MeshPool<MutableMeshImpl> mutables = new MeshPool<>(128);
+	private static final MeshPool<CsgMeshImpl> csgStreams = new MeshPool<>(128);
+	private static final MeshPool<ReadOnlyMeshImpl> readables = new MeshPool<>(256);
 
 	public static WritableMesh claimWritable() {
 		return claimWritable(0);
@@ -51,6 +51,7 @@ public class XmMeshesImpl {
 			result = new WritableMeshImpl();
 		}
 
+		result.backing = XmConfig.writableMeshBacking;
 		result.prepare(formatFlags);
 		return result;
 	}
@@ -68,6 +69,7 @@ public class XmMeshesImpl {
 		if (result == null) {
 			result = new MutableMeshImpl();
 		}
+		result.backing = XmConfig.mutableMeshBacking;
 		result.prepare(formatFlags);
 		return result;
 	}
@@ -81,6 +83,7 @@ public class XmMeshesImpl {
 		if (result == null) {
 			result = new ReadOnlyMeshImpl();
 		}
+		result.backing = XmConfig.readOnlyMeshBacking;
 		result.load(writablePolyStream, formatFlags);
 		return result;
 	}
@@ -119,6 +122,7 @@ public class XmMeshesImpl {
 		if (result == null) {
 			result = new CsgMeshImpl();
 		}
+		result.backing = XmConfig.csgMeshBacking;
 		result.prepare();
 		return result;
 	}
@@ -132,4 +136,25 @@ public class XmMeshesImpl {
 	static void release(CsgMeshImpl freeStream) {
 		csgStreams.offer(freeStream);
 	}
+
+	/** Claims served from a pool, including thread-safe readers */
+	public static long poolHitCount() {
+		return writables.hitCount() + mutables.hitCount() + csgStreams.hitCount() + readables.hitCount() + AbstractXmMesh.SAFE_READERS.hitCount();
+	}
+
+	/** Claims that had to allocate, including thread-safe readers */
+	public static long poolMissCount() {
+		return writables.missCount() + mutables.missCount() + csgStreams.missCount() + readables.missCount() + AbstractXmMesh.SAFE_READERS.missCount();
+	}
+
+	public static float poolHitRate() {
+		final long hits = poolHitCount();
+		final long total = hits + poolMissCount();
+		return total == 0 ? 1f : (float) hits / total;
+	}
+
+	/** Releases dropped because the pool was full, including thread-safe readers */
+	public static long poolDiscardCount() {
+		return writables.discardCount() + mutables.discardCount() + csgStreams.discardCount() + readables.discardCount() + AbstractXmMesh.SAFE_READERS.discardCount();
+	}
 }
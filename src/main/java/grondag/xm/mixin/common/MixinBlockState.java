@@ -24,11 +24,13 @@ import org.spongepowered.asm.mixin.Mixin;
 
 import net.minecraft.block.BlockState;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.shape.VoxelShape;
 import net.minecraft.world.BlockView;
 
 @Mixin(BlockState.class)
 public class MixinBlockState implements XmBlockState, XmBlockStateAccess {
 	private ModelStateFunction<?> modelStateFunc = null;
+	private VoxelShape shape = null;
 
 	@Override
 	public BlockState blockState() {
@@ -45,6 +47,7 @@ public class MixinBlockState implements XmBlockState, XmBlockStateAccess {
 	@Override
 	public void xm_modelStateFunc(ModelStateFunction<?> func) {
 		modelStateFunc = func;
+		shape = null;
 	}
 
 	@Override
@@ -57,4 +60,15 @@ public class MixinBlockState implements XmBlockState, XmBlockStateAccess {
 	public XmBlockState xm_toXmBlockState() {
 		return modelStateFunc == null ? null : (XmBlockState)this;
 	}
+
+	@Override
+	@Nullable
+	public VoxelShape xm_shape() {
+		return shape;
+	}
+
+	@Override
+	public void xm_shape(VoxelShape shape) {
+		this.shape = shape;
+	}
 }
@@ -23,6 +23,8 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -47,13 +49,13 @@ import net.minecraft.world.BlockRenderView;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
 import net.fabricmc.fabric.api.renderer.v1.mesh.Mesh;
-import net.fabricmc.fabric.api.renderer.v1.model.ModelHelper;
-import net.fabricmc.fabric.api.renderer.v1.model.SpriteFinder;
 import net.fabricmc.fabric.api.renderer.v1.render.RenderContext;
 
 import grondag.fermion.bits.BitPacker32;
 import grondag.fermion.orientation.api.OrientationType;
 import grondag.fermion.varia.Useful;
+import grondag.xm.Xm;
+import grondag.xm.XmConfig;
 import grondag.xm.api.connect.state.CornerJoinState;
 import grondag.xm.api.connect.state.SimpleJoinState;
 import grondag.xm.api.mesh.polygon.Polygon;
@@ -70,8 +72,12 @@ import grondag.xm.api.primitive.surface.XmSurface;
 import grondag.xm.api.primitive.surface.XmSurfaceList;
 import grondag.xm.connect.CornerJoinStateSelector;
 import grondag.xm.dispatch.AbstractXmModel;
+import grondag.xm.dispatch.ModelBakeService;
+import grondag.xm.dispatch.SnapshotViews;
+import grondag.xm.dispatch.XmDispatcher;
 import grondag.xm.paint.XmPaintImpl;
 import grondag.xm.painter.PaintManager;
+import grondag.xm.painter.PaintedMesh;
 import grondag.xm.texture.TextureSetHelper;
 
 @SuppressWarnings({"rawtypes", "unchecked"})
@@ -371,26 +377,59 @@ implements MutableModelState, BaseModelState<R, W>, MutableBaseModelState<R, W>
 	}
 
 
+	/**
+	 * Wire format is primitive index, shape bits and world bits as varints, then
+	 * (if more than one surface) a varint mask with bit {@code i - 1} set when surface
+	 * {@code i} has the same paint as surface {@code i - 1}, then each paint not
+	 * covered by the mask. Paints with an index or id are written as references.
+	 */
 	@Override
 	public void fromBytes(PacketByteBuf pBuff, PaintIndex paintIndex) {
-		shapeBits = pBuff.readInt();
-		worldBits = pBuff.readInt();
+		shapeBits = pBuff.readVarInt();
+		worldBits = pBuff.readVarInt();
 		final int limit = primitive.surfaces((R)this).size();
 
-		for (int i = 0; i < limit; i++) {
-			this.paints[i] = XmPaint.fromBytes(pBuff, paintIndex);
+		if (limit == 0) {
+			return;
+		}
+
+		final int sharedMask = limit > 1 ? pBuff.readVarInt() : 0;
+		paints[0] = XmPaint.fromBytes(pBuff, paintIndex);
+
+		for (int i = 1; i < limit; i++) {
+			paints[i] = (sharedMask & (1 << (i - 1))) == 0 ? XmPaint.fromBytes(pBuff, paintIndex) : paints[i - 1];
 		}
 	}
 
 	@Override
 	public void toBytes(PacketByteBuf pBuff) {
 		pBuff.writeVarInt(primitive.index());
-		pBuff.writeInt(shapeBits);
-		pBuff.writeInt(worldBits);
+		pBuff.writeVarInt(shapeBits);
+		pBuff.writeVarInt(worldBits);
 		final int limit = primitive.surfaces((R)this).size();
 
-		for (int i = 0; i < limit; i++) {
-			paints[i].toBytes(pBuff);
+		if (limit == 0) {
+			return;
+		}
+
+		int sharedMask = 0;
+
+		for (int i = 1; i < limit; i++) {
+			if (paints[i].equals(paints[i - 1])) {
+				sharedMask |= 1 << (i - 1);
+			}
+		}
+
+		if (limit > 1) {
+			pBuff.writeVarInt(sharedMask);
+		}
+
+		paints[0].toBytes(pBuff);
+
+		for (int i = 1; i < limit; i++) {
+			if ((sharedMask & (1 << (i - 1))) == 0) {
+				paints[i].toBytes(pBuff);
+			}
 		}
 	}
 
@@ -694,88 +733,264 @@ implements MutableModelState, BaseModelState<R, W>, MutableBaseModelState<R, W>
 
 	////////////////////////////////////////// RENDERING //////////////////////////////////////////
 
+	/** Rough retained size of a model state without any baked rendering. */
+	public static final int ESTIMATED_BASE_BYTES = 256;
+
+	/** Rough retained size of one quad in a baked mesh. */
+	private static final int ESTIMATED_MESH_QUAD_BYTES = 160;
+
+	/** Rough retained size of one vanilla baked quad in quad lists. */
+	private static final int ESTIMATED_BAKED_QUAD_BYTES = 176;
+
+	/**
+	 * Painted output, possibly shared with other states that paint identically.
+	 * See {@link PaintedMesh}.
+	 */
 	@Environment(EnvType.CLIENT)
-	public void clearRendering() {
-		mesh = null;
-		particleSprite = null;
-		particleColorARBG = 0;
-		quadLists = null;
+	private volatile PaintedMesh painted = null;
+
+	/**
+	 * Bake in progress, shared by all callers that need this state before it completes.
+	 * Guarded by this instance.
+	 */
+	@Environment(EnvType.CLIENT)
+	private PendingBake pendingPaint = null;
+
+	/**
+	 * Bake future that is run by whichever thread starts it first, so a synchronous
+	 * caller can take over a bake still queued on the executor instead of waiting for it.
+	 */
+	@Environment(EnvType.CLIENT)
+	private static final class PendingBake extends CompletableFuture<PaintedMesh> {
+		private final AtomicBoolean started = new AtomicBoolean();
+
+		boolean tryStart() {
+			return started.compareAndSet(false, true);
+		}
 	}
 
+	/** Set when a bake on the executor fails; later chunk rebuilds bake synchronously */
 	@Environment(EnvType.CLIENT)
-	private Mesh mesh = null;
+	private volatile boolean asyncBakeFailed = false;
 
+	/**
+	 * Estimate of bytes retained by this instance, including baked mesh and quad lists if present.
+	 * Shared meshes are only counted for the state that has {@link PaintedMesh#claim(Object) claimed} them.
+	 * Used to bound the size of {@link XmDispatcher}.
+	 */
 	@Environment(EnvType.CLIENT)
-	public Mesh mesh() {
-		Mesh result = mesh;
-		if (result == null) {
-			result = PaintManager.paint(this);
-			mesh = result;
+	public int estimatedBytes() {
+		int result = ESTIMATED_BASE_BYTES;
+		final PaintedMesh painted = this.painted;
+
+		if (painted != null && painted.isOwnedBy(this)) {
+			result += painted.quadCount * ESTIMATED_MESH_QUAD_BYTES;
+
+			if (painted.hasQuadLists()) {
+				result += painted.quadCount * ESTIMATED_BAKED_QUAD_BYTES;
+			}
 		}
+
 		return result;
 	}
 
-	@Override
 	@Environment(EnvType.CLIENT)
-	public void emitBlockQuads(BlockRenderView blockView, BlockState state, BlockPos pos, Supplier<Random> randomSupplier, RenderContext context) {
-		primitive.emitBlockMesh(mesh(), blockView, state, pos, randomSupplier, context);
+	public void clearRendering() {
+		final PaintedMesh painted;
+
+		synchronized (this) {
+			painted = this.painted;
+			this.painted = null;
+			pendingPaint = null;
+			asyncBakeFailed = false;
+		}
+
+		if (painted != null) {
+			painted.release(this);
+		}
 	}
 
-	@Override
+	/**
+	 * Ends this state's charge for its shared mesh. Called when evicted from {@link XmDispatcher},
+	 * so that a state still retaining the mesh can take over the charge.
+	 */
 	@Environment(EnvType.CLIENT)
-	public void emitItemQuads(ItemStack stack, Supplier<Random> randomSupplier, RenderContext context) {
-		primitive.emitItemMesh(mesh(), stack, randomSupplier, context);
+	public void releasePaintedCharge() {
+		final PaintedMesh painted = this.painted;
+
+		if (painted != null) {
+			painted.release(this);
+		}
+	}
+
+	/**
+	 * Takes over the charge for a shared mesh whose previous holder was evicted.
+	 * Returns true if this state is newly charged and so its weight has changed.
+	 */
+	@Environment(EnvType.CLIENT)
+	public boolean claimPaintedCharge() {
+		final PaintedMesh painted = this.painted;
+		return painted != null && !painted.isOwnedBy(this) && painted.claim(this);
 	}
 
 	@Environment(EnvType.CLIENT)
-	private Sprite particleSprite = null;
+	private PaintedMesh painted() {
+		final PaintedMesh result = painted;
+		return result == null ? bake(false).join() : result;
+	}
 
+	/**
+	 * Returns the bake in progress for this state, or starts one if there is none.
+	 * Concurrent callers share a single future, so a state is never painted twice
+	 * at once. When {@code async} is true a new bake is queued on the {@link ModelBakeService}
+	 * executor. Otherwise the bake runs on the calling thread, including a queued bake that
+	 * has not started yet; the caller only waits if the bake is already running elsewhere.
+	 */
 	@Environment(EnvType.CLIENT)
-	private int particleColorARBG = 0;
+	private CompletableFuture<PaintedMesh> bake(boolean async) {
+		final PendingBake future;
+		boolean isNew = false;
+
+		synchronized (this) {
+			final PaintedMesh result = painted;
+
+			if (result != null) {
+				return CompletableFuture.completedFuture(result);
+			}
+
+			if (pendingPaint == null) {
+				pendingPaint = new PendingBake();
+				isNew = true;
+			}
+
+			future = pendingPaint;
+		}
+
+		if (async) {
+			if (isNew) {
+				ModelBakeService.execute(() -> {
+					if (future.tryStart()) {
+						completeBake(future, true);
+					}
+				});
+			}
+		} else if (future.tryStart()) {
+			completeBake(future, false);
+		}
+
+		return future;
+	}
 
-	@Override
 	@Environment(EnvType.CLIENT)
-	public final Sprite particleSprite() {
-		if(particleSprite == null) {
-			final Mesh mesh = mesh();
-			mesh.forEach(q -> {
-				if(particleSprite == null) {
-					final SpriteFinder finder = SpriteFinder.get(TextureSetHelper.blockAtas());
-					particleSprite = finder.find(q, 0);
-					particleColorARBG = q.spriteColor(0, 0);
+	private void completeBake(PendingBake future, boolean async) {
+		try {
+			final Mesh mesh = PaintManager.paint(this);
+			final Sprite sprite = PaintManager.lastParticleSprite();
+			final PaintedMesh result = PaintedMesh.share(mesh, PaintManager.lastQuadCount(), sprite == null ? TextureSetHelper.missingSprite() : sprite,
+					PaintManager.lastParticleColorARBG());
+			boolean installed = false;
+
+			synchronized (this) {
+				// rendering may have been cleared while painting, in which case the result is stale
+				if (pendingPaint == future) {
+					result.claim(this);
+					painted = result;
+					pendingPaint = null;
+					installed = true;
+				}
+			}
+
+			if (installed) {
+				XmDispatcher.INSTANCE.updateWeight(this);
+			}
+
+			future.complete(result);
+		} catch (final Throwable e) {
+			synchronized (this) {
+				if (pendingPaint == future) {
+					pendingPaint = null;
 				}
-			});
-			if(particleSprite == null) {
-				particleSprite = TextureSetHelper.missingSprite();
+			}
+
+			future.completeExceptionally(e);
+
+			if (async) {
+				// nothing on the bake executor would report it, and the section rebuild
+				// that follows takes the synchronous path so the error surfaces there
+				asyncBakeFailed = true;
+				Xm.LOG.error("Unable to bake model for " + this, e);
+			} else if (e instanceof RuntimeException) {
+				throw (RuntimeException) e;
+			} else if (e instanceof Error) {
+				throw (Error) e;
 			}
 		}
-		return particleSprite;
 	}
 
+	@Environment(EnvType.CLIENT)
+	public Mesh mesh() {
+		return painted().mesh;
+	}
+
+	/**
+	 * With {@link XmConfig#asyncBake} enabled, chunk rebuilds do not wait for a bake:
+	 * nothing is emitted and the section is rebuilt once the bake finishes. If it failed,
+	 * the rebuild bakes synchronously so the error reaches the chunk builder.
+	 */
 	@Override
 	@Environment(EnvType.CLIENT)
-	public final int particleColorARBG() {
-		final int result = particleColorARBG;
-		if(result == 0) {
-			// if zero then probably requires lookup
-			particleSprite();
-			return particleColorARBG;
-		} else {
-			return result;
+	public void emitBlockQuads(BlockRenderView blockView, BlockState state, BlockPos pos, Supplier<Random> randomSupplier, RenderContext context) {
+		PaintedMesh result = painted;
+
+		if (result == null) {
+			if (XmConfig.asyncBake && !asyncBakeFailed && isImmutable() && SnapshotViews.isSnapshot(blockView)) {
+				final CompletableFuture<PaintedMesh> future = bake(true);
+
+				if (!future.isDone()) {
+					ModelBakeService.rebuildWhenDone(future, pos);
+					return;
+				}
+
+				result = future.join();
+			} else {
+				result = painted();
+			}
 		}
+
+		primitive.emitBlockMesh(result.mesh, blockView, state, pos, randomSupplier, context);
 	}
 
+	@Override
 	@Environment(EnvType.CLIENT)
-	private List<BakedQuad>[] quadLists = null;
+	public void emitItemQuads(ItemStack stack, Supplier<Random> randomSupplier, RenderContext context) {
+		primitive.emitItemMesh(mesh(), stack, randomSupplier, context);
+	}
+
+	/**
+	 * Sprite and color are captured by {@link PaintManager} when the mesh is painted,
+	 * so this never scans the mesh or resolves sprites.
+	 */
+	@Override
+	@Environment(EnvType.CLIENT)
+	public final Sprite particleSprite() {
+		return painted().particleSprite;
+	}
+
+	@Override
+	@Environment(EnvType.CLIENT)
+	public final int particleColorARBG() {
+		return painted().particleColorARBG;
+	}
 
 	@Override
 	@Environment(EnvType.CLIENT)
 	public final List<BakedQuad> bakedQuads(BlockState state, Direction face, Random rand) {
-		List<BakedQuad>[] lists = quadLists;
+		final PaintedMesh painted = painted();
+		final boolean isNew = !painted.hasQuadLists();
+		final List<BakedQuad>[] lists = painted.quadLists();
 
-		if (lists == null) {
-			lists = ModelHelper.toQuadLists(mesh());
-			quadLists = lists;
+		if (isNew && painted.isOwnedBy(this)) {
+			XmDispatcher.INSTANCE.updateWeight(this);
 		}
 
 		final List<BakedQuad> result = lists[face == null ? 6 : face.getId()];
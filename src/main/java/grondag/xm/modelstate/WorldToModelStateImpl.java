@@ -39,6 +39,7 @@ import grondag.xm.api.modelstate.primitive.MutablePrimitiveState;
 import grondag.xm.api.modelstate.primitive.PrimitiveState;
 import grondag.xm.api.modelstate.primitive.PrimitiveStateFunction;
 import grondag.xm.api.modelstate.primitive.PrimitiveStateMutator;
+import grondag.xm.api.modelstate.primitive.SimplePrimitiveStateMutator;
 import grondag.xm.api.primitive.simple.CubeWithRotation;
 
 @API(status = EXPERIMENTAL)
@@ -46,10 +47,13 @@ public class WorldToModelStateImpl implements PrimitiveStateFunction {
 	private final BlockTest<PrimitiveState> joinTest;
 	private final PrimitiveStateMutator updater;
 	private final PrimitiveState defaultState;
+	private final boolean worldIndependent;
 
 	private WorldToModelStateImpl(BuilderImpl builder) {
 		joinTest = builder.joinTest;
 		defaultState = builder.defaultState;
+		worldIndependent = defaultState.isStatic() || isWorldIndependent(builder);
+
 		if(builder.updaters.isEmpty()) {
 			updater = (modelState, xmBlockState, world, pos, neighbors, refreshFromWorld) -> {};
 		} else if(builder.updaters.size() == 1) {
@@ -64,6 +68,33 @@ public class WorldToModelStateImpl implements PrimitiveStateFunction {
 		}
 	}
 
+	/**
+	 * Geometry can only vary with world if the primitive uses joins or if an updater
+	 * can see the world. Texture-driven flags like position or border joins don't
+	 * affect geometry and so are not considered here.
+	 */
+	private static boolean isWorldIndependent(BuilderImpl builder) {
+		final PrimitiveState defaultState = builder.defaultState;
+		final int geometryFlags = defaultState.primitive().stateFlags(defaultState);
+
+		if ((geometryFlags & (CORNER_JOIN | SIMPLE_JOIN | MASONRY_JOIN)) != 0) {
+			return false;
+		}
+
+		for (final PrimitiveStateMutator func : builder.updaters) {
+			if (!(func instanceof SimplePrimitiveStateMutator)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	@Override
+	public boolean isWorldIndependent() {
+		return worldIndependent;
+	}
+
 	@Override
 	public MutablePrimitiveState apply(BlockState blockState, BlockView world, BlockPos pos, boolean refreshFromWorld) {
 		final MutablePrimitiveState modelState = defaultState.mutableCopy();
@@ -21,18 +21,28 @@ import org.apiguardian.api.API;
 
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
 import net.fabricmc.fabric.api.client.networking.v1.ClientPlayNetworking;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
+
+import grondag.xm.paint.PaintIndexImpl;
 
 @API(status = INTERNAL)
 public class Packets {
 
 	public static void initializeCommon() {
+		ServerPlayNetworking.registerGlobalReceiver(PaintIndexSyncC2S.ID, PaintIndexSyncC2S::accept);
+		ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> PaintIndexImpl.SERVER.connectPlayer(handler.player));
+		ServerTickEvents.END_SERVER_TICK.register(server -> PaintIndexImpl.SERVER.flush());
 	}
 
 	@Environment(EnvType.CLIENT)
 	public static void initializeClient() {
 		ClientPlayNetworking.registerGlobalReceiver(PaintIndexUpdateS2C.ID, PaintIndexUpdateS2C::accept);
 		ClientPlayNetworking.registerGlobalReceiver(PaintIndexSnapshotS2C.ID, PaintIndexSnapshotS2C::accept);
+		ClientPlayConnectionEvents.JOIN.register((handler, sender, client) -> sender.sendPacket(PaintIndexSyncC2S.toPacket(PaintIndexImpl.CLIENT)));
 		//		ClientSidePacketRegistry.INSTANCE.register(S2C_ExcavationRenderUpdate.ID, S2C_ExcavationRenderUpdate::accept);
 		//		ClientSidePacketRegistry.INSTANCE.register(S2C_PacketExcavationRenderRefresh.ID, S2C_PacketExcavationRenderRefresh::accept);
 	}
@@ -47,12 +47,14 @@ public abstract class PaintIndexSnapshotS2C {
 	}
 
 	public static void accept(MinecraftClient client, ClientPlayNetworkHandler handler, PacketByteBuf pBuff, PacketSender responseSender) {
+		final long epoch = pBuff.readLong();
+		final int version = pBuff.readVarInt();
 		final XmPaint[] paints = PaintIndexImpl.arrayFromBytes(pBuff);
 
 		if (client.isOnThread()) {
-			PaintIndexImpl.CLIENT.fromArray(paints);
+			PaintIndexImpl.CLIENT.fromArray(epoch, version, paints);
 		} else {
-			client.execute(() -> PaintIndexImpl.CLIENT.fromArray(paints));
+			client.execute(() -> PaintIndexImpl.CLIENT.fromArray(epoch, version, paints));
 		}
 	}
 }
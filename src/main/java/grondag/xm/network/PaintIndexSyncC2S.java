@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.network;
+
+import static org.apiguardian.api.API.Status.INTERNAL;
+
+import io.netty.buffer.Unpooled;
+import org.apiguardian.api.API;
+
+import net.minecraft.network.Packet;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayNetworkHandler;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.util.Identifier;
+
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayNetworking;
+import net.fabricmc.fabric.api.networking.v1.PacketSender;
+
+import grondag.xm.Xm;
+import grondag.xm.paint.PaintIndexImpl;
+
+/**
+ * Sent by client on join with the paint index epoch and version it last saw,
+ * so the server can reply with only what changed since then.
+ */
+@API(status = INTERNAL)
+public abstract class PaintIndexSyncC2S {
+	private PaintIndexSyncC2S() {
+	}
+
+	public static final Identifier ID = new Identifier(Xm.MODID, "pis");
+
+	@Environment(EnvType.CLIENT)
+	public static Packet<?> toPacket(PaintIndexImpl paintIndex) {
+		final PacketByteBuf pBuff = new PacketByteBuf(Unpooled.buffer());
+		pBuff.writeLong(paintIndex.epoch());
+		pBuff.writeVarInt(paintIndex.version());
+		return ClientPlayNetworking.createC2SPacket(ID, pBuff);
+	}
+
+	public static void accept(MinecraftServer server, ServerPlayerEntity player, ServerPlayNetworkHandler handler, PacketByteBuf pBuff, PacketSender responseSender) {
+		final long epoch = pBuff.readLong();
+		final int version = pBuff.readVarInt();
+
+		if (server.isOnThread()) {
+			PaintIndexImpl.SERVER.syncPlayer(player, epoch, version);
+		} else {
+			server.execute(() -> PaintIndexImpl.SERVER.syncPlayer(player, epoch, version));
+		}
+	}
+}
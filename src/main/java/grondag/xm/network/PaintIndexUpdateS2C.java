@@ -18,6 +18,7 @@ package grondag.xm.network;
 import static org.apiguardian.api.API.Status.INTERNAL;
 
 import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import org.apiguardian.api.API;
 
 import net.minecraft.client.MinecraftClient;
@@ -40,21 +41,32 @@ public abstract class PaintIndexUpdateS2C {
 
 	public static final Identifier ID = new Identifier(Xm.MODID, "piu");
 
-	public static Packet<?> toPacket(XmPaint paint, int index) {
+	/**
+	 * One packet for all indices changed between the given versions.
+	 */
+	public static Packet<?> toPacket(PaintIndexImpl paintIndex, int fromVersion, int toVersion, IntArrayList indices) {
 		final PacketByteBuf pBuff = new PacketByteBuf(Unpooled.buffer());
-		pBuff.writeVarInt(index);
-		paint.toFixedBytes(pBuff);
+		paintIndex.toBytes(pBuff, fromVersion, toVersion, indices);
 		return ServerPlayNetworking.createS2CPacket(ID, pBuff);
 	}
 
 	public static void accept(MinecraftClient client, ClientPlayNetworkHandler handler, PacketByteBuf pBuff, PacketSender responseSender) {
-		final int index = pBuff.readVarInt();
-		final XmPaint paint = XmPaint.fromBytes(pBuff, null);
+		final long epoch = pBuff.readLong();
+		final int fromVersion = pBuff.readVarInt();
+		final int toVersion = pBuff.readVarInt();
+		final int limit = pBuff.readVarInt();
+		final int[] indices = new int[limit];
+		final XmPaint[] paints = new XmPaint[limit];
+
+		for (int i = 0; i < limit; ++i) {
+			indices[i] = pBuff.readVarInt();
+			paints[i] = XmPaint.fromBytes(pBuff, null);
+		}
 
 		if (client.isOnThread()) {
-			PaintIndexImpl.CLIENT.updateClientIndex(paint, index);
+			PaintIndexImpl.CLIENT.updateClientIndex(epoch, fromVersion, toVersion, indices, paints);
 		} else {
-			client.execute(() -> PaintIndexImpl.CLIENT.updateClientIndex(paint, index));
+			client.execute(() -> PaintIndexImpl.CLIENT.updateClientIndex(epoch, fromVersion, toVersion, indices, paints));
 		}
 	}
 }
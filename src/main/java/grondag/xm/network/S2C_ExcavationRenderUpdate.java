@@ -55,7 +55,7 @@ public abstract class S2C_ExcavationRenderUpdate {
 	 */
 	public static Packet<?> toPacket(ExcavationRenderEntry entry) {
 		final IntegerBox aabb = entry.aabb();
-		final BlockPos[] positions = entry.renderPositions();
+		final long[] positions = entry.renderPositions();
 		if (XmConfig.logExcavationRenderTracking) {
 			Xm.LOG.info("id %d New update packet position count = %d, aabb=%s", entry.id, positions == null ? 0 : positions.length,
 					aabb == null ? "null" : aabb.toString());
@@ -71,7 +71,7 @@ public abstract class S2C_ExcavationRenderUpdate {
 		return toPacket(deletedId, null, false, null);
 	}
 
-	private static Packet<?> toPacket(int id, IntegerBox aabb, boolean isExchange, BlockPos[] positions) {
+	private static Packet<?> toPacket(int id, IntegerBox aabb, boolean isExchange, long[] positions) {
 		final PacketByteBuf pBuff = new PacketByteBuf(Unpooled.buffer());
 		if (XmConfig.logExcavationRenderTracking) {
 			Xm.LOG.info("id %d Update toBytes position count = %d", id, positions == null ? 0 : positions.length);
@@ -87,8 +87,8 @@ public abstract class S2C_ExcavationRenderUpdate {
 
 			pBuff.writeInt(positions == null ? 0 : positions.length);
 			if (positions != null) {
-				for (final BlockPos pos : positions) {
-					pBuff.writeLong(pos.asLong());
+				for (final long pos : positions) {
+					pBuff.writeLong(pos);
 				}
 			}
 		}
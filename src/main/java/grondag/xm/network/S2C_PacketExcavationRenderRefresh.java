@@ -59,15 +59,15 @@ public abstract class S2C_PacketExcavationRenderRefresh {
 			pBuff.writeLong(r.aabb().minPos().asLong());
 			pBuff.writeLong(r.aabb().maxPos().asLong());
 			pBuff.writeBoolean(r.task.isExchange());
-			final BlockPos[] positions = r.renderPositions();
+			final long[] positions = r.renderPositions();
 			pBuff.writeInt(positions == null ? 0 : positions.length);
 			if (positions != null) {
 				if (XmConfig.logExcavationRenderTracking) {
 					Xm.LOG.info("id %d Refresh toBytes position count = %d", r.id, positions == null ? 0 : positions.length);
 				}
 
-				for (final BlockPos pos : positions) {
-					pBuff.writeLong(pos.asLong());
+				for (final long pos : positions) {
+					pBuff.writeLong(pos);
 				}
 			}
 		}
@@ -16,6 +16,10 @@
 package grondag.xm.paint;
 
 import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 
 import net.minecraft.nbt.ListTag;
 import net.minecraft.network.PacketByteBuf;
@@ -30,6 +34,18 @@ import grondag.xm.network.PaintIndexSnapshotS2C;
 import grondag.xm.network.PaintIndexUpdateS2C;
 import grondag.xm.paint.XmPaintImpl.Finder;
 
+/**
+ * Server and client copies of indexed paints.
+ * <p>
+ *
+ * Every change on the server advances {@link #version()} and records that version
+ * against the changed index. Changes are not sent immediately - {@link #flush()} runs
+ * once per server tick and sends all indices changed since the previous flush in a
+ * single delta packet. A connecting client reports the epoch and version it last saw and
+ * receives only the indices changed since then, or a full snapshot if the epoch differs.
+ * Epoch is randomized whenever the index is cleared so that versions from a different
+ * server or save are never mistaken for a match.
+ */
 public class PaintIndexImpl implements PaintIndex {
 	public static final PaintIndexImpl CLIENT = new PaintIndexImpl(true);
 	public static final PaintIndexImpl SERVER = new PaintIndexImpl(false);
@@ -37,31 +53,52 @@ public class PaintIndexImpl implements PaintIndex {
 	private int nextIndex = 0;
 	private int capacity  = 1024;
 	private XmPaint[] paints = new XmPaint[capacity];
+	/** Version at which each index last changed - server only */
+	private int[] versions = new int[capacity];
+	/** Indices changed since last flush - server only */
+	private final IntOpenHashSet pending = new IntOpenHashSet();
+	private long epoch;
+	private int version = 0;
+	/** Version as of last flush - server only */
+	private int flushedVersion = 0;
 	private boolean isDirty = true;
 	private PlayerManager playerManager = null;
 	public final boolean isClient;
 
 	private PaintIndexImpl(boolean isClient) {
 		this.isClient = isClient;
+		epoch = isClient ? 0 : ThreadLocalRandom.current().nextLong();
 	}
 
-	public void clear() {
+	public synchronized void clear() {
 		nextIndex = 0;
 		Arrays.fill(paints, null);
+		Arrays.fill(versions, 0);
+		pending.clear();
+		version = 0;
+		flushedVersion = 0;
+		epoch = isClient ? 0 : ThreadLocalRandom.current().nextLong();
 		isDirty = true;
 		playerManager = null;
 	}
 
 	private void ensureCapacity(int index) {
 		if (index >= capacity) {
-			final int newCapacity = MathHelper.smallestEncompassingPowerOfTwo(index);
-			final XmPaint[] newPaints = new XmPaint[newCapacity];
-			System.arraycopy(paints, 0, newPaints, 0, nextIndex);
-			paints = newPaints;
+			final int newCapacity = MathHelper.smallestEncompassingPowerOfTwo(index + 1);
+			paints = Arrays.copyOf(paints, newCapacity);
+			versions = Arrays.copyOf(versions, newCapacity);
 			capacity = newCapacity;
 		}
 	}
 
+	public long epoch() {
+		return epoch;
+	}
+
+	public int version() {
+		return version;
+	}
+
 	@Override
 	public XmPaint fromIndex(int index) {
 		assert index >= 0;
@@ -76,33 +113,72 @@ public class PaintIndexImpl implements PaintIndex {
 		}
 
 		final XmPaintImpl.Finder finder = (Finder) XmPaintImpl.finder().copy(paint);
-		final int index;
 
 		synchronized (this) {
-			index = nextIndex++;
+			final int index = nextIndex++;
 			ensureCapacity(index);
 			paint = finder.index(index).find();
 			paints[index] = paint;
-			isDirty = true;
+			markChanged(index);
 		}
 
-		sendToListeners(paint, index);
 		return paint;
 	}
 
 	@Override
-	public void updateIndex(int index, XmPaint paint) {
+	public synchronized void updateIndex(int index, XmPaint paint) {
 		if (paint == null) {
 			paint = XmPaintImpl.DEFAULT_PAINT;
 		}
 
 		((XmPaintImpl) paints[index]).copyFrom((XmPaintImpl) paint);
+		markChanged(index);
+	}
+
+	private void markChanged(int index) {
+		versions[index] = ++version;
+		pending.add(index);
 		isDirty = true;
-		sendToListeners(paint, index);
 	}
 
-	private void sendToListeners(XmPaint paint, int index) {
-		playerManager.sendToAll(PaintIndexUpdateS2C.toPacket(paint, index));
+	/**
+	 * Sends all changes since the last flush to connected players as one packet.
+	 * Call once per server tick.
+	 */
+	public void flush() {
+		final PlayerManager playerManager = this.playerManager;
+
+		if (isClient || playerManager == null || pending.isEmpty()) {
+			return;
+		}
+
+		final IntArrayList indices;
+		final int fromVersion, toVersion;
+
+		synchronized (this) {
+			indices = new IntArrayList(pending);
+			pending.clear();
+			fromVersion = flushedVersion;
+			toVersion = version;
+			flushedVersion = toVersion;
+		}
+
+		playerManager.sendToAll(PaintIndexUpdateS2C.toPacket(this, fromVersion, toVersion, indices));
+	}
+
+	/**
+	 * Adds indices changed after the given version to target and returns current version.
+	 */
+	public synchronized int changedIndices(int sinceVersion, IntArrayList target) {
+		final int limit = nextIndex;
+
+		for (int i = 0; i < limit; ++i) {
+			if (versions[i] > sinceVersion) {
+				target.add(i);
+			}
+		}
+
+		return version;
 	}
 
 	public void save() {
@@ -137,6 +213,10 @@ public class PaintIndexImpl implements PaintIndex {
 		}
 	}
 
+	/**
+	 * Registers the player's server for change broadcasts. The player receives
+	 * current paints when their client reports its last known version.
+	 */
 	public void connectPlayer(ServerPlayerEntity player) {
 		final PlayerManager playerManager = player.server.getPlayerManager();
 
@@ -145,22 +225,57 @@ public class PaintIndexImpl implements PaintIndex {
 		} else {
 			assert playerManager == this.playerManager;
 		}
+	}
 
-		player.networkHandler.sendPacket(PaintIndexSnapshotS2C.toPacket(this));
+	/**
+	 * Sends the player whatever they need to catch up from the given epoch and version:
+	 * a delta if the epoch matches and the version is not ahead of ours, else a full snapshot.
+	 */
+	public void syncPlayer(ServerPlayerEntity player, long clientEpoch, int clientVersion) {
+		assert !isClient;
+
+		if (clientEpoch == epoch && clientVersion <= version) {
+			final IntArrayList indices = new IntArrayList();
+			final int toVersion = changedIndices(clientVersion, indices);
+			player.networkHandler.sendPacket(PaintIndexUpdateS2C.toPacket(this, clientVersion, toVersion, indices));
+		} else {
+			player.networkHandler.sendPacket(PaintIndexSnapshotS2C.toPacket(this));
+		}
 	}
 
-	public void toBytes(PacketByteBuf pBuff) {
+	public synchronized void toBytes(PacketByteBuf pBuff) {
 		assert !isClient;
 
 		final int limit = nextIndex;
+		pBuff.writeLong(epoch);
+		pBuff.writeVarInt(version);
+		pBuff.writeVarInt(limit);
+
+		for (int i = 0; i < limit; ++i)  {
+			paints[i].toFixedBytes(pBuff);
+		}
+	}
+
+	/**
+	 * Writes a delta of the given indices, bracketed by the versions it covers.
+	 */
+	public synchronized void toBytes(PacketByteBuf pBuff, int fromVersion, int toVersion, IntArrayList indices) {
+		assert !isClient;
+
+		final int limit = indices.size();
+		pBuff.writeLong(epoch);
+		pBuff.writeVarInt(fromVersion);
+		pBuff.writeVarInt(toVersion);
 		pBuff.writeVarInt(limit);
 
 		for (int i = 0; i < limit; ++i)  {
-			paints[i].toBytes(pBuff);
+			final int index = indices.getInt(i);
+			pBuff.writeVarInt(index);
+			paints[index].toFixedBytes(pBuff);
 		}
 	}
 
-	public void fromArray(XmPaint[] paints) {
+	public void fromArray(long epoch, int version, XmPaint[] paints) {
 		assert isClient;
 
 		clear();
@@ -168,6 +283,8 @@ public class PaintIndexImpl implements PaintIndex {
 		ensureCapacity(limit);
 		nextIndex = limit;
 		System.arraycopy(paints, 0, this.paints, 0, limit);
+		this.epoch = epoch;
+		this.version = version;
 	}
 
 	public static XmPaint[] arrayFromBytes(PacketByteBuf pBuff) {
@@ -181,8 +298,32 @@ public class PaintIndexImpl implements PaintIndex {
 		return result;
 	}
 
-	public void updateClientIndex(XmPaint paint, int index) {
-		ensureCapacity(index);
-		paints[index] = paint;
+	/**
+	 * Applies a delta received from the server. Paints are always applied but version
+	 * only advances if the delta starts at or before our current version. Otherwise
+	 * some changes may be missing and the next connection should request them again.
+	 */
+	public void updateClientIndex(long epoch, int fromVersion, int toVersion, int[] indices, XmPaint[] paints) {
+		assert isClient;
+
+		if (epoch != this.epoch) {
+			return;
+		}
+
+		final int limit = indices.length;
+
+		for (int i = 0; i < limit; ++i) {
+			final int index = indices[i];
+			ensureCapacity(index);
+			this.paints[index] = paints[i];
+
+			if (index >= nextIndex) {
+				nextIndex = index + 1;
+			}
+		}
+
+		if (fromVersion <= version && toVersion > version) {
+			version = toVersion;
+		}
 	}
 }
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.paint;
+
+import static org.apiguardian.api.API.Status.INTERNAL;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import org.apiguardian.api.API;
+
+import grondag.xm.paint.XmPaintImpl.Finder;
+import grondag.xm.paint.XmPaintImpl.Value;
+
+/**
+ * Open-addressed interning table for paint values, keyed by paint content
+ * (or ID / index for registered and indexed paints).
+ * <p>
+ *
+ * Lookups never lock or allocate: they probe a snapshot of the current table,
+ * comparing cached hashes before calling equals. Entries are never removed, so a
+ * hit in any snapshot is valid. Misses fall back to a locked insert that probes the
+ * current table again before creating a value, so each distinct paint is created once.
+ * Tables are replaced (not modified) on resize, which keeps older snapshots consistent.
+ */
+@API(status = INTERNAL)
+class PaintInterner {
+	private static final float LOAD_FACTOR = 0.5f;
+
+	private static class Table {
+		final int mask;
+		final int[] hashes;
+		final AtomicReferenceArray<Value> values;
+
+		Table(int capacity) {
+			mask = capacity - 1;
+			hashes = new int[capacity];
+			values = new AtomicReferenceArray<>(capacity);
+		}
+	}
+
+	private volatile Table table = new Table(1024);
+	private int size = 0;
+
+	/**
+	 * Returns the interned value matching the finder, creating it if necessary.
+	 */
+	Value intern(Finder finder) {
+		final int hash = HashCommon.mix(finder.hashCode());
+		final Value result = probe(table, finder, hash);
+		return result == null ? insert(finder, hash) : result;
+	}
+
+	private static Value probe(Table t, Finder finder, int hash) {
+		final int mask = t.mask;
+		final AtomicReferenceArray<Value> values = t.values;
+		int i = hash & mask;
+
+		while (true) {
+			final Value v = values.get(i);
+
+			if (v == null) {
+				return null;
+			}
+
+			// hash is written before value is published so it is always visible here
+			if (t.hashes[i] == hash && finder.equals(v)) {
+				return v;
+			}
+
+			i = (i + 1) & mask;
+		}
+	}
+
+	private synchronized Value insert(Finder finder, int hash) {
+		Table t = table;
+		Value result = probe(t, finder, hash);
+
+		if (result != null) {
+			return result;
+		}
+
+		if (size + 1 > (t.mask + 1) * LOAD_FACTOR) {
+			t = resize(t);
+		}
+
+		result = new Value(finder);
+		put(t, result, hash);
+		++size;
+		return result;
+	}
+
+	private static void put(Table t, Value value, int hash) {
+		final int mask = t.mask;
+		int i = hash & mask;
+
+		while (t.values.get(i) != null) {
+			i = (i + 1) & mask;
+		}
+
+		t.hashes[i] = hash;
+		t.values.set(i, value);
+	}
+
+	private Table resize(Table oldTable) {
+		final int oldCapacity = oldTable.mask + 1;
+		final Table newTable = new Table(oldCapacity << 1);
+
+		for (int i = 0; i < oldCapacity; ++i) {
+			final Value v = oldTable.values.get(i);
+
+			if (v != null) {
+				put(newTable, v, oldTable.hashes[i]);
+			}
+		}
+
+		table = newTable;
+		return newTable;
+	}
+
+	int size() {
+		return size;
+	}
+}
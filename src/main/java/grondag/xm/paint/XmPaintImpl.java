@@ -27,7 +27,6 @@ import grondag.xm.api.paint.XmPaintRegistry;
 import grondag.xm.api.texture.TextureSet;
 import grondag.xm.api.texture.TextureSetRegistry;
 import it.unimi.dsi.fastutil.HashCommon;
-import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import org.apiguardian.api.API;
 import org.jetbrains.annotations.Nullable;
 
@@ -61,7 +60,7 @@ public class XmPaintImpl {
 
 	private static final int DEFAULT_PAINT_BITS;
 
-	private static final Object2ObjectOpenHashMap<XmPaintImpl, Value> MAP = new Object2ObjectOpenHashMap<>();
+	private static final PaintInterner INTERNER = new PaintInterner();
 
 	static {
 		TEXTURE_DEPTH = PAINT_BITS.createIntElement(1, MAX_TEXTURE_DEPTH);
@@ -462,14 +461,8 @@ public class XmPaintImpl {
 		}
 
 		@Override
-		public synchronized Value find() {
-			Value result = MAP.get(this);
-
-			if (result == null) {
-				result = new Value(this);
-				MAP.put(result, result);
-			}
-
+		public Value find() {
+			final Value result = INTERNER.intern(this);
 			id = null;
 			return result;
 		}
@@ -21,7 +21,7 @@ import it.unimi.dsi.fastutil.HashCommon;
 import org.apiguardian.api.API;
 
 import net.minecraft.util.math.Direction;
-import net.minecraft.util.math.Vec3i;
+import net.minecraft.util.math.BlockPos;
 
 import grondag.fermion.orientation.api.ClockwiseRotation;
 import grondag.fermion.varia.Useful;
@@ -94,11 +94,12 @@ public abstract class AbstractQuadPainter {
 	 * should have lockUV = true, which means that uv coordinates will be derived at
 	 * time of quad bake by projecting each vertex onto the plane of the quad's
 	 * nominal face. Setting UV coordinates on a quad with lockUV=true has no
-	 * effect.
+	 * effect. <br>
+	 * <br>
+	 *
+	 * Writes to and returns the given result instance so painters can reuse it.
 	 */
-	protected static Vec3i getSurfaceVector(int blockX, int blockY, int blockZ, Direction face, TextureScale scale) {
-		// PERF: reuse instances?
-
+	protected static BlockPos.Mutable getSurfaceVector(int blockX, int blockY, int blockZ, Direction face, TextureScale scale, BlockPos.Mutable result) {
 		final int sliceCountMask = scale.sliceCountMask;
 		final int x = blockX & sliceCountMask;
 		final int y = blockY & sliceCountMask;
@@ -106,42 +107,45 @@ public abstract class AbstractQuadPainter {
 
 		switch (face) {
 		case EAST:
-			return new Vec3i(sliceCountMask - z, sliceCountMask - y, -blockX);
+			return result.set(sliceCountMask - z, sliceCountMask - y, -blockX);
 
 		case WEST:
-			return new Vec3i(z, sliceCountMask - y, blockX);
+			return result.set(z, sliceCountMask - y, blockX);
 
 		case NORTH:
-			return new Vec3i(sliceCountMask - x, sliceCountMask - y, blockZ);
+			return result.set(sliceCountMask - x, sliceCountMask - y, blockZ);
 
 		case SOUTH:
-			return new Vec3i(x, sliceCountMask - y, -blockZ);
+			return result.set(x, sliceCountMask - y, -blockZ);
 
 		case DOWN:
-			return new Vec3i(x, sliceCountMask - z, blockY);
+			return result.set(x, sliceCountMask - z, blockY);
 
 		case UP:
 		default:
-			return new Vec3i(x, z, -blockY);
+			return result.set(x, z, -blockY);
 		}
 	}
 
 	/**
-	 * Rotates given surface vector around the center of the texture by the given
+	 * Rotates given surface vector in place around the center of the texture by the given
 	 * degree.
 	 *
 	 */
-	protected static Vec3i rotateFacePerspective(Vec3i vec, ClockwiseRotation rotation, TextureScale scale) {
-		// PERF - reuse instances?
+	protected static BlockPos.Mutable rotateFacePerspective(BlockPos.Mutable vec, ClockwiseRotation rotation, TextureScale scale) {
+		final int x = vec.getX();
+		final int y = vec.getY();
+		final int z = vec.getZ();
+
 		switch (rotation) {
 		case ROTATE_90:
-			return new Vec3i(vec.getY(), scale.sliceCountMask - vec.getX(), vec.getZ());
+			return vec.set(y, scale.sliceCountMask - x, z);
 
 		case ROTATE_180:
-			return new Vec3i(scale.sliceCountMask - vec.getX(), scale.sliceCountMask - vec.getY(), vec.getZ());
+			return vec.set(scale.sliceCountMask - x, scale.sliceCountMask - y, z);
 
 		case ROTATE_270:
-			return new Vec3i(scale.sliceCountMask - vec.getY(), vec.getX(), vec.getZ());
+			return vec.set(scale.sliceCountMask - y, x, z);
 
 		case ROTATE_NONE:
 		default:
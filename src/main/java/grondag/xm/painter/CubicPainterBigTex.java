@@ -21,7 +21,7 @@ import it.unimi.dsi.fastutil.HashCommon;
 import org.apiguardian.api.API;
 
 import net.minecraft.util.math.Direction;
-import net.minecraft.util.math.Vec3i;
+import net.minecraft.util.math.BlockPos;
 
 import grondag.fermion.orientation.api.ClockwiseRotation;
 import grondag.fermion.varia.Useful;
@@ -37,6 +37,8 @@ import grondag.xm.api.texture.TextureTransform;
 
 @API(status = INTERNAL)
 public abstract class CubicPainterBigTex extends AbstractQuadPainter {
+	private static final ThreadLocal<BlockPos.Mutable> SURFACE_VEC = ThreadLocal.withInitial(BlockPos.Mutable::new);
+
 	// Determine what type of randomizations to apply so that we have a different
 	// appearance based on depth and species.
 	// If we are applying a single texture, then we alternate by translating,
@@ -60,6 +62,8 @@ public abstract class CubicPainterBigTex extends AbstractQuadPainter {
 	@SuppressWarnings("rawtypes")
 	public static void paintQuads(MutableMesh mesh, BaseModelState modelState, XmSurface surface, XmPaint paint, int textureIndex) {
 		final MutablePolygon editor = mesh.editor();
+		final BlockPos.Mutable surfaceVec = SURFACE_VEC.get();
+
 		do {
 			editor.lockUV(textureIndex, true);
 			editor.assignLockedUVCoordinates(textureIndex);
@@ -69,7 +73,7 @@ public abstract class CubicPainterBigTex extends AbstractQuadPainter {
 			final boolean allowTexRotation = tex.transform() != TextureTransform.IDENTITY;
 			final TextureScale scale = tex.scale();
 
-			Vec3i surfaceVec = getSurfaceVector(modelState.posX(), modelState.posY(), modelState.posZ(), nominalFace, scale);
+			getSurfaceVector(modelState.posX(), modelState.posY(), modelState.posZ(), nominalFace, scale, surfaceVec);
 
 			if (tex.versionCount() == 1) {
 				// no alternates, so do uv flip and offset and rotation based on depth & species
@@ -84,7 +88,7 @@ public abstract class CubicPainterBigTex extends AbstractQuadPainter {
 				final ClockwiseRotation rot = allowTexRotation ? Useful.offsetEnumValue(tex.transform().baseRotation, depthAndSpeciesHash & 3) : tex.transform().baseRotation;
 				editor.rotation(textureIndex,TextureOrientation.find(rot, false, false));
 
-				surfaceVec = rotateFacePerspective(surfaceVec, rot, scale);
+				rotateFacePerspective(surfaceVec, rot, scale);
 
 				editor.sprite(textureIndex, tex.textureName(0));
 
@@ -93,7 +97,7 @@ public abstract class CubicPainterBigTex extends AbstractQuadPainter {
 
 				final int newX = (surfaceVec.getX() + xOffset) & scale.sliceCountMask;
 				final int newY = (surfaceVec.getY() + yOffset) & scale.sliceCountMask;
-				surfaceVec = new Vec3i(newX, newY, surfaceVec.getZ());
+				surfaceVec.set(newX, newY, surfaceVec.getZ());
 
 				final boolean flipU = allowTexRotation && (depthAndSpeciesHash & 256) == 0;
 				final boolean flipV = allowTexRotation && (depthAndSpeciesHash & 512) == 0;
@@ -124,7 +128,7 @@ public abstract class CubicPainterBigTex extends AbstractQuadPainter {
 						allowTexRotation ? Useful.offsetEnumValue(textureRotationForFace(nominalFace, tex, modelState), (depthHash >> 16) & 3)
 								: textureRotationForFace(nominalFace, tex, modelState));
 
-				surfaceVec = rotateFacePerspective(surfaceVec, editor.rotation(textureIndex).rotation, scale);
+				rotateFacePerspective(surfaceVec, editor.rotation(textureIndex).rotation, scale);
 
 				final float sliceIncrement = scale.sliceIncrement;
 
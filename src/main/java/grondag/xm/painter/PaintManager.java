@@ -28,13 +28,12 @@ import grondag.xm.api.primitive.surface.XmSurface;
 import grondag.xm.api.texture.TextureOrientation;
 import grondag.xm.painter.AbstractQuadPainter.PaintMethod;
 import grondag.xm.target.RenderTarget;
-import grondag.xm.texture.TextureSetHelper;
+import grondag.xm.texture.SpriteIndex;
 import org.apiguardian.api.API;
 
 import static org.apiguardian.api.API.Status.INTERNAL;
 
 import net.minecraft.client.texture.Sprite;
-import net.minecraft.util.Identifier;
 import net.minecraft.util.math.MathHelper;
 
 import net.fabricmc.api.EnvType;
@@ -63,24 +62,72 @@ public class PaintManager implements Consumer<Polygon> {
 		return POOL.get().handlePaint(meshState);
 	}
 
+	/**
+	 * Number of quads emitted by the most recent call to {@link #paint(BaseModelState)} on this thread.
+	 */
+	public static int lastQuadCount() {
+		return POOL.get().quadCount;
+	}
+
+	/**
+	 * Layer 0 sprite of the first quad emitted by the most recent call to {@link #paint(BaseModelState)}
+	 * on this thread, or null if no quads were emitted.
+	 */
+	public static Sprite lastParticleSprite() {
+		return POOL.get().particleSprite;
+	}
+
+	/**
+	 * Layer 0 color of the first vertex of the quad that supplied {@link #lastParticleSprite()}.
+	 */
+	public static int lastParticleColorARBG() {
+		return POOL.get().particleColorARBG;
+	}
+
 	private final MeshBuilder builder = RENDERER.meshBuilder();
 	private final MutableMesh work = XmMeshes.claimMutable();
 	private final QuadEmitter emitter = builder.getEmitter();
 	private BaseModelState modelState;
 	private final MaterialFinder finder = RENDERER.materialFinder();
+	private int quadCount;
+	private Sprite particleSprite;
+	private int particleColorARBG;
 
 	private Mesh handlePaint(BaseModelState modelState) {
 		this.modelState = modelState;
+		quadCount = 0;
+		particleSprite = null;
+		particleColorARBG = 0;
 		modelState.emitPolygons(this);
 		return builder.build();
 	}
 
-	@SuppressWarnings("unchecked")
 	@Override
 	public void accept(Polygon poly) {
-		final BaseModelState modelState = this.modelState;
-		final QuadEmitter emitter = this.emitter;
 		final MutableMesh mesh = work;
+		paintPolygon(poly, modelState, mesh);
+
+		final QuadEmitter emitter = this.emitter;
+		final MutablePolygon editor = mesh.editor();
+		editor.origin();
+
+		do {
+			// omit layers that weren't textured by any painter
+			if (editor.spriteHandle(0) != 0) {
+				final int layerCount = editor.spriteHandle(1) == 0 ? 1 : editor.spriteHandle(2) == 0 ? 2 : 3;
+				editor.spriteDepth(layerCount);
+				quadCount += layerCount;
+				polyToMesh(editor, emitter);
+			}
+		} while (editor.next());
+	}
+
+	/**
+	 * Replaces mesh content with a copy of the polygon and applies painters for each texture layer.
+	 * Painted polygons are left in the mesh. Does not depend on the renderer or texture atlas.
+	 */
+	@SuppressWarnings("unchecked")
+	static void paintPolygon(Polygon poly, BaseModelState modelState, MutableMesh mesh) {
 		final MutablePolygon editor = mesh.editor();
 
 		mesh.clear();
@@ -104,6 +151,8 @@ public class PaintManager implements Consumer<Polygon> {
 		final int depth = paint.textureDepth();
 		editor.spriteDepth(depth);
 
+		int layerStart = mesh.writerAddress();
+
 		// Copy generator UVs (quad and vertex)
 		// from layer 0 to upper layers.
 		if (depth > 1) {
@@ -137,7 +186,14 @@ public class PaintManager implements Consumer<Polygon> {
 		}
 
 		for (int i = 0; i < depth; i++) {
+			// painters that split leave the input polygon deleted, so drop
+			// those before the next layer walks the stream again
+			if (i > 0 && mesh.writerAddress() != layerStart) {
+				mesh.removeDeleted();
+			}
+
 			final int limit = mesh.writerAddress();
+			layerStart = limit;
 			editor.origin();
 
 			do {
@@ -150,20 +206,14 @@ public class PaintManager implements Consumer<Polygon> {
 				}
 			} while (editor.next() && editor.address() < limit);
 		}
-
-		editor.origin();
-
-		do {
-			// omit layers that weren't textured by any painter
-			if (!editor.spriteName(0).isEmpty()) {
-				final int layerCount = editor.spriteName(1).isEmpty() ? 1 : editor.spriteName(2).isEmpty() ? 2 : 3;
-				editor.spriteDepth(layerCount);
-				polyToMesh(editor, emitter);
-			}
-		} while (editor.next());
 	}
 
 	private void polyToMesh(MutablePolygon poly, QuadEmitter emitter) {
+		// color is captured before emit because bakeSprite does not change it
+		if (particleSprite == null) {
+			particleColorARBG = poly.color(0, 0);
+		}
+
 		if (FREX_ACTIVE) {
 			polyToMeshFrex(poly, emitter);
 		} else {
@@ -279,7 +329,7 @@ public class PaintManager implements Consumer<Polygon> {
 		}
 	}
 
-	private static void outputIndigoQuad(MutablePolygon poly, QuadEmitter emitter, int spriteIndex) {
+	static void outputIndigoQuad(MutablePolygon poly, QuadEmitter emitter, int spriteIndex) {
 		emitter.cullFace(poly.cullFace());
 		emitter.nominalFace(poly.nominalFace());
 		emitter.tag(poly.tag());
@@ -320,7 +370,12 @@ public class PaintManager implements Consumer<Polygon> {
 			poly.uv(v, spriteIndex, minU + spanU * poly.u(v, spriteIndex), minV + spanV * poly.v(v, spriteIndex));
 		}
 
-		final Sprite sprite = TextureSetHelper.blockAtas().getSprite(new Identifier(poly.spriteName(spriteIndex)));
+		final Sprite sprite = SpriteIndex.sprite(poly.spriteHandle(spriteIndex));
+
+		// first sprite baked is layer 0 of the first emitted quad
+		if (particleSprite == null) {
+			particleSprite = sprite;
+		}
 
 		if (poly.shouldContractUVs(spriteIndex)) {
 			contractUVs(spriteIndex, sprite, poly);
@@ -0,0 +1,265 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.painter;
+
+import static org.apiguardian.api.API.Status.INTERNAL;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import org.apiguardian.api.API;
+
+import net.minecraft.client.render.model.BakedQuad;
+import net.minecraft.client.texture.Sprite;
+
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import net.fabricmc.fabric.api.renderer.v1.material.RenderMaterial;
+import net.fabricmc.fabric.api.renderer.v1.mesh.Mesh;
+import net.fabricmc.fabric.api.renderer.v1.mesh.QuadView;
+import net.fabricmc.fabric.api.renderer.v1.model.ModelHelper;
+
+/**
+ * Painted mesh and derived quad lists, shared by every model state that paints to
+ * identical output. States that differ only in world bits - position or species used
+ * for texture variation - frequently do, and would otherwise each retain a copy.
+ * <p>
+ *
+ * Meshes are content-addressed: painted output is reduced to vanilla vertex data plus
+ * quad attributes and materials, hashed, and compared in full on a hash match so
+ * that distinct meshes are never merged. Entries are weakly held and disappear when
+ * no model state retains them. Must be cleared when sprites or materials change.
+ * <p>
+ *
+ * One holder at a time is charged for the retained size. When that holder is
+ * evicted or cleared it releases the charge, and the next holder that is looked up
+ * claims it, so memory kept alive by surviving holders stays counted.
+ */
+@API(status = INTERNAL)
+@Environment(EnvType.CLIENT)
+public final class PaintedMesh {
+	public final Mesh mesh;
+	public final int quadCount;
+	public final Sprite particleSprite;
+	public final int particleColorARBG;
+
+	private volatile List<BakedQuad>[] quadLists = null;
+
+	/**
+	 * Model state charged for the retained size of this mesh, or null if none is.
+	 * See {@link #claim(Object)}.
+	 */
+	private volatile Object owner = null;
+
+	private static final AtomicReferenceFieldUpdater<PaintedMesh, Object> OWNER = AtomicReferenceFieldUpdater.newUpdater(PaintedMesh.class, Object.class, "owner");
+
+	private PaintedMesh(Mesh mesh, int quadCount, Sprite particleSprite, int particleColorARBG) {
+		this.mesh = mesh;
+		this.quadCount = quadCount;
+		this.particleSprite = particleSprite;
+		this.particleColorARBG = particleColorARBG;
+	}
+
+	/**
+	 * Makes the given holder the one charged for this mesh if no holder currently is.
+	 * Returns true if the holder is, or already was, charged.
+	 */
+	public boolean claim(Object holder) {
+		return owner == holder || OWNER.compareAndSet(this, null, holder);
+	}
+
+	/**
+	 * Ends the charge for the given holder, if it has it, so that another holder
+	 * still retaining this mesh can {@link #claim(Object) claim} it.
+	 */
+	public void release(Object holder) {
+		OWNER.compareAndSet(this, holder, null);
+	}
+
+	public boolean isOwnedBy(Object holder) {
+		return owner == holder;
+	}
+
+	public boolean hasQuadLists() {
+		return quadLists != null;
+	}
+
+	public List<BakedQuad>[] quadLists() {
+		List<BakedQuad>[] result = quadLists;
+
+		if (result == null) {
+			result = ModelHelper.toQuadLists(mesh);
+			quadLists = result;
+		}
+
+		return result;
+	}
+
+	private static final ConcurrentHashMap<Long, WeakReference<PaintedMesh>> STORE = new ConcurrentHashMap<>();
+
+	/** Store size that triggers next sweep of cleared references */
+	private static volatile int sweepThreshold = 1024;
+
+	private static final ThreadLocal<Content> CONTENT = ThreadLocal.withInitial(Content::new);
+
+	/**
+	 * Returns the shared instance with identical content if one exists, or else a new
+	 * instance for the given mesh that later identical meshes will share.
+	 * <p>
+	 *
+	 * Content comparison runs without any lock. The store entry is only replaced if it
+	 * is unchanged since it was read, otherwise the lookup is retried.
+	 */
+	public static PaintedMesh share(Mesh mesh, int quadCount, Sprite particleSprite, int particleColorARBG) {
+		final Content content = CONTENT.get().load(mesh);
+		final Long hash = content.hash();
+		PaintedMesh result = null;
+		WeakReference<PaintedMesh> resultRef = null;
+
+		while (true) {
+			final WeakReference<PaintedMesh> ref = STORE.get(hash);
+			final PaintedMesh existing = ref == null ? null : ref.get();
+
+			if (existing != null && existing.particleSprite == particleSprite && existing.particleColorARBG == particleColorARBG
+					&& existing.quadCount == quadCount && content.matches(existing.mesh)) {
+				return existing;
+			}
+
+			if (result == null) {
+				result = new PaintedMesh(mesh, quadCount, particleSprite, particleColorARBG);
+				resultRef = new WeakReference<>(result);
+			}
+
+			// on a true hash collision the newer mesh replaces the older as share target
+			if (ref == null ? STORE.putIfAbsent(hash, resultRef) == null : STORE.replace(hash, ref, resultRef)) {
+				break;
+			}
+		}
+
+		if (STORE.size() >= sweepThreshold) {
+			sweep();
+		}
+
+		return result;
+	}
+
+	private static synchronized void sweep() {
+		if (STORE.size() >= sweepThreshold) {
+			STORE.values().removeIf(r -> r.get() == null);
+			sweepThreshold = Math.max(1024, STORE.size() * 2);
+		}
+	}
+
+	public static synchronized void clear() {
+		STORE.clear();
+		sweepThreshold = 1024;
+	}
+
+	/**
+	 * Flattened mesh content used for hashing and comparison. Reused per thread.
+	 */
+	private static class Content {
+		private final IntArrayList data = new IntArrayList();
+		private final ObjectArrayList<RenderMaterial> materials = new ObjectArrayList<>();
+		private final int[] vertexData = new int[32];
+
+		/** Used for comparison so that loaded content is not overwritten */
+		private Content other;
+
+		private Content load(Mesh mesh) {
+			data.clear();
+			materials.clear();
+
+			mesh.forEach(q -> {
+				final RenderMaterial mat = q.material();
+				materials.add(mat);
+				data.add(q.cullFace() == null ? -1 : q.cullFace().ordinal());
+				data.add(q.nominalFace() == null ? -1 : q.nominalFace().ordinal());
+				data.add(q.colorIndex());
+				data.add(q.tag());
+
+				final int depth = mat.spriteDepth();
+
+				for (int i = 0; i < depth; ++i) {
+					addVertexData(q, i);
+				}
+			});
+
+			return this;
+		}
+
+		private void addVertexData(QuadView q, int spriteIndex) {
+			q.toVanilla(spriteIndex, vertexData, 0, false);
+			data.addElements(data.size(), vertexData);
+		}
+
+		private long hash() {
+			long result = data.size();
+			final int[] d = data.elements();
+			final int limit = data.size();
+
+			for (int i = 0; i < limit; ++i) {
+				result = result * 31 + d[i];
+			}
+
+			for (final RenderMaterial mat : materials) {
+				result = result * 31 + System.identityHashCode(mat);
+			}
+
+			return HashCommon.mix(result);
+		}
+
+		private boolean matches(Mesh mesh) {
+			Content other = this.other;
+
+			if (other == null) {
+				other = new Content();
+				this.other = other;
+			}
+
+			other.load(mesh);
+
+			if (other.data.size() != data.size() || other.materials.size() != materials.size()) {
+				return false;
+			}
+
+			final int limit = materials.size();
+
+			for (int i = 0; i < limit; ++i) {
+				if (materials.get(i) != other.materials.get(i)) {
+					return false;
+				}
+			}
+
+			final int[] a = data.elements();
+			final int[] b = other.data.elements();
+			final int dataLimit = data.size();
+
+			for (int i = 0; i < dataLimit; ++i) {
+				if (a[i] != b[i]) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+	}
+}
@@ -17,8 +17,6 @@ package grondag.xm.painter;
 
 import static org.apiguardian.api.API.Status.INTERNAL;
 
-import java.util.function.Consumer;
-import java.util.function.IntConsumer;
 
 import it.unimi.dsi.fastutil.HashCommon;
 import org.apiguardian.api.API;
@@ -76,13 +74,13 @@ public abstract class SurfacePainterTiled extends AbstractQuadPainter {
 	/**
 	 *
 	 * If quad at the target address is within the given u bounds, does nothing to
-	 * it and passes address to consumer, and then returns
+	 * it and passes address to {@link TileContext#splitV(int)}, and then returns
 	 * {@link Polygon#NO_ADDRESS};
 	 *
 	 * Otherwise, slices off a quad from the poly at the target address, with u
 	 * value between low bound + span, with the assumption no vertices are below the
 	 * lower bound. Appends the new quad to the end of the stream, and passes its
-	 * address to the consumer. The original quad is marked as deleted.
+	 * address to {@link TileContext#splitV(int)}. The original quad is marked as deleted.
 	 * <p>
 	 *
 	 * Output quads will have uMin/uMax of 0,1 corresponding to the given split
@@ -98,16 +96,15 @@ public abstract class SurfacePainterTiled extends AbstractQuadPainter {
 	 * <p>
 	 *
 	 * EXCEPT, if all remainder vertices are within the given split bounds, will
-	 * instead apply offset and scaled as if it had been sliced, and pass it to the
-	 * consumer. Will then return {@link Polygon#NO_ADDRESS}.
+	 * instead apply offset and scaled as if it had been sliced, and pass it on for
+	 * v splitting. Will then return {@link Polygon#NO_ADDRESS}.
 	 */
-	private static int splitU(MutableMesh stream, int targetAddress, int layerIndex, final float uSplitLow, final float uSpan, IntConsumer vSplitter) {
+	private static int splitU(MutableMesh stream, int targetAddress, int layerIndex, final float uSplitLow, final float uSpan, TileContext context) {
 		final Polygon reader = stream.reader(targetAddress);
 		assert PolyHelper.epsilonZero(reader.minU(layerIndex));
 		final int vCountIn = reader.vertexCount();
 
-		// PERF: make this threadlocal
-		final float[] vertexU = new float[vCountIn];
+		final float[] vertexU = context.scratch(vCountIn);
 		final boolean flipped = uSpan < 0;
 
 		/** points fully within the slice */
@@ -145,7 +142,7 @@ public abstract class SurfacePainterTiled extends AbstractQuadPainter {
 			for (int i = 0; i < vCountIn; i++) {
 				editor.u(i, layerIndex, vertexU[i]);
 			}
-			vSplitter.accept(targetAddress);
+			context.splitV(targetAddress);
 			return Polygon.NO_LINK_OR_TAG;
 		}
 
@@ -222,7 +219,7 @@ public abstract class SurfacePainterTiled extends AbstractQuadPainter {
 		// input poly no longer valid so delete
 		stream.reader(targetAddress).delete();
 
-		vSplitter.accept(sliceAddress);
+		context.splitV(sliceAddress);
 		return remainderAddress;
 	}
 
@@ -244,16 +241,15 @@ public abstract class SurfacePainterTiled extends AbstractQuadPainter {
 	}
 
 	/**
-	 * Just like {@link #splitU(MutablePolygon, float, float, Consumer)} but for
-	 * the v dimension.
+	 * Just like {@link #splitU(MutableMesh, int, int, float, float, TileContext)} but for
+	 * the v dimension. Output goes to {@link TileContext#paintTile(int)}.
 	 */
-	private static int splitV(MutableMesh stream, int targetAddress, int layerIndex, float vSplitLow, float vSpan, IntConsumer output) {
+	private static int splitV(MutableMesh stream, int targetAddress, int layerIndex, float vSplitLow, float vSpan, TileContext context) {
 		final Polygon reader = stream.reader(targetAddress);
 		assert PolyHelper.epsilonZero(reader.minV(layerIndex));
 		final int vCountIn = reader.vertexCount();
 
-		// PERF: make this threadlocal
-		final float[] vertexV = new float[vCountIn];
+		final float[] vertexV = context.scratch(vCountIn);
 		final boolean flipped = vSpan < 0;
 
 		/** points fully within the slice */
@@ -292,7 +288,7 @@ public abstract class SurfacePainterTiled extends AbstractQuadPainter {
 			for (int i = 0; i < vCountIn; i++) {
 				editor.v(i, layerIndex, vertexV[i]);
 			}
-			output.accept(targetAddress);
+			context.paintTile(targetAddress);
 			return Polygon.NO_LINK_OR_TAG;
 		}
 
@@ -364,7 +360,7 @@ public abstract class SurfacePainterTiled extends AbstractQuadPainter {
 		// input no longer valid so delete
 		reader.delete();
 
-		output.accept(sliceAddress);
+		context.paintTile(sliceAddress);
 		return remainderAddress;
 	}
 
@@ -382,6 +378,9 @@ public abstract class SurfacePainterTiled extends AbstractQuadPainter {
 			return;
 		}
 
+		final TileContext context = CONTEXT.get();
+		context.prepare(stream, editor, modelState, surface, paint, textureIndex);
+
 		do {
 			// may move editor so save address and restore at end
 			final int editorAddress = editor.address();
@@ -443,65 +442,18 @@ public abstract class SurfacePainterTiled extends AbstractQuadPainter {
 
 			final int baseSalt = (editor.textureSalt() << 3) | (face == null ? 6 : face.ordinal());
 
+			context.tex = tex;
+			context.tilingDistance = tilingDistance;
+			context.vMinIndex = vMinIndex;
+			context.vMaxIndex = vMaxIndex;
+			context.baseSalt = baseSalt;
+
 			int uRemainder = editorAddress;
 
 			// do the splits
 			for (int uIndex = uMinIndex; uIndex != uMaxIndex; uIndex++) {
-				final int uIndexFinal = uIndex;
-				final float uSplitLow = uIndexFinal * tilingDistance;
-
-				uRemainder = splitU(stream, uRemainder, textureIndex, uSplitLow, tilingDistance, vTargetAddress -> {
-					int vRemainder = vTargetAddress;
-					for (int vIndex = vMinIndex; vIndex != vMaxIndex; vIndex++) {
-						final int vIndexFinal = vIndex;
-						final float vSplitLow = vIndexFinal * tilingDistance;
-
-						vRemainder = splitV(stream, vRemainder, textureIndex, vSplitLow, tilingDistance, outputAddress -> {
-							// final painting and output
-
-							// If we get to this point, quad is within tile boundaries (if needed) and all
-							// needed splits have happened.
-
-							// The uv min/max on the quad should be 0-1, where 1 represents a single
-							// texture tile distance. The provided salt will be used for texture
-							// randomization.
-
-							// salt at this point will be original salt plus u,v indexes in higher bits (if
-							// applicable)
-							// add face if have it to make faces different and then hash it.
-							// Note that we could do some randomization via texture offset, but that would
-							// be more complicated and might force us to do additional splits on some models
-							// (would it?)
-							// For now, always use uv 0,0 as tiling origin.
-							editor.moveTo(outputAddress);
-
-							final int salt = HashCommon.mix(baseSalt | (uIndexFinal << 16) | (vIndexFinal << 22));
-							final int textureVersion = tex.versionMask() & (salt >> 4);
-							editor.sprite(textureIndex, tex.textureName(textureVersion));
-
-							//TODO: honor additional transform types
-							final ClockwiseRotation rot = tex.transform() == TextureTransform.ROTATE_RANDOM
-									? Useful.offsetEnumValue(tex.transform().baseRotation, (salt >> 16) & 3)
-											: tex.transform().baseRotation;
-
-									editor.rotation(textureIndex, TextureOrientation.find(rot, false, false));
-
-									editor.lockUV(textureIndex, false);
-									commonPostPaint(editor, modelState, surface, paint, textureIndex);
-
-									// earlier UV splits may have left us with something other than a convex quad or
-									// tri
-									// doing this last to avoid have to loop through the splits
-									if (editor.splitIfNeeded()) {
-										assert editor.isDeleted();
-									}
-						});
-
-						if (vRemainder == Polygon.NO_LINK_OR_TAG) {
-							break;
-						}
-					}
-				});
+				context.uIndex = uIndex;
+				uRemainder = splitU(stream, uRemainder, textureIndex, uIndex * tilingDistance, tilingDistance, context);
 
 				if (uRemainder == Polygon.NO_LINK_OR_TAG) {
 					break;
@@ -512,5 +464,127 @@ public abstract class SurfacePainterTiled extends AbstractQuadPainter {
 			editor.moveTo(editorAddress);
 
 		} while (editor.next());
+
+		context.release();
+	}
+
+	private static final ThreadLocal<TileContext> CONTEXT = ThreadLocal.withInitial(TileContext::new);
+
+	/**
+	 * Per-thread state for the u and v split passes, so that painting a tiled
+	 * surface does not allocate vertex buffers or capturing lambdas for every
+	 * polygon and tile.
+	 */
+	@SuppressWarnings("rawtypes")
+	private static class TileContext {
+		private float[] vertexUV = new float[8];
+
+		private MutableMesh stream;
+		private MutablePolygon editor;
+		private BaseModelState modelState;
+		private XmSurface surface;
+		private XmPaint paint;
+		private int textureIndex;
+
+		private TextureSet tex;
+		private float tilingDistance;
+		private int vMinIndex;
+		private int vMaxIndex;
+		private int baseSalt;
+		private int uIndex;
+		private int vIndex;
+
+		private void prepare(MutableMesh stream, MutablePolygon editor, BaseModelState modelState, XmSurface surface, XmPaint paint, int textureIndex) {
+			this.stream = stream;
+			this.editor = editor;
+			this.modelState = modelState;
+			this.surface = surface;
+			this.paint = paint;
+			this.textureIndex = textureIndex;
+		}
+
+		/** Drops references so a pooled context does not retain meshes or model states. */
+		private void release() {
+			stream = null;
+			editor = null;
+			modelState = null;
+			surface = null;
+			paint = null;
+			tex = null;
+		}
+
+		/**
+		 * Shared by u and v passes. Safe because splitU is finished with the
+		 * buffer before it hands the slice to {@link #splitV(int)}.
+		 */
+		private float[] scratch(int vertexCount) {
+			float[] result = vertexUV;
+
+			if (result.length < vertexCount) {
+				result = new float[vertexCount];
+				vertexUV = result;
+			}
+
+			return result;
+		}
+
+		private void splitV(int vTargetAddress) {
+			int vRemainder = vTargetAddress;
+
+			for (int v = vMinIndex; v != vMaxIndex; v++) {
+				vIndex = v;
+				vRemainder = SurfacePainterTiled.splitV(stream, vRemainder, textureIndex, v * tilingDistance, tilingDistance, this);
+
+				if (vRemainder == Polygon.NO_LINK_OR_TAG) {
+					break;
+				}
+			}
+		}
+
+		/**
+		 * Final painting and output.
+		 * <p>
+		 *
+		 * If we get to this point, quad is within tile boundaries (if needed) and all
+		 * needed splits have happened.
+		 * <p>
+		 *
+		 * The uv min/max on the quad should be 0-1, where 1 represents a single
+		 * texture tile distance. The provided salt will be used for texture
+		 * randomization.
+		 * <p>
+		 *
+		 * Salt at this point will be original salt plus u,v indexes in higher bits (if
+		 * applicable). Add face if have it to make faces different and then hash it.
+		 * Note that we could do some randomization via texture offset, but that would
+		 * be more complicated and might force us to do additional splits on some models
+		 * (would it?) For now, always use uv 0,0 as tiling origin.
+		 */
+		private void paintTile(int outputAddress) {
+			final MutablePolygon editor = this.editor;
+			final TextureSet tex = this.tex;
+			editor.moveTo(outputAddress);
+
+			final int salt = HashCommon.mix(baseSalt | (uIndex << 16) | (vIndex << 22));
+			final int textureVersion = tex.versionMask() & (salt >> 4);
+			editor.sprite(textureIndex, tex.textureName(textureVersion));
+
+			//TODO: honor additional transform types
+			final ClockwiseRotation rot = tex.transform() == TextureTransform.ROTATE_RANDOM
+					? Useful.offsetEnumValue(tex.transform().baseRotation, (salt >> 16) & 3)
+							: tex.transform().baseRotation;
+
+			editor.rotation(textureIndex, TextureOrientation.find(rot, false, false));
+
+			editor.lockUV(textureIndex, false);
+			commonPostPaint(editor, modelState, surface, paint, textureIndex);
+
+			// earlier UV splits may have left us with something other than a convex quad or
+			// tri
+			// doing this last to avoid have to loop through the splits
+			if (editor.splitIfNeeded()) {
+				assert editor.isDeleted();
+			}
+		}
 	}
 }
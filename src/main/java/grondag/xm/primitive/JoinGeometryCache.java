@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.primitive;
+
+import static org.apiguardian.api.API.Status.INTERNAL;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import org.apiguardian.api.API;
+
+import grondag.xm.api.mesh.XmMesh;
+
+/**
+ * Geometry of primitives whose shape depends on corner joins or alternate joins.
+ * These have too many possible states for the direct-indexed cache in
+ * {@link SimplePrimitiveBuilderImpl}, but blocks used in bulk repeat a small
+ * number of join patterns, so a bounded cache avoids rebuilding the same mesh
+ * for every painted variant.
+ * <p>
+ *
+ * Keys are packed geometry indexes. Entries are split across segments by key hash,
+ * each an LRU map guarded by its own lock. Meshes are built outside the lock, so
+ * concurrent misses on the same key may both build - the first one stored wins.
+ * <p>
+ *
+ * Hit, miss and eviction counts are shared by all instances and reported
+ * by the stats command.
+ */
+@API(status = INTERNAL)
+public class JoinGeometryCache {
+	private static final int SEGMENT_COUNT = 16;
+	private static final int SEGMENT_MASK = SEGMENT_COUNT - 1;
+
+	private static final LongAdder HIT_COUNT = new LongAdder();
+	private static final LongAdder MISS_COUNT = new LongAdder();
+	private static final LongAdder EVICTION_COUNT = new LongAdder();
+	private static final AtomicInteger SIZE = new AtomicInteger();
+
+	private final Segment[] segments = new Segment[SEGMENT_COUNT];
+
+	public JoinGeometryCache(int maximumSize) {
+		final int segmentSize = Math.max(1, maximumSize / SEGMENT_COUNT);
+
+		for (int i = 0; i < SEGMENT_COUNT; ++i) {
+			segments[i] = new Segment(segmentSize);
+		}
+	}
+
+	/**
+	 * Mesh previously stored for the key, or null. Counts as a hit or miss.
+	 */
+	public XmMesh get(long key) {
+		final XmMesh result = segmentFor(key).get(key);
+
+		if (result == null) {
+			MISS_COUNT.increment();
+		} else {
+			HIT_COUNT.increment();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Stores the mesh unless another thread stored one first.
+	 * Returns the mesh that is retained for the key.
+	 */
+	public XmMesh put(long key, XmMesh mesh) {
+		return segmentFor(key).put(key, mesh);
+	}
+
+	public void clear() {
+		for (final Segment s : segments) {
+			s.clear();
+		}
+	}
+
+	private Segment segmentFor(long key) {
+		return segments[(int) HashCommon.mix(key) & SEGMENT_MASK];
+	}
+
+	public static int size() {
+		return SIZE.get();
+	}
+
+	public static long hitCount() {
+		return HIT_COUNT.sum();
+	}
+
+	public static long missCount() {
+		return MISS_COUNT.sum();
+	}
+
+	public static long evictionCount() {
+		return EVICTION_COUNT.sum();
+	}
+
+	public static float hitRate() {
+		final long hits = hitCount();
+		final long total = hits + missCount();
+		return total == 0 ? 1f : (float) hits / total;
+	}
+
+	private static class Segment {
+		private final int maximumSize;
+		private final Long2ObjectLinkedOpenHashMap<XmMesh> map = new Long2ObjectLinkedOpenHashMap<>();
+
+		private Segment(int maximumSize) {
+			this.maximumSize = maximumSize;
+		}
+
+		private synchronized XmMesh get(long key) {
+			return map.getAndMoveToLast(key);
+		}
+
+		private synchronized XmMesh put(long key, XmMesh mesh) {
+			final XmMesh prior = map.getAndMoveToLast(key);
+
+			if (prior != null) {
+				return prior;
+			}
+
+			if (map.size() >= maximumSize) {
+				map.removeFirst();
+				EVICTION_COUNT.increment();
+			} else {
+				SIZE.incrementAndGet();
+			}
+
+			map.putAndMoveToLast(key, mesh);
+			return mesh;
+		}
+
+		private synchronized void clear() {
+			SIZE.addAndGet(-map.size());
+			map.clear();
+		}
+	}
+}
@@ -31,6 +31,7 @@ import net.minecraft.util.Identifier;
 
 import grondag.fermion.orientation.api.OrientationType;
 import grondag.xm.Xm;
+import grondag.xm.api.connect.state.CornerJoinState;
 import grondag.xm.api.mesh.XmMesh;
 import grondag.xm.api.mesh.polygon.Polygon;
 import grondag.xm.api.modelstate.primitive.MutablePrimitiveState;
@@ -110,8 +111,14 @@ public class SimplePrimitiveBuilderImpl {
 	}
 
 	protected static class Primitive extends AbstractSimplePrimitive {
+		/** Per-primitive bound on retained join geometry - bulk builds use far fewer patterns */
+		private static final int JOIN_CACHE_SIZE = 4096;
+
 		private final XmMesh[] cachedQuads;
 
+		/** Used instead of {@link #cachedQuads} when joins make the state space too large to index */
+		private final JoinGeometryCache joinCache;
+
 		private final OrientationType orientationType;
 
 		private final Function<PrimitiveState, XmMesh> polyFactory;
@@ -147,7 +154,14 @@ public class SimplePrimitiveBuilderImpl {
 				count <<= AXIS_JOIN_BIT_COUNT;
 			}
 
-			cachedQuads = cornerJoin || alternateJoinAffectsGeometry ? null : new XmMesh[count];
+			if (cornerJoin || alternateJoinAffectsGeometry) {
+				cachedQuads = null;
+				joinCache = new JoinGeometryCache(JOIN_CACHE_SIZE);
+			} else {
+				cachedQuads = new XmMesh[count];
+				joinCache = null;
+			}
+
 			invalidateCache();
 		}
 
@@ -155,8 +169,10 @@ public class SimplePrimitiveBuilderImpl {
 		public void invalidateCache() {
 			notifyException = true;
 
-			if(!(cornerJoin || alternateJoinAffectsGeometry)) {
+			if (joinCache == null) {
 				Arrays.fill(cachedQuads, null);
+			} else {
+				joinCache.clear();
 			}
 		}
 
@@ -168,18 +184,36 @@ public class SimplePrimitiveBuilderImpl {
 		@Override
 		public void emitQuads(PrimitiveState modelState, Consumer<Polygon> target) {
 			try {
+				int index = (modelState.orientationIndex() << bitShift) | (modelState.primitiveBits() << 1);
+
+				if (modelState.primitive().lampSurface(modelState) != null) {
+					index |= 1;
+				}
+
 				XmMesh mesh;
 
-				if (cornerJoin || alternateJoinAffectsGeometry) {
-					mesh = polyFactory.apply(modelState);
+				if (joinCache != null) {
+					long key = index;
 
-				} else {
-					int index = (modelState.orientationIndex() << bitShift) | (modelState.primitiveBits() << 1);
+					if (cornerJoin) {
+						key = key * CornerJoinState.STATE_COUNT + modelState.cornerJoin().ordinal();
+					} else if (simpleJoin) {
+						key = (key << 6) | modelState.simpleJoin().ordinal();
+					} else if (axisJoin) {
+						key = (key << AXIS_JOIN_BIT_COUNT) | SimpleJoinStateImpl.toAxisJoinIndex(modelState.simpleJoin());
+					}
 
-					if (modelState.primitive().lampSurface(modelState) != null) {
-						index |= 1;
+					if (alternateJoinAffectsGeometry) {
+						key = (key << 6) | modelState.alternateJoinBits();
 					}
 
+					mesh = joinCache.get(key);
+
+					if (mesh == null) {
+						mesh = joinCache.put(key, polyFactory.apply(modelState));
+					}
+
+				} else {
 					if(simpleJoin) {
 						index = (index << 6) | modelState.simpleJoin().ordinal();
 					} else if (axisJoin) {
@@ -136,20 +136,28 @@ public class TerrainBlockHelper {
 		 * Should be a fill +2 if block below is not a heightblock and block two below
 		 * needs a fill = 2; Otherwise should be air.
 		 */
+		final TerrainHeightField field = worldObj.heightField();
 		final long posBelow = PackedBlockPos.down(packedBasePos, 1);
-		final BlockState stateBelow = worldObj.getBlockState(posBelow);
 
-		if (isFlowHeight(stateBelow) && worldObj.terrainState(stateBelow, posBelow).topFillerNeeded() > 0) {
-			targetFill = 1;
+		if (TerrainHeightField.isFlowHeight(field.get(posBelow))) {
+			final BlockState stateBelow = worldObj.getBlockState(posBelow);
 
-			fillBlock = TerrainBlockRegistry.TERRAIN_STATE_REGISTRY.getFillerBlock(stateBelow.getBlock());
-		} else {
+			if (worldObj.terrainState(stateBelow, posBelow).topFillerNeeded() > 0) {
+				targetFill = 1;
+				fillBlock = TerrainBlockRegistry.TERRAIN_STATE_REGISTRY.getFillerBlock(stateBelow.getBlock());
+			}
+		}
+
+		if (targetFill == SHOULD_BE_AIR) {
 			final long posTwoBelow = PackedBlockPos.down(packedBasePos, 2);
-			final BlockState stateTwoBelow = worldObj.getBlockState(posTwoBelow);
 
-			if ((isFlowHeight(stateTwoBelow) && worldObj.terrainState(stateTwoBelow, posTwoBelow).topFillerNeeded() == 2)) {
-				targetFill = 2;
-				fillBlock = TerrainBlockRegistry.TERRAIN_STATE_REGISTRY.getFillerBlock(stateTwoBelow.getBlock());
+			if (TerrainHeightField.isFlowHeight(field.get(posTwoBelow))) {
+				final BlockState stateTwoBelow = worldObj.getBlockState(posTwoBelow);
+
+				if (worldObj.terrainState(stateTwoBelow, posTwoBelow).topFillerNeeded() == 2) {
+					targetFill = 2;
+					fillBlock = TerrainBlockRegistry.TERRAIN_STATE_REGISTRY.getFillerBlock(stateTwoBelow.getBlock());
+				}
 			}
 		}
 
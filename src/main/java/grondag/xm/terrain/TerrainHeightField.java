@@ -0,0 +1,230 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.terrain;
+
+import static org.apiguardian.api.API.Status.INTERNAL;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import org.apiguardian.api.API;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.BlockView;
+
+import grondag.fermion.position.PackedBlockPos;
+import grondag.xm.dispatch.SnapshotViews;
+
+/**
+ * Terrain type and heat of blocks read by {@link TerrainState}, decoded once per block
+ * and held in one {@code short[]} per chunk section.
+ * <p>
+ *
+ * Each cell packs terrain type ordinal + 1 (zero if not a terrain block) in the low four bits
+ * and heat in the next four. {@link #KNOWN} is set once a cell has been read so that zero
+ * can mean "not yet read" and arrays can be reused without a separate fill.
+ * <p>
+ *
+ * Values are only retained for views that cannot change while in use: the
+ * {@link TerrainWorldAdapter} that owns the field, which updates cells through its block change
+ * hook, and {@link SnapshotViews snapshots} such as client render regions. A field obtained from
+ * {@link #forView(BlockView)} for a render region stays valid for consecutive calls on
+ * the same thread with the same region, so a chunk rebuild decodes each block once.
+ * Other views, including live worlds, are read directly without caching.
+ * <p>
+ *
+ * Not thread-safe. Thread-local instances are used for render regions. The view is
+ * weakly held so that a thread-local field does not keep a render region, and through
+ * it the client world, reachable after the rebuild that used it. Thread-local fields
+ * discard all cached values on first use after {@link #releaseThreadFields()}.
+ */
+@API(status = INTERNAL)
+public class TerrainHeightField {
+	public static final int KNOWN = 0x8000;
+	private static final int TYPE_MASK = 0xF;
+	private static final int HEAT_SHIFT = 4;
+	private static final int HEAT_MASK = 0xF;
+
+	private static final TerrainType[] TYPES = TerrainType.values();
+
+	private static final ThreadLocal<TerrainHeightField> THREAD_FIELD = ThreadLocal.withInitial(TerrainHeightField::new);
+
+	private static final WeakReference<BlockView> NO_WORLD = new WeakReference<>(null);
+
+	/** Incremented by {@link #releaseThreadFields()}. */
+	private static volatile int releaseEpoch = 0;
+
+	/**
+	 * Causes thread-local fields to drop cached sections when next used.
+	 * Call when the client world is unloaded or render state is invalidated.
+	 */
+	public static void releaseThreadFields() {
+		++releaseEpoch;
+	}
+
+	/**
+	 * Field to use when reading terrain from the given view. Result is only
+	 * valid on the calling thread until the next call.
+	 */
+	public static TerrainHeightField forView(BlockView world) {
+		if (world instanceof TerrainWorldAdapter) {
+			return ((TerrainWorldAdapter) world).heightField();
+		}
+
+		final TerrainHeightField result = THREAD_FIELD.get();
+		final int releaseEpoch = TerrainHeightField.releaseEpoch;
+
+		if (result.releaseEpoch != releaseEpoch) {
+			result.release();
+			result.releaseEpoch = releaseEpoch;
+		}
+
+		if (result.worldRef.get() != world) {
+			result.prepare(world, SnapshotViews.isSnapshot(world));
+		}
+
+		return result;
+	}
+
+	private final Long2ObjectOpenHashMap<short[]> sections = new Long2ObjectOpenHashMap<>();
+	private final ObjectArrayList<short[]> spareSections = new ObjectArrayList<>();
+	private final BlockPos.Mutable searchPos = new BlockPos.Mutable();
+	private long lastKey;
+	private short[] lastSection;
+	private WeakReference<BlockView> worldRef = NO_WORLD;
+	private boolean retain;
+	private int releaseEpoch;
+
+	/**
+	 * Releases cached values and targets the given view.
+	 * If {@code retain} is false, values are read on every call.
+	 */
+	public void prepare(BlockView world, boolean retain) {
+		worldRef = new WeakReference<>(world);
+		this.retain = retain;
+		lastSection = null;
+
+		if (!sections.isEmpty()) {
+			for (final short[] section : sections.values()) {
+				Arrays.fill(section, (short) 0);
+				spareSections.add(section);
+			}
+
+			sections.clear();
+		}
+	}
+
+	/**
+	 * Drops the view and all section arrays, including spares.
+	 */
+	private void release() {
+		worldRef = NO_WORLD;
+		retain = false;
+		lastSection = null;
+		sections.clear();
+		spareSections.clear();
+	}
+
+	/**
+	 * Packed cell for the block at the given position.
+	 */
+	public int get(int x, int y, int z) {
+		final BlockView world = worldRef.get();
+
+		if (!retain) {
+			return encode(world.getBlockState(searchPos.set(x, y, z)));
+		}
+
+		final long key = ChunkSectionPos.asLong(x >> 4, y >> 4, z >> 4);
+		short[] section = lastSection;
+
+		if (section == null || key != lastKey) {
+			section = sections.get(key);
+
+			if (section == null) {
+				section = spareSections.isEmpty() ? new short[4096] : spareSections.pop();
+				sections.put(key, section);
+			}
+
+			lastKey = key;
+			lastSection = section;
+		}
+
+		final int index = index(x, y, z);
+		int result = section[index];
+
+		if (result == 0) {
+			result = encode(world.getBlockState(searchPos.set(x, y, z)));
+			section[index] = (short) result;
+		}
+
+		return result;
+	}
+
+	public int get(long packedBlockPos) {
+		PackedBlockPos.unpackTo(packedBlockPos, searchPos);
+		return get(searchPos.getX(), searchPos.getY(), searchPos.getZ());
+	}
+
+	/**
+	 * Updates the cell for a changed block if its section is cached.
+	 */
+	public void onBlockChanged(int x, int y, int z, BlockState newState) {
+		if (retain) {
+			final short[] section = sections.get(ChunkSectionPos.asLong(x >> 4, y >> 4, z >> 4));
+
+			if (section != null) {
+				section[index(x, y, z)] = (short) encode(newState);
+			}
+		}
+	}
+
+	private static int index(int x, int y, int z) {
+		return (x & 15) | ((z & 15) << 4) | ((y & 15) << 8);
+	}
+
+	public static int encode(BlockState state) {
+		final TerrainType type = TerrainBlockHelper.terrainType(state);
+		return type == null ? KNOWN : KNOWN | (type.ordinal() + 1) | (TerrainBlockHelper.getHotness(state) << HEAT_SHIFT);
+	}
+
+	/** Null if not a terrain block. */
+	public static TerrainType type(int cell) {
+		final int ordinal = (cell & TYPE_MASK) - 1;
+		return ordinal < 0 ? null : TYPES[ordinal];
+	}
+
+	/** Same as {@link TerrainBlockHelper#getFlowHeightFromState(BlockState)}. */
+	public static int flowHeight(int cell) {
+		final TerrainType type = type(cell);
+		return type == null ? 0 : type.height;
+	}
+
+	/** Same as {@link TerrainBlockHelper#isFlowHeight(BlockState)}. */
+	public static boolean isFlowHeight(int cell) {
+		final TerrainType type = type(cell);
+		return type != null && type.isHeight;
+	}
+
+	/** Same as {@link TerrainBlockHelper#getHotness(BlockState)}. */
+	public static int heat(int cell) {
+		return (cell >> HEAT_SHIFT) & HEAT_MASK;
+	}
+}
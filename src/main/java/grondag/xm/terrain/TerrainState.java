@@ -1080,20 +1080,21 @@ public class TerrainState {
 
 		long hotness = 0;
 
-		final BlockPos.Mutable mPos = mutablePos.get();
+		final TerrainHeightField field = TerrainHeightField.forView(world);
+		final int x0 = pos.getX();
+		final int z0 = pos.getZ();
 
 		// HardScience.log.info("flowstate getBitsFromWorld @" + pos.toString());
 
 		int yOrigin = pos.getY();
-		BlockState originState = state;
+		int originCell;
 		if (isFlowFiller) {
 			final int offset = TerrainBlockHelper.getYOffsetFromState(state);
 			yOrigin -= offset;
 			yOffset = offset;
 
-			mPos.set(pos.getX(), pos.getY() - offset, pos.getZ());
-			originState = world.getBlockState(mPos);
-			if (!TerrainBlockHelper.isFlowHeight(originState))
+			originCell = field.get(x0, yOrigin, z0);
+			if (!TerrainHeightField.isFlowHeight(originCell))
 				return consumer.apply(EMPTY_BLOCK_STATE_KEY, 0);
 		} else {
 			// If under another flow height block, handle similar to filler block.
@@ -1101,58 +1102,40 @@ public class TerrainState {
 			// HardScience.log.info("flowstate is height block");
 
 			// try to use block above as height origin
-			mPos.set(pos.getX(), pos.getY() + 2, pos.getZ());
-			originState = world.getBlockState(mPos);
-			if (TerrainBlockHelper.isFlowHeight(originState)) {
+			originCell = field.get(x0, yOrigin + 2, z0);
+			if (TerrainHeightField.isFlowHeight(originCell)) {
 				yOrigin += 2;
 				yOffset = -2;
 				// HardScience.log.info("origin 2 up");
 			} else {
-				mPos.set(pos.getX(), pos.getY() + 1, pos.getZ());
-				originState = world.getBlockState(mPos);
-				if (TerrainBlockHelper.isFlowHeight(originState)) {
+				originCell = field.get(x0, yOrigin + 1, z0);
+				if (TerrainHeightField.isFlowHeight(originCell)) {
 					yOrigin += 1;
 					yOffset = -1;
 					// HardScience.log.info("origin 1 up");
 				} else {
 					// didn't work, handle as normal height block
-					originState = state;
+					originCell = TerrainHeightField.encode(state);
 					// HardScience.log.info("origin self");
 				}
 			}
 		}
 
-		// PERF: use packed block pos instead of mutable here
-		final int[][] neighborHeight = new int[3][3];
-		neighborHeight[1][1] = TerrainBlockHelper.getFlowHeightFromState(originState);
-		final int centerHeight = neighborHeight[1][1];
+		final int centerHeight = TerrainHeightField.flowHeight(originCell);
 
 		if (centerHeight > 0) {
-			hotness = CENTER_HOTNESS.setValue(TerrainBlockHelper.getHotness(originState), hotness);
+			hotness = CENTER_HOTNESS.setValue(TerrainHeightField.heat(originCell), hotness);
 		}
 		final boolean hasHotness = hotness != 0;
 
-		for (int x = 0; x < 3; x++) {
-			for (int z = 0; z < 3; z++) {
-				if (x == 1 && z == 1) {
-					continue;
-				}
-				mPos.set(pos.getX() - 1 + x, yOrigin, pos.getZ() - 1 + z);
-
-				// use cache if available
-				neighborHeight[x][z] = TerrainBlockHelper.getFlowHeightFromState(world.getBlockState(mPos));
-			}
-		}
-
 		for (final HorizontalFace side : HorizontalFace.values()) {
 			final int x = side.vector.getX();
 			final int z = side.vector.getZ();
-			final int h = neighborHeight[x + 1][z + 1];
+			final int h = TerrainHeightField.flowHeight(field.get(x0 + x, yOrigin, z0 + z));
 			sideHeight[side.ordinal()] = h;
 			if (h != TerrainState.NO_BLOCK && hasHotness) {
 				final int y = yOrigin - 2 + (h - TerrainState.MIN_HEIGHT) / TerrainState.BLOCK_LEVELS_INT;
-				mPos.set(pos.getX() + x, y, pos.getZ() + z);
-				final int heat = TerrainBlockHelper.getHotness(world.getBlockState(mPos));
+				final int heat = TerrainHeightField.heat(field.get(x0 + x, y, z0 + z));
 				if (heat != 0) {
 					hotness = SIDE_HOTNESS[side.ordinal()].setValue(heat, hotness);
 				}
@@ -1162,13 +1145,12 @@ public class TerrainState {
 		for (final HorizontalEdge corner : HorizontalEdge.values()) {
 			final int x = corner.vector.getX();
 			final int z = corner.vector.getZ();
-			final int h = neighborHeight[x + 1][z + 1];
+			final int h = TerrainHeightField.flowHeight(field.get(x0 + x, yOrigin, z0 + z));
 			cornerHeight[corner.ordinal()] = h;
 
 			if (h != TerrainState.NO_BLOCK && hasHotness) {
 				final int y = yOrigin - 2 + (h - TerrainState.MIN_HEIGHT) / TerrainState.BLOCK_LEVELS_INT;
-				mPos.set(pos.getX() + x, y, pos.getZ() + z);
-				final int heat = TerrainBlockHelper.getHotness(world.getBlockState(mPos));
+				final int heat = TerrainHeightField.heat(field.get(x0 + x, y, z0 + z));
 				if (heat != 0) {
 					hotness = CORNER_HOTNESS[corner.ordinal()].setValue(heat, hotness);
 				}
@@ -1181,33 +1163,33 @@ public class TerrainState {
 
 	/**
 	 * Pass in pos with Y of flow block for which we are getting data. Returns
-	 * relative flow height based on blocks 2 above through 2 down. Gets called
-	 * frequently, thus the use of mutable pos.
+	 * relative flow height based on blocks 2 above through 2 down.
 	 */
 	public static int getFlowHeight(BlockView world, long packedBlockPos) {
 		final Mutable mPos = mutablePos.get();
-		BlockState state = world.getBlockState(PackedBlockPos.unpackTo(PackedBlockPos.up(packedBlockPos, 2), mPos));
-		int h = TerrainBlockHelper.getFlowHeightFromState(state);
+		PackedBlockPos.unpackTo(packedBlockPos, mPos);
+		final int x = mPos.getX();
+		final int y = mPos.getY();
+		final int z = mPos.getZ();
+		final TerrainHeightField field = TerrainHeightField.forView(world);
+
+		int h = TerrainHeightField.flowHeight(field.get(x, y + 2, z));
 		if (h > 0)
 			return 2 * BLOCK_LEVELS_INT + h;
 
-		state = world.getBlockState(PackedBlockPos.unpackTo(PackedBlockPos.up(packedBlockPos), mPos));
-		h = TerrainBlockHelper.getFlowHeightFromState(state);
+		h = TerrainHeightField.flowHeight(field.get(x, y + 1, z));
 		if (h > 0)
 			return BLOCK_LEVELS_INT + h;
 
-		state = world.getBlockState(PackedBlockPos.unpackTo(packedBlockPos, mPos));
-		h = TerrainBlockHelper.getFlowHeightFromState(state);
+		h = TerrainHeightField.flowHeight(field.get(x, y, z));
 		if (h > 0)
 			return h;
 
-		state = world.getBlockState(PackedBlockPos.unpackTo(PackedBlockPos.down(packedBlockPos), mPos));
-		h = TerrainBlockHelper.getFlowHeightFromState(state);
+		h = TerrainHeightField.flowHeight(field.get(x, y - 1, z));
 		if (h > 0)
 			return -BLOCK_LEVELS_INT + h;
 
-		state = world.getBlockState(PackedBlockPos.unpackTo(PackedBlockPos.down(packedBlockPos, 2), mPos));
-		h = TerrainBlockHelper.getFlowHeightFromState(state);
+		h = TerrainHeightField.flowHeight(field.get(x, y - 2, z));
 		if (h > 0)
 			return -2 * BLOCK_LEVELS_INT + h;
 
@@ -37,9 +37,10 @@ import grondag.fermion.position.PackedBlockPos;
  * server-side use on server thread only. Doesn't try to track state changes
  * while not in active use, and all state changes must be single threaded and
  * occur through this instance.
+ * <p>
  *
- * TODO: add caching for flow height - do with as part of SuperBlockState TODO:
- * reinstate usage or remove
+ * Terrain type and heat of blocks read for terrain state computation are held
+ * in a {@link TerrainHeightField} that is updated as block states are set.
  */
 @API(status = INTERNAL)
 public class TerrainWorldAdapter implements BlockView {
@@ -81,6 +82,7 @@ public class TerrainWorldAdapter implements BlockView {
 
 	protected FastMap<BlockState> blockStates = new FastMap<>();
 	protected FastMap<TerrainState> terrainStates = new FastMap<>();
+	protected final TerrainHeightField heightField = new TerrainHeightField();
 
 	public TerrainWorldAdapter() {
 
@@ -94,6 +96,11 @@ public class TerrainWorldAdapter implements BlockView {
 		this.world = world;
 		blockStates.clear();
 		terrainStates.clear();
+		heightField.prepare(this, true);
+	}
+
+	public TerrainHeightField heightField() {
+		return heightField;
 	}
 
 	public World wrapped() {
@@ -142,6 +149,8 @@ public class TerrainWorldAdapter implements BlockView {
 		setBlockState(packedBlockPos, newState, true);
 	}
 
+	private final BlockPos.Mutable changePos = new BlockPos.Mutable();
+
 	/**
 	 * Use when you want to control
 	 * {@link #onBlockStateChange(long, BlockState, BlockState)} call back.
@@ -153,6 +162,8 @@ public class TerrainWorldAdapter implements BlockView {
 			return;
 
 		blockStates.put(packedBlockPos, newState);
+		PackedBlockPos.unpackTo(packedBlockPos, changePos);
+		heightField.onBlockChanged(changePos.getX(), changePos.getY(), changePos.getZ(), newState);
 		applyBlockState(packedBlockPos, oldState, newState);
 
 		if (callback) {
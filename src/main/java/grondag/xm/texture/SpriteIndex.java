@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.texture;
+
+import static org.apiguardian.api.API.Status.INTERNAL;
+
+import org.apiguardian.api.API;
+
+import net.minecraft.client.texture.Sprite;
+import net.minecraft.client.texture.SpriteAtlasTexture;
+import net.minecraft.util.Identifier;
+
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+
+import grondag.xm.mesh.TextureHandles;
+
+/**
+ * Block atlas sprites indexed by {@link TextureHandles} handle, so painting
+ * can find a sprite without creating an identifier or hashing its name.
+ * <p>
+ *
+ * Each handle is resolved the first time it is used after an atlas reload.
+ * Concurrent misses for the same handle may both resolve it, which is harmless
+ * because the result is the same. The array is replaced, not modified, when
+ * it grows or is invalidated. A sprite looked up while an invalidation was in
+ * progress is returned but not retained, because it may come from the old atlas.
+ */
+@API(status = INTERNAL)
+@Environment(EnvType.CLIENT)
+public final class SpriteIndex {
+	private SpriteIndex() { }
+
+	private static volatile Sprite[] sprites = new Sprite[256];
+
+	/** Incremented by each invalidation. Written only while holding the class lock. */
+	private static volatile int generation = 0;
+
+	/**
+	 * Sprite for the given non-zero texture handle in the current block atlas.
+	 */
+	public static Sprite sprite(int handle) {
+		final Sprite[] sprites = SpriteIndex.sprites;
+
+		if (handle < sprites.length) {
+			final Sprite result = sprites[handle];
+
+			if (result != null) {
+				return result;
+			}
+		}
+
+		return resolve(handle);
+	}
+
+	private static Sprite resolve(int handle) {
+		final int generation = SpriteIndex.generation;
+		final SpriteAtlasTexture atlas = TextureSetHelper.blockAtas();
+		final Sprite result = atlas.getSprite(new Identifier(TextureHandles.fromHandle(handle)));
+
+		synchronized (SpriteIndex.class) {
+			if (generation != SpriteIndex.generation) {
+				return result;
+			}
+
+			Sprite[] sprites = SpriteIndex.sprites;
+
+			if (handle >= sprites.length) {
+				final Sprite[] newSprites = new Sprite[Math.max(sprites.length * 2, handle + 1)];
+				System.arraycopy(sprites, 0, newSprites, 0, sprites.length);
+				sprites = newSprites;
+			}
+
+			sprites[handle] = result;
+			SpriteIndex.sprites = sprites;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Discards all resolved sprites. Call after the block atlas is reloaded.
+	 */
+	public static synchronized void invalidate() {
+		sprites = new Sprite[sprites.length];
+		++generation;
+	}
+}
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright 2020 grondag
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.xm.virtual;
+
+import static org.apiguardian.api.API.Status.INTERNAL;
+
+import java.util.Set;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import org.apiguardian.api.API;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+
+import grondag.fermion.position.IntegerBox;
+
+/**
+ * Excavation render entries of one world, indexed by the horizontal regions
+ * their bounds overlap so that player relevance checks only visit nearby entries.
+ * Regions are square columns {@link #REGION_SIZE} blocks wide. Not thread-safe -
+ * {@link ExcavationRenderTracker} synchronizes access.
+ */
+@API(status = INTERNAL)
+class ExcavationRegionIndex {
+	static final int REGION_SHIFT = 6;
+	static final int REGION_SIZE = 1 << REGION_SHIFT;
+
+	final Int2ObjectOpenHashMap<ExcavationRenderEntry> entries = new Int2ObjectOpenHashMap<>();
+
+	private final Long2ObjectOpenHashMap<ObjectArrayList<ExcavationRenderEntry>> cells = new Long2ObjectOpenHashMap<>();
+
+	/** Bounds under which each entry is currently indexed */
+	private final Int2ObjectOpenHashMap<IntegerBox> indexedBounds = new Int2ObjectOpenHashMap<>();
+
+	static int regionOf(int blockCoord) {
+		return blockCoord >> REGION_SHIFT;
+	}
+
+	void put(ExcavationRenderEntry entry) {
+		entries.put(entry.id, entry);
+	}
+
+	void remove(ExcavationRenderEntry entry) {
+		entries.remove(entry.id);
+		unindex(entry);
+	}
+
+	boolean contains(ExcavationRenderEntry entry) {
+		return entries.get(entry.id) == entry;
+	}
+
+	/**
+	 * Indexes the entry under new bounds, replacing any prior bounds.
+	 */
+	void reindex(ExcavationRenderEntry entry, IntegerBox bounds) {
+		unindex(entry);
+		indexedBounds.put(entry.id, bounds);
+
+		final BlockPos min = bounds.minPos();
+		final BlockPos max = bounds.maxPos();
+		final int maxX = regionOf(max.getX() - 1);
+		final int maxZ = regionOf(max.getZ() - 1);
+
+		for (int x = regionOf(min.getX()); x <= maxX; ++x) {
+			for (int z = regionOf(min.getZ()); z <= maxZ; ++z) {
+				cells.computeIfAbsent(ChunkPos.toLong(x, z), k -> new ObjectArrayList<>()).add(entry);
+			}
+		}
+	}
+
+	private void unindex(ExcavationRenderEntry entry) {
+		final IntegerBox bounds = indexedBounds.remove(entry.id);
+
+		if (bounds == null) {
+			return;
+		}
+
+		final BlockPos min = bounds.minPos();
+		final BlockPos max = bounds.maxPos();
+		final int maxX = regionOf(max.getX() - 1);
+		final int maxZ = regionOf(max.getZ() - 1);
+
+		for (int x = regionOf(min.getX()); x <= maxX; ++x) {
+			for (int z = regionOf(min.getZ()); z <= maxZ; ++z) {
+				final long key = ChunkPos.toLong(x, z);
+				final ObjectArrayList<ExcavationRenderEntry> list = cells.get(key);
+
+				if (list != null) {
+					list.remove(entry);
+
+					if (list.isEmpty()) {
+						cells.remove(key);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds entries with bounds overlapping regions within the given radius of the given region.
+	 */
+	void collectNear(int regionX, int regionZ, int radius, Set<ExcavationRenderEntry> target) {
+		if (cells.isEmpty()) {
+			return;
+		}
+
+		for (int x = regionX - radius; x <= regionX + radius; ++x) {
+			for (int z = regionZ - radius; z <= regionZ + radius; ++z) {
+				final ObjectArrayList<ExcavationRenderEntry> list = cells.get(ChunkPos.toLong(x, z));
+
+				if (list != null) {
+					target.addAll(list);
+				}
+			}
+		}
+	}
+}
@@ -17,14 +17,13 @@ package grondag.xm.virtual;
 
 import static org.apiguardian.api.API.Status.INTERNAL;
 
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import org.apiguardian.api.API;
 import org.jetbrains.annotations.Nullable;
 
@@ -45,7 +44,19 @@ import grondag.xm.network.S2C_ExcavationRenderUpdate;
  */
 @API(status = INTERNAL)
 public class ExcavationRenderEntry {
-	private static int nextID = 0;
+	private static final AtomicInteger nextID = new AtomicInteger();
+
+	private static final AtomicInteger nextThreadID = new AtomicInteger();
+
+	/**
+	 * Computation runs here instead of on the server thread. Computes for the same
+	 * entry are coalesced so the queue can never hold more than one task per entry.
+	 */
+	private static final ExecutorService COMPUTE_POOL = Executors.newFixedThreadPool(Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1)), r -> {
+		final Thread thread = new Thread(r, "XM Excavation Render " + nextThreadID.getAndIncrement());
+		thread.setDaemon(true);
+		return thread;
+	});
 
 	public final int id;
 
@@ -54,29 +65,30 @@ public class ExcavationRenderEntry {
 	public final ExcavationRenderTask task;
 
 	@Nullable
-	private IntegerBox aabb;
+	private volatile IntegerBox aabb;
 
-	private boolean isFirstComputeDone = false;
+	private volatile boolean isFirstComputeDone = false;
 
 	/** Non-null if should render individual renderPositions instead of AABB */
 	@Nullable
-	private BlockPos[] renderPositions = null;
+	private volatile long[] renderPositions = null;
 
-	private final Int2ObjectMap<AtomicInteger> xCounts = new Int2ObjectOpenHashMap<>();
-	private final Int2ObjectMap<AtomicInteger> yCounts = new Int2ObjectOpenHashMap<>();
-	private final Int2ObjectMap<AtomicInteger> zCounts = new Int2ObjectOpenHashMap<>();
+	/** Packed block positions - also serves as lock for axis bounds */
+	private final LongOpenHashSet positions = new LongOpenHashSet();
 
-	private final Set<BlockPos> positions = Collections.synchronizedSet(new HashSet<BlockPos>());
+	private final AxisBounds xBounds = new AxisBounds();
+	private final AxisBounds yBounds = new AxisBounds();
+	private final AxisBounds zBounds = new AxisBounds();
 
-	private boolean isValid = true;
+	private volatile boolean isValid = true;
 
 	/**
 	 * If true, has changed after the start of the last computation. Cleared at
 	 * start of computation run.
 	 * <p>
 	 *
-	 * If dirty when computation completes, computation will resubmit self to queue
-	 * for recomputation.
+	 * If dirty when computation completes, computation runs again before
+	 * releasing the worker.
 	 * <p>
 	 *
 	 * If becomes dirty while computation not in progress, {@link #setDirty()} will
@@ -84,62 +96,109 @@ public class ExcavationRenderEntry {
 	 */
 	private final AtomicBoolean isDirty = new AtomicBoolean(true);
 
+	/** True while a compute is queued or running */
+	private final AtomicBoolean isScheduled = new AtomicBoolean(false);
+
 	/**
 	 * Players who could be viewing this excavation and should received client-side
 	 * updates.
 	 */
 	private final SimpleUnorderedArrayList<ServerPlayerEntity> listeners = new SimpleUnorderedArrayList<>();
 
-	private void addPos(BlockPos pos) {
-		positions.add(pos);
+	/**
+	 * Position counts per coordinate along one axis, with min and max maintained
+	 * as positions are added and removed so bounds never require a full scan.
+	 */
+	private static class AxisBounds {
+		private final Int2IntOpenHashMap counts = new Int2IntOpenHashMap();
+		private int min = Integer.MAX_VALUE;
+		private int max = Integer.MIN_VALUE;
 
-		synchronized (xCounts) {
-			AtomicInteger xCounter = xCounts.get(pos.getX());
-			if (xCounter == null) {
-				xCounter = new AtomicInteger(1);
-				xCounts.put(pos.getX(), xCounter);
-			} else {
-				xCounter.incrementAndGet();
+		private void add(int coord) {
+			counts.addTo(coord, 1);
+
+			if (coord < min) {
+				min = coord;
+			}
+
+			if (coord > max) {
+				max = coord;
 			}
 		}
 
-		synchronized (yCounts) {
-			AtomicInteger yCounter = yCounts.get(pos.getY());
-			if (yCounter == null) {
-				yCounter = new AtomicInteger(1);
-				yCounts.put(pos.getY(), yCounter);
-			} else {
-				yCounter.incrementAndGet();
+		/**
+		 * Returns true if bounds changed.
+		 */
+		private boolean remove(int coord) {
+			final int count = counts.addTo(coord, -1) - 1;
+
+			if (count > 0) {
+				return false;
+			}
+
+			counts.remove(coord);
+
+			if (counts.isEmpty()) {
+				min = Integer.MAX_VALUE;
+				max = Integer.MIN_VALUE;
+				return true;
+			}
+
+			if (coord == min) {
+				while (!counts.containsKey(min)) {
+					++min;
+				}
+
+				return true;
+			} else if (coord == max) {
+				while (!counts.containsKey(max)) {
+					--max;
+				}
+
+				return true;
 			}
+
+			return false;
 		}
+	}
 
-		synchronized (zCounts) {
-			AtomicInteger zCounter = zCounts.get(pos.getZ());
-			if (zCounter == null) {
-				zCounter = new AtomicInteger(1);
-				zCounts.put(pos.getZ(), zCounter);
-			} else {
-				zCounter.incrementAndGet();
+	private void addPos(BlockPos pos) {
+		synchronized (positions) {
+			if (positions.add(pos.asLong())) {
+				xBounds.add(pos.getX());
+				yBounds.add(pos.getY());
+				zBounds.add(pos.getZ());
 			}
 		}
 	}
 
 	/**
-	 * Returns true if any dimension had a count drop to zero
+	 * Returns true if bounds changed or render positions need refresh.
 	 */
 	private boolean removePos(BlockPos pos) {
-		positions.remove(pos);
-		boolean gotZero = xCounts.get(pos.getX()).decrementAndGet() == 0;
-		gotZero = yCounts.get(pos.getY()).decrementAndGet() == 0 || gotZero;
-		gotZero = zCounts.get(pos.getZ()).decrementAndGet() == 0 || gotZero;
-		return gotZero;
+		synchronized (positions) {
+			if (!positions.remove(pos.asLong())) {
+				return false;
+			}
+
+			boolean result = xBounds.remove(pos.getX());
+			result = yBounds.remove(pos.getY()) || result;
+			result = zBounds.remove(pos.getZ()) || result;
+			return result || positions.size() <= 16;
+		}
+	}
+
+	private int positionCount() {
+		synchronized (positions) {
+			return positions.size();
+		}
 	}
 
 	/**
 	 * For server side
 	 */
 	public ExcavationRenderEntry(ExcavationRenderTask task) {
-		id = nextID++;
+		id = nextID.getAndIncrement();
 		world = task.world();
 		this.task = task;
 
@@ -151,7 +210,7 @@ public class ExcavationRenderEntry {
 
 		task.forEachPosition(this::addPos);
 
-		if (ExcavationRenderEntry.this.positions.size() == 0) {
+		if (positionCount() == 0) {
 			if (XmConfig.logExcavationRenderTracking) {
 				Xm.LOG.info("id = %d new Entry constructor - invalid", id);
 			}
@@ -160,13 +219,13 @@ public class ExcavationRenderEntry {
 			if (XmConfig.logExcavationRenderTracking) {
 				Xm.LOG.info("id = %d new Entry constructor - launching compute", id);
 			}
-			ExcavationRenderEntry.this.compute();
+			setDirty();
 		}
 	}
 
 	public void onPositionComplete(BlockPos pos) {
 		final boolean needsCompute = removePos(pos);
-		isValid = isValid && positions.size() > 0;
+		isValid = isValid && positionCount() > 0;
 		if (isValid) {
 			if (needsCompute) {
 				setDirty();
@@ -176,9 +235,27 @@ public class ExcavationRenderEntry {
 		}
 	}
 
+	/**
+	 * Schedules computation unless already scheduled. A compute already
+	 * running will see the dirty flag and run again.
+	 */
 	private void setDirty() {
-		isDirty.compareAndSet(false, true);
-		compute();
+		isDirty.set(true);
+
+		if (isScheduled.compareAndSet(false, true)) {
+			COMPUTE_POOL.execute(this::runCompute);
+		}
+	}
+
+	private void runCompute() {
+		do {
+			while (isDirty.getAndSet(false)) {
+				compute();
+			}
+
+			isScheduled.set(false);
+			// recheck in case dirtied after loop exit but before schedule flag cleared
+		} while (isDirty.get() && isScheduled.compareAndSet(false, true));
 	}
 
 	/**
@@ -189,14 +266,32 @@ public class ExcavationRenderEntry {
 		return isFirstComputeDone;
 	}
 
-	public void compute() {
+	private void compute() {
 		if (XmConfig.logExcavationRenderTracking) {
 			Xm.LOG.info("id = %d Compute running.", id);
 		}
 
-		isDirty.set(false);
+		final int count;
+		final IntegerBox newBox;
+		long[] newPositions = null;
+
+		synchronized (positions) {
+			count = positions.size();
+
+			if (count == 0) {
+				newBox = null;
+			} else {
+				newBox = new IntegerBox(xBounds.min, yBounds.min, zBounds.min, xBounds.max + 1, yBounds.max + 1, zBounds.max + 1);
+
+				if (count <= 16) {
+					final long[] current = renderPositions;
 
-		final int count = positions.size();
+					if (current == null || current.length != count) {
+						newPositions = positions.toLongArray();
+					}
+				}
+			}
+		}
 
 		if (count == 0) {
 			if (XmConfig.logExcavationRenderTracking) {
@@ -207,56 +302,25 @@ public class ExcavationRenderEntry {
 			return;
 		}
 
-		int minX = Integer.MAX_VALUE;
-		int maxX = Integer.MIN_VALUE;
-		for (final Int2ObjectMap.Entry<AtomicInteger> x : xCounts.int2ObjectEntrySet()) {
-			if (x.getValue().get() > 0) {
-				minX = Math.min(minX, x.getIntKey());
-				maxX = Math.max(maxX, x.getIntKey());
-			}
-		}
-
-		int minY = Integer.MAX_VALUE;
-		int maxY = Integer.MIN_VALUE;
-		for (final Int2ObjectMap.Entry<AtomicInteger> y : yCounts.int2ObjectEntrySet()) {
-			if (y.getValue().get() > 0) {
-				minY = Math.min(minY, y.getIntKey());
-				maxY = Math.max(maxY, y.getIntKey());
-			}
-		}
-
-		int minZ = Integer.MAX_VALUE;
-		int maxZ = Integer.MIN_VALUE;
-		for (final Int2ObjectMap.Entry<AtomicInteger> z : zCounts.int2ObjectEntrySet()) {
-			if (z.getValue().get() > 0) {
-				minZ = Math.min(minZ, z.getIntKey());
-				maxZ = Math.max(maxZ, z.getIntKey());
-			}
-		}
-
-		final IntegerBox newBox = new IntegerBox(minX, minY, minZ, maxX + 1, maxY + 1, maxZ + 1);
-
 		// always send start time computed
 		boolean needsListenerUpdate = !isFirstComputeDone;
-		isFirstComputeDone = true;
 
 		if (!newBox.equals(aabb)) {
 			aabb = newBox;
+			ExcavationRenderTracker.INSTANCE.onBoundsChanged(this, newBox);
 			needsListenerUpdate = true;
 		}
 
-		if (count <= 16 && (renderPositions == null || renderPositions.length != count)) {
-			synchronized (positions) {
-				BlockPos[] newPositions = new BlockPos[positions.size()];
-				newPositions = positions.toArray(newPositions);
-				renderPositions = newPositions;
-			}
+		if (newPositions != null) {
+			renderPositions = newPositions;
 			needsListenerUpdate = true;
 			if (XmConfig.logExcavationRenderTracking) {
-				Xm.LOG.info("id %d Computed render position length = %d", id, renderPositions == null ? 0 : renderPositions.length);
+				Xm.LOG.info("id %d Computed render position length = %d", id, newPositions.length);
 			}
 		}
 
+		isFirstComputeDone = true;
+
 		if (XmConfig.logExcavationRenderTracking) {
 			Xm.LOG.info("id = %d Compute done, updateListeners=%s, isDirty=%s", id, Boolean.toString(needsListenerUpdate),
 				Boolean.toString(isDirty.get()));
@@ -265,10 +329,6 @@ public class ExcavationRenderEntry {
 		if (needsListenerUpdate) {
 			updateListeners();
 		}
-
-		if (isDirty.get() && count > 0) {
-			compute();
-		}
 	}
 
 	/**
@@ -307,31 +367,39 @@ public class ExcavationRenderEntry {
 		}
 	}
 
+	/**
+	 * Marks this entry invalid while holding the listener lock. The tracker calls this
+	 * before sending delete packets, so an update being sent from a compute thread
+	 * either completes first or sees the entry is invalid and is not sent.
+	 */
+	void invalidate() {
+		synchronized (listeners) {
+			isValid = false;
+		}
+	}
+
+	/**
+	 * Sends current state to listeners. Runs on compute threads. Validity is checked
+	 * again under the listener lock so that updates never follow a delete sent by
+	 * {@link ExcavationRenderTracker#remove(ExcavationRenderEntry)}.
+	 */
 	public void updateListeners() {
-		if (listeners.isEmpty())
+		if (listeners.isEmpty()) {
 			return;
+		}
 
-		//        // think network operations need to run in world tick
-		//        WorldTaskManager.enqueueImmediate(new Runnable()
-		//        {
-		final Packet<?> packet = ExcavationRenderEntry.this.isValid && ExcavationRenderEntry.this.positions.size() > 0
-		// update
-		? S2C_ExcavationRenderUpdate.toPacket(ExcavationRenderEntry.this)
-		// remove
-		: S2C_ExcavationRenderUpdate.toPacket(ExcavationRenderEntry.this.id);
-
-		//            @Override
-		//            public void run()
-		//            {
-		synchronized (ExcavationRenderEntry.this.listeners) {
-			if (!ExcavationRenderEntry.this.listeners.isEmpty()) {
-				for (final ServerPlayerEntity player : listeners) {
-					player.networkHandler.sendPacket(packet);
-				}
+		final boolean isUpdate = isValid && positionCount() > 0;
+		final Packet<?> packet = isUpdate ? S2C_ExcavationRenderUpdate.toPacket(this) : S2C_ExcavationRenderUpdate.toPacket(id);
+
+		synchronized (listeners) {
+			if (isUpdate && !isValid) {
+				return;
+			}
+
+			for (final ServerPlayerEntity player : listeners) {
+				player.networkHandler.sendPacket(packet);
 			}
 		}
-		//            }
-		//        });
 	}
 
 	/**
@@ -339,7 +407,7 @@ public class ExcavationRenderEntry {
 	 * position count is small enough not to be a problem.
 	 */
 	@Nullable
-	public BlockPos[] renderPositions() {
+	public long[] renderPositions() {
 		if (XmConfig.logExcavationRenderTracking) {
 			Xm.LOG.info("id %d Render position retrieval, count = %d", id, renderPositions == null ? 0 : renderPositions.length);
 		}
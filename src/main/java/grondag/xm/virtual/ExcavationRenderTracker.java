@@ -20,13 +20,16 @@ import static org.apiguardian.api.API.Status.INTERNAL;
 import java.util.IdentityHashMap;
 import java.util.Map;
 
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
 import org.apiguardian.api.API;
 
 import net.minecraft.network.Packet;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 
+import grondag.fermion.position.IntegerBox;
 import grondag.fermion.sc.unordered.SimpleUnorderedArrayList;
 import grondag.fermion.world.WorldMap;
 import grondag.xm.Xm;
@@ -34,18 +37,28 @@ import grondag.xm.XmConfig;
 import grondag.xm.network.S2C_ExcavationRenderUpdate;
 import grondag.xm.network.S2C_PacketExcavationRenderRefresh;
 
+/**
+ * Players listen to excavations with bounds in regions within view distance of
+ * the player's region. Entries are indexed by region once their bounds are first
+ * computed, and listeners are added or removed incrementally as players cross
+ * region boundaries. Player regions are checked every server tick, see
+ * {@link #onServerTick(MinecraftServer)}.
+ */
 @API(status = INTERNAL)
-public class ExcavationRenderTracker extends WorldMap<Int2ObjectOpenHashMap<ExcavationRenderEntry>> {
+public class ExcavationRenderTracker extends WorldMap<ExcavationRegionIndex> {
 
 	public static final ExcavationRenderTracker INSTANCE = new ExcavationRenderTracker();
 
 	private final IdentityHashMap<ServerPlayerEntity, PlayerData> playerTracking = new IdentityHashMap<>();
 
 	@Override
-	protected Int2ObjectOpenHashMap<ExcavationRenderEntry> load(World world) {
-		return new Int2ObjectOpenHashMap<>();
+	protected ExcavationRegionIndex load(World world) {
+		return new ExcavationRegionIndex();
 	}
 
+	/**
+	 * Listeners are added when bounds are first computed. See {@link #onBoundsChanged(ExcavationRenderEntry, IntegerBox)}.
+	 */
 	public void add(ExcavationRenderTask task) {
 		final ExcavationRenderEntry entry = new ExcavationRenderEntry(task);
 		if (XmConfig.logExcavationRenderTracking) {
@@ -53,17 +66,50 @@ public class ExcavationRenderTracker extends WorldMap<Int2ObjectOpenHashMap<Exca
 		}
 		if (entry.isValid()) {
 			synchronized (this) {
-				this.get(entry.world).put(entry.id, entry);
+				final ExcavationRegionIndex index = this.get(entry.world);
+				index.put(entry);
+
+				// compute may have finished before the entry was added
+				final IntegerBox bounds = entry.aabb();
+
+				if (bounds != null) {
+					indexAndListen(index, entry, bounds, true);
+				}
 			}
+		}
+	}
+
+	/**
+	 * Called by entry when computed bounds change, before listeners are updated.
+	 */
+	synchronized void onBoundsChanged(ExcavationRenderEntry entry, IntegerBox bounds) {
+		final ExcavationRegionIndex index = this.get(entry.world);
+
+		if (index.contains(entry)) {
+			indexAndListen(index, entry, bounds, false);
+		}
+	}
+
+	/**
+	 * New listeners are sent the entry only if requested - when called from compute,
+	 * the entry will update all listeners after this returns.
+	 */
+	private void indexAndListen(ExcavationRegionIndex index, ExcavationRenderEntry entry, IntegerBox bounds, boolean sendIfNew) {
+		index.reindex(entry, bounds);
 
-			for (final Map.Entry<ServerPlayerEntity, PlayerData> playerEntry : playerTracking.entrySet()) {
-				final PlayerData pd = playerEntry.getValue();
-				if (pd.world == entry.world && task.visibleTo(playerEntry.getKey())) {
-					if (XmConfig.logExcavationRenderTracking) {
-						Xm.LOG.info("adding listeners for %s", playerEntry.getKey().getDisplayName());
-					}
-					entry.addListener(playerEntry.getKey(), true);
+		final BlockPos min = bounds.minPos();
+		final BlockPos max = bounds.maxPos();
+
+		for (final Map.Entry<ServerPlayerEntity, PlayerData> playerEntry : playerTracking.entrySet()) {
+			final PlayerData pd = playerEntry.getValue();
+
+			if (pd.world == entry.world && !pd.visible.contains(entry) && pd.isNear(min, max) && entry.task.visibleTo(playerEntry.getKey())) {
+				if (XmConfig.logExcavationRenderTracking) {
+					Xm.LOG.info("adding listeners for %s", playerEntry.getKey().getDisplayName());
 				}
+
+				pd.visible.add(entry);
+				entry.addListener(playerEntry.getKey(), sendIfNew);
 			}
 		}
 	}
@@ -73,13 +119,14 @@ public class ExcavationRenderTracker extends WorldMap<Int2ObjectOpenHashMap<Exca
 			Xm.LOG.info("id = %d removing excavation render entry", entry.id);
 		}
 
-		this.get(entry.world).remove(entry.id);
+		entry.invalidate();
+		this.get(entry.world).remove(entry);
 
 		final Packet<?> packet = S2C_ExcavationRenderUpdate.toPacket(entry.id);
 
 		for (final Map.Entry<ServerPlayerEntity, PlayerData> playerEntry : playerTracking.entrySet()) {
 			final PlayerData pd = playerEntry.getValue();
-			if (pd.world == entry.world) {
+			if (pd.visible.remove(entry)) {
 				entry.removeListener(playerEntry.getKey());
 				playerEntry.getKey().networkHandler.sendPacket(packet);
 			}
@@ -87,88 +134,135 @@ public class ExcavationRenderTracker extends WorldMap<Int2ObjectOpenHashMap<Exca
 	}
 
 	/**
-	 * Call when player joins server, changes dimension or changes active domain.
+	 * Updates tracking for every connected player. Covers joins, dimension changes
+	 * and movement across region boundaries. Players that have not changed region
+	 * cost a map lookup and a few comparisons.
 	 */
-	public void updatePlayerTracking(ServerPlayerEntity player) {
-		if (XmConfig.logExcavationRenderTracking) {
-			Xm.LOG.info("updatePlayerTracking for %s", player.getName());
+	public void onServerTick(MinecraftServer server) {
+		for (final ServerPlayerEntity player : server.getPlayerManager().getPlayerList()) {
+			updatePlayerTracking(player);
 		}
+	}
 
-		final PlayerData newData = new PlayerData(player);
+	/**
+	 * Call when player joins server, changes dimension or changes active domain,
+	 * and as player moves. Returns quickly unless player has entered a new region.
+	 */
+	public synchronized void updatePlayerTracking(ServerPlayerEntity player) {
 		final PlayerData oldData = playerTracking.get(player);
 
-		if (oldData != null && oldData.world == newData.world && oldData.domainID == newData.domainID) {
+		if (oldData != null && oldData.matches(player)) {
 			// no changes
-			if (XmConfig.logExcavationRenderTracking) {
-				Xm.LOG.info("updatePlayerTracking exit no changes");
-			}
 			return;
 		}
 
+		final PlayerData newData = new PlayerData(player);
+
+		if (XmConfig.logExcavationRenderTracking) {
+			Xm.LOG.info("updatePlayerTracking for %s", player.getName());
+		}
+
 		playerTracking.put(player, newData);
 
+		final ExcavationRegionIndex index = this.get(newData.world);
+		index.collectNear(newData.regionX, newData.regionZ, newData.radius, newData.visible);
+		newData.visible.removeIf(e -> !e.task.visibleTo(player));
+
+		if (oldData != null && oldData.world == newData.world && oldData.domainID == newData.domainID) {
+			// moved within same world - send only the difference
+			for (final ExcavationRenderEntry entry : oldData.visible) {
+				if (!newData.visible.contains(entry)) {
+					entry.removeListener(player);
+					player.networkHandler.sendPacket(S2C_ExcavationRenderUpdate.toPacket(entry.id));
+				}
+			}
+
+			for (final ExcavationRenderEntry entry : newData.visible) {
+				if (!oldData.visible.contains(entry)) {
+					entry.addListener(player, true);
+				}
+			}
+
+			return;
+		}
+
 		// remove old listeners if needed
 		if (oldData != null) {
-			synchronized (this) {
-				final Int2ObjectOpenHashMap<ExcavationRenderEntry> entries = this.get(oldData.world);
-				if (entries != null && !entries.isEmpty()) {
-					for (final ExcavationRenderEntry entry : entries.values()) {
-						entry.removeListener(player);
-					}
-				}
+			for (final ExcavationRenderEntry entry : oldData.visible) {
+				entry.removeListener(player);
 			}
 		}
 
 		// build refresh
 		final SimpleUnorderedArrayList<ExcavationRenderEntry> output = new SimpleUnorderedArrayList<>();
-		synchronized (this) {
-			final Int2ObjectOpenHashMap<ExcavationRenderEntry> entries = this.get(newData.world);
-			if (entries != null && !entries.isEmpty()) {
-				for (final ExcavationRenderEntry entry : entries.values()) {
-					if(entry.task.visibleTo(player)) {
-						entry.addListener(player, false);
-						if (entry.isFirstComputeDone()) {
-							output.add(entry);
-						}
-					}
-				}
+
+		for (final ExcavationRenderEntry entry : newData.visible) {
+			entry.addListener(player, false);
+
+			if (entry.isFirstComputeDone()) {
+				output.add(entry);
 			}
 		}
 
 		player.networkHandler.sendPacket(S2C_PacketExcavationRenderRefresh.toPacket(output));
 	}
 
-	public void stopPlayerTracking(ServerPlayerEntity player) {
-		final PlayerData oldData = playerTracking.get(player);
+	public synchronized void stopPlayerTracking(ServerPlayerEntity player) {
+		final PlayerData oldData = playerTracking.remove(player);
 
 		if (oldData == null)
 			return;
 
-		synchronized (this) {
-			final Int2ObjectOpenHashMap<ExcavationRenderEntry> entries = this.get(oldData.world);
-			if (entries != null && !entries.isEmpty()) {
-				for (final ExcavationRenderEntry entry : entries.values()) {
-					entry.removeListener(player);
-				}
-			}
+		for (final ExcavationRenderEntry entry : oldData.visible) {
+			entry.removeListener(player);
 		}
-
-		playerTracking.remove(player);
 	}
 
 	private static class PlayerData {
 		private final int domainID;
 		private final World world;
+		private final int regionX;
+		private final int regionZ;
+		private final int radius;
+
+		/** Entries this player is listening to */
+		private final ReferenceOpenHashSet<ExcavationRenderEntry> visible = new ReferenceOpenHashSet<>();
 
 		private PlayerData(ServerPlayerEntity player) {
 			// FIX: put back when Domains are moved out of Simulator
 			domainID = 1; //DomainManager.instance().getActiveDomain(player).getAssignedNumber();
 			world = player.world;
+			final BlockPos pos = player.getBlockPos();
+			regionX = ExcavationRegionIndex.regionOf(pos.getX());
+			regionZ = ExcavationRegionIndex.regionOf(pos.getZ());
+			radius = radius(player);
+		}
+
+		/** True if the player is still in the same world, domain and region. */
+		private boolean matches(ServerPlayerEntity player) {
+			final BlockPos pos = player.getBlockPos();
+			return world == player.world
+					// FIX: compare domain when Domains are moved out of Simulator
+					&& regionX == ExcavationRegionIndex.regionOf(pos.getX())
+					&& regionZ == ExcavationRegionIndex.regionOf(pos.getZ())
+					&& radius == radius(player);
+		}
+
+		private static int radius(ServerPlayerEntity player) {
+			// view distance is in chunks - round up to whole regions
+			return (player.server.getPlayerManager().getViewDistance() * 16 + ExcavationRegionIndex.REGION_SIZE - 1) >> ExcavationRegionIndex.REGION_SHIFT;
+		}
+
+		private boolean isNear(BlockPos min, BlockPos max) {
+			return ExcavationRegionIndex.regionOf(min.getX()) <= regionX + radius
+					&& ExcavationRegionIndex.regionOf(max.getX() - 1) >= regionX - radius
+					&& ExcavationRegionIndex.regionOf(min.getZ()) <= regionZ + radius
+					&& ExcavationRegionIndex.regionOf(max.getZ() - 1) >= regionZ - radius;
 		}
 	}
 
 	@Override
-	public void clear() {
+	public synchronized void clear() {
 		super.clear();
 		playerTracking.clear();
 	}